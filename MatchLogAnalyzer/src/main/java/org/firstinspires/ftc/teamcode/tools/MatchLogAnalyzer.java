@@ -0,0 +1,588 @@
+package org.firstinspires.ftc.teamcode.tools;
+
+import org.firstinspires.ftc.teamcode.pedroPathing.FlightLog;
+import org.firstinspires.ftc.teamcode.pedroPathing.FlightRecorder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * MatchLogAnalyzer is a command-line tool that mines the flight logs of a whole event.
+ *
+ * DESKTOP TOOL: this is not an OpMode and never runs on the robot. It is its own plain Java module
+ * (MatchLogAnalyzer/), so it is not compiled into the robot app; the module builds the flight log
+ * classes it reads (FlightRecorder, FlightLog, LogFiles) straight from TeamCode's sources. Pull the
+ * logs off the Control Hub and run it on a laptop:
+ *
+ *   adb pull /sdcard/FIRST/data logs
+ *   ./gradlew :MatchLogAnalyzer:run --args="--out $PWD/report $PWD/logs"
+ *
+ * Arguments:
+ *   --out DIR                          Output directory (default: match_report)
+ *   --end-pose NAME=X,Y,HEADING_DEG    Known final pose for logs from OpMode NAME (repeatable)
+ *   LOG_OR_DIR...                      Flight logs, or directories containing flight_*.bin files
+ *
+ * Every log is memory-mapped through FlightLog and analyzed as its own fork-join task, so a full
+ * event is processed in parallel across all cores. For each match it reports:
+ * - Loop-time distribution (percentiles plus a histogram)
+ * - Flywheel spin-up time per spin episode and recovery time per shot
+ * - Time spent in each segment (auto step or TeleOp shoot position)
+ * - Localization drift: last recorded pose versus the known end pose for that OpMode
+ * - Dwell time in the front zone, back zone and outside both
+ *
+ * Output: summary.csv, shots.csv, segments.csv, loop_histogram.csv and summary.html in the output
+ * directory.
+ */
+public class MatchLogAnalyzer {
+
+    // ===== SHOT DETECTION (EDITABLE) =====
+    private static final double AT_SPEED_FRACTION = 0.95;  // RPM at or above this fraction of reference is "at speed"
+    private static final double SHOT_DIP_FRACTION = 0.90;  // A drop below this fraction of reference counts as a shot
+    private static final double FLYWHEEL_ON_POWER = 0.05;  // Open-loop power above this counts as spinning
+
+    // ===== LOOP HISTOGRAM =====
+    private static final double HISTOGRAM_BUCKET_MS = 2.0;
+    private static final int HISTOGRAM_BUCKETS = 50;  // Last bucket collects everything at or above 100 ms
+
+    // ===== DEFAULT END POSES =====
+    // OTOS Auto finishes its last shoot sequence parked at POS1 facing the goal. Override with
+    // --end-pose when the robot was measured somewhere else at the end of a match.
+    private static final String DEFAULT_END_POSES = "OtosAuto=50,94,142";
+
+    /**
+     * Known pose the robot physically ended a match at.
+     */
+    public static class EndPose {
+        public final double x, y;          // inches
+        public final double headingDeg;    // degrees
+
+        public EndPose(double x, double y, double headingDeg) {
+            this.x = x;
+            this.y = y;
+            this.headingDeg = headingDeg;
+        }
+    }
+
+    /**
+     * One detected shot: the flywheel dipped below SHOT_DIP_FRACTION of its reference and recovered.
+     */
+    public static class Shot {
+        public int episode;
+        public int index;              // Shot number within the episode
+        public double timeSeconds;     // Time of the dip, since recording start
+        public double minRpm;          // Lowest RPM during the dip
+        public double recoveryMs;      // Time back to AT_SPEED_FRACTION, NaN if it never recovered
+    }
+
+    /**
+     * Results for one flight log.
+     */
+    public static class MatchSummary {
+        public String file;
+        public String opMode;
+        public String error;  // Non-null if the log could not be analyzed
+        public int records;
+        public boolean wrapped;
+        public double durationSeconds;
+
+        public double loopP50Ms, loopP90Ms, loopP99Ms, loopMaxMs, loopMeanMs;
+        public final int[] loopHistogram = new int[HISTOGRAM_BUCKETS];
+
+        public int spinEpisodes;
+        public double meanSpinUpMs = Double.NaN;
+        public double maxSpinUpMs = Double.NaN;
+        public final List<Shot> shots = new ArrayList<>();
+        public double meanRecoveryMs = Double.NaN;
+        public double maxRecoveryMs = Double.NaN;
+
+        public final Map<Integer, Double> segmentSeconds = new TreeMap<>();
+
+        public double frontZoneSeconds, backZoneSeconds, outsideZoneSeconds;
+
+        public boolean hasEndPose;
+        public double driftX, driftY, driftDistance, driftHeadingDeg;
+    }
+
+    /**
+     * Analyzes one log. Forked once per file.
+     */
+    private static class FileTask extends RecursiveTask<MatchSummary> {
+        private static final long serialVersionUID = 1L;
+
+        private final File file;
+        private final Map<String, EndPose> endPoses;
+
+        FileTask(File file, Map<String, EndPose> endPoses) {
+            this.file = file;
+            this.endPoses = endPoses;
+        }
+
+        @Override
+        protected MatchSummary compute() {
+            try {
+                FlightLog log = new FlightLog(file);
+                return analyze(log, endPoses.get(log.getOpModeName()));
+            } catch (IOException | RuntimeException e) {
+                MatchSummary failed = new MatchSummary();
+                failed.file = file.getName();
+                failed.opMode = "";
+                failed.error = String.valueOf(e.getMessage());
+                return failed;
+            }
+        }
+    }
+
+    /**
+     * Forks one FileTask per log and joins them in input order.
+     */
+    private static class EventTask extends RecursiveTask<List<MatchSummary>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> files;
+        private final Map<String, EndPose> endPoses;
+
+        EventTask(List<File> files, Map<String, EndPose> endPoses) {
+            this.files = files;
+            this.endPoses = endPoses;
+        }
+
+        @Override
+        protected List<MatchSummary> compute() {
+            List<FileTask> tasks = new ArrayList<>();
+            for (File file : files) {
+                FileTask task = new FileTask(file, endPoses);
+                task.fork();
+                tasks.add(task);
+            }
+
+            List<MatchSummary> results = new ArrayList<>();
+            for (FileTask task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        File outDir = new File("match_report");
+        Map<String, EndPose> endPoses = new HashMap<>();
+        parseEndPose(DEFAULT_END_POSES, endPoses);
+        List<File> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                outDir = new File(args[++i]);
+            } else if (args[i].equals("--end-pose") && i + 1 < args.length) {
+                parseEndPose(args[++i], endPoses);
+            } else if (args[i].startsWith("--")) {
+                printUsage();
+                System.exit(2);
+            } else {
+                addLogs(new File(args[i]), files);
+            }
+        }
+
+        if (files.isEmpty()) {
+            printUsage();
+            System.exit(2);
+        }
+        Collections.sort(files);
+
+        List<MatchSummary> summaries = ForkJoinPool.commonPool().invoke(new EventTask(files, endPoses));
+
+        if (!outDir.exists() && !outDir.mkdirs()) {
+            throw new IOException("Cannot create " + outDir);
+        }
+        writeSummaryCsv(new File(outDir, "summary.csv"), summaries);
+        writeShotsCsv(new File(outDir, "shots.csv"), summaries);
+        writeSegmentsCsv(new File(outDir, "segments.csv"), summaries);
+        writeHistogramCsv(new File(outDir, "loop_histogram.csv"), summaries);
+        writeHtml(new File(outDir, "summary.html"), summaries);
+
+        int failures = 0;
+        for (MatchSummary summary : summaries) {
+            if (summary.error != null) {
+                System.err.println("Skipped " + summary.file + ": " + summary.error);
+                failures++;
+            }
+        }
+        System.out.println("Analyzed " + (summaries.size() - failures) + " of " + summaries.size()
+                + " logs into " + outDir.getPath());
+    }
+
+    /**
+     * Computes every metric for one log.
+     *
+     * @param log Flight log to analyze
+     * @param endPose Known end pose for this log's OpMode, or null to skip drift
+     * @return Summary of the match
+     */
+    public static MatchSummary analyze(FlightLog log, EndPose endPose) {
+        MatchSummary summary = new MatchSummary();
+        summary.file = log.getFile().getName();
+        summary.opMode = log.getOpModeName();
+        summary.records = log.getRecordCount();
+        summary.wrapped = log.hasWrapped();
+
+        int n = log.getRecordCount();
+        if (n == 0) {
+            return summary;
+        }
+        summary.durationSeconds = log.getTimeSeconds(n - 1) - log.getTimeSeconds(0);
+
+        analyzeLoopTimes(log, summary);
+        analyzeFlywheel(log, summary);
+        analyzeSegmentsAndZones(log, summary);
+
+        if (endPose != null) {
+            summary.hasEndPose = true;
+            summary.driftX = log.getX(n - 1) - endPose.x;
+            summary.driftY = log.getY(n - 1) - endPose.y;
+            summary.driftDistance = Math.hypot(summary.driftX, summary.driftY);
+            double headingError = Math.toDegrees(log.getHeading(n - 1)) - endPose.headingDeg;
+            summary.driftHeadingDeg = ((headingError % 360 + 540) % 360) - 180;  // Wrap to [-180, 180)
+        }
+        return summary;
+    }
+
+    private static void analyzeLoopTimes(FlightLog log, MatchSummary summary) {
+        int n = log.getRecordCount();
+        float[] loopMs = new float[n];
+        int count = 0;
+        double total = 0;
+
+        for (int i = 0; i < n; i++) {
+            float ms = log.getLoopMs(i);
+            if (ms <= 0) {
+                continue;  // First loop of a run has no previous loop to measure
+            }
+            loopMs[count++] = ms;
+            total += ms;
+
+            int bucket = (int) (ms / HISTOGRAM_BUCKET_MS);
+            summary.loopHistogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)]++;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        Arrays.sort(loopMs, 0, count);
+        summary.loopP50Ms = percentile(loopMs, count, 0.50);
+        summary.loopP90Ms = percentile(loopMs, count, 0.90);
+        summary.loopP99Ms = percentile(loopMs, count, 0.99);
+        summary.loopMaxMs = loopMs[count - 1];
+        summary.loopMeanMs = total / count;
+    }
+
+    /**
+     * Splits the log into spin episodes (contiguous records where the flywheel is commanded with the
+     * same target) and measures spin-up and per-shot recovery in each one.
+     *
+     * The reference speed of an episode is its closed-loop target, or for open-loop episodes the
+     * highest RPM the flywheel reached.
+     */
+    private static void analyzeFlywheel(FlightLog log, MatchSummary summary) {
+        int n = log.getRecordCount();
+        double spinUpTotal = 0, spinUpMax = 0;
+        int spinUpCount = 0;
+
+        int i = 0;
+        while (i < n) {
+            if (!isFlywheelCommanded(log, i)) {
+                i++;
+                continue;
+            }
+
+            // Find the end of this episode
+            int start = i;
+            float target = log.getFlywheelTarget(start);
+            double peakRpm = 0;
+            while (i < n && isFlywheelCommanded(log, i) && log.getFlywheelTarget(i) == target) {
+                peakRpm = Math.max(peakRpm, log.getFlywheelRpm(i));
+                i++;
+            }
+            int end = i;
+
+            double reference = target > 0 ? target : peakRpm;
+            if (reference <= 0) {
+                continue;
+            }
+            int episode = summary.spinEpisodes++;
+            double atSpeedRpm = reference * AT_SPEED_FRACTION;
+            double dipRpm = reference * SHOT_DIP_FRACTION;
+
+            boolean atSpeed = false;
+            Shot shot = null;
+            for (int j = start; j < end; j++) {
+                double rpm = log.getFlywheelRpm(j);
+                double t = log.getTimeSeconds(j);
+
+                if (!atSpeed && shot == null) {
+                    if (rpm >= atSpeedRpm) {
+                        double spinUpMs = (t - log.getTimeSeconds(start)) * 1000;
+                        spinUpTotal += spinUpMs;
+                        spinUpMax = Math.max(spinUpMax, spinUpMs);
+                        spinUpCount++;
+                        atSpeed = true;
+                    }
+                } else if (atSpeed && rpm < dipRpm) {
+                    shot = new Shot();
+                    shot.episode = episode;
+                    shot.index = countShots(summary, episode);
+                    shot.timeSeconds = t;
+                    shot.minRpm = rpm;
+                    shot.recoveryMs = Double.NaN;
+                    summary.shots.add(shot);
+                    atSpeed = false;
+                } else if (shot != null) {
+                    shot.minRpm = Math.min(shot.minRpm, rpm);
+                    if (rpm >= atSpeedRpm) {
+                        shot.recoveryMs = (t - shot.timeSeconds) * 1000;
+                        shot = null;
+                        atSpeed = true;
+                    }
+                }
+            }
+        }
+
+        if (spinUpCount > 0) {
+            summary.meanSpinUpMs = spinUpTotal / spinUpCount;
+            summary.maxSpinUpMs = spinUpMax;
+        }
+
+        double recoveryTotal = 0, recoveryMax = 0;
+        int recoveryCount = 0;
+        for (Shot shot : summary.shots) {
+            if (!Double.isNaN(shot.recoveryMs)) {
+                recoveryTotal += shot.recoveryMs;
+                recoveryMax = Math.max(recoveryMax, shot.recoveryMs);
+                recoveryCount++;
+            }
+        }
+        if (recoveryCount > 0) {
+            summary.meanRecoveryMs = recoveryTotal / recoveryCount;
+            summary.maxRecoveryMs = recoveryMax;
+        }
+    }
+
+    /**
+     * Accumulates time per segment and per zone. Each record owns the time until the next record.
+     */
+    private static void analyzeSegmentsAndZones(FlightLog log, MatchSummary summary) {
+        int n = log.getRecordCount();
+        for (int i = 0; i < n - 1; i++) {
+            double dt = log.getTimeSeconds(i + 1) - log.getTimeSeconds(i);
+
+            Integer segment = log.getSegment(i);
+            Double previous = summary.segmentSeconds.get(segment);
+            summary.segmentSeconds.put(segment, (previous == null ? 0 : previous) + dt);
+
+            if (log.hasFlag(i, FlightRecorder.FLAG_FRONT_ZONE)) {
+                summary.frontZoneSeconds += dt;
+            } else if (log.hasFlag(i, FlightRecorder.FLAG_BACK_ZONE)) {
+                summary.backZoneSeconds += dt;
+            } else {
+                summary.outsideZoneSeconds += dt;
+            }
+        }
+    }
+
+    private static boolean isFlywheelCommanded(FlightLog log, int index) {
+        return log.getFlywheelTarget(index) > 0 || log.getFlywheelPower(index) > FLYWHEEL_ON_POWER;
+    }
+
+    private static int countShots(MatchSummary summary, int episode) {
+        int count = 0;
+        for (Shot shot : summary.shots) {
+            if (shot.episode == episode) count++;
+        }
+        return count;
+    }
+
+    private static double percentile(float[] sorted, int count, double fraction) {
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    // ===== INPUT =====
+
+    private static void addLogs(File path, List<File> files) {
+        if (path.isDirectory()) {
+            File[] children = path.listFiles();
+            if (children == null) {
+                return;
+            }
+            for (File child : children) {
+                if (child.isDirectory() || (child.getName().startsWith("flight_") && child.getName().endsWith(".bin"))) {
+                    addLogs(child, files);
+                }
+            }
+        } else if (path.isFile()) {
+            files.add(path);
+        } else {
+            System.err.println("Not found: " + path);
+        }
+    }
+
+    private static void parseEndPose(String spec, Map<String, EndPose> endPoses) {
+        int equals = spec.indexOf('=');
+        String[] parts = spec.substring(equals + 1).split(",");
+        if (equals <= 0 || parts.length != 3) {
+            throw new IllegalArgumentException("Expected NAME=X,Y,HEADING_DEG but got " + spec);
+        }
+        endPoses.put(spec.substring(0, equals), new EndPose(
+                Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Double.parseDouble(parts[2])));
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: MatchLogAnalyzer [--out DIR] [--end-pose NAME=X,Y,HEADING_DEG]... LOG_OR_DIR...");
+    }
+
+    // ===== OUTPUT =====
+
+    private static void writeSummaryCsv(File file, List<MatchSummary> summaries) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("file,opmode,records,wrapped,duration_s,loop_p50_ms,loop_p90_ms,loop_p99_ms,loop_max_ms,loop_mean_ms,"
+                    + "spin_episodes,mean_spinup_ms,max_spinup_ms,shots,mean_recovery_ms,max_recovery_ms,"
+                    + "front_zone_s,back_zone_s,outside_zone_s,drift_x_in,drift_y_in,drift_in,drift_heading_deg,error");
+            for (MatchSummary s : summaries) {
+                out.println(String.format(Locale.US,
+                        "%s,%s,%d,%b,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%d,%s,%s,%d,%s,%s,%.2f,%.2f,%.2f,%s,%s,%s,%s,%s",
+                        csv(s.file), csv(s.opMode), s.records, s.wrapped, s.durationSeconds,
+                        s.loopP50Ms, s.loopP90Ms, s.loopP99Ms, s.loopMaxMs, s.loopMeanMs,
+                        s.spinEpisodes, num(s.meanSpinUpMs), num(s.maxSpinUpMs),
+                        s.shots.size(), num(s.meanRecoveryMs), num(s.maxRecoveryMs),
+                        s.frontZoneSeconds, s.backZoneSeconds, s.outsideZoneSeconds,
+                        s.hasEndPose ? num(s.driftX) : "", s.hasEndPose ? num(s.driftY) : "",
+                        s.hasEndPose ? num(s.driftDistance) : "", s.hasEndPose ? num(s.driftHeadingDeg) : "",
+                        s.error == null ? "" : csv(s.error)));
+            }
+        }
+    }
+
+    private static void writeShotsCsv(File file, List<MatchSummary> summaries) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("file,episode,shot,time_s,min_rpm,recovery_ms");
+            for (MatchSummary s : summaries) {
+                for (Shot shot : s.shots) {
+                    out.println(String.format(Locale.US, "%s,%d,%d,%.3f,%.0f,%s",
+                            csv(s.file), shot.episode, shot.index, shot.timeSeconds, shot.minRpm, num(shot.recoveryMs)));
+                }
+            }
+        }
+    }
+
+    private static void writeSegmentsCsv(File file, List<MatchSummary> summaries) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("file,segment,seconds");
+            for (MatchSummary s : summaries) {
+                for (Map.Entry<Integer, Double> entry : s.segmentSeconds.entrySet()) {
+                    out.println(String.format(Locale.US, "%s,%d,%.3f", csv(s.file), entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+    }
+
+    private static void writeHistogramCsv(File file, List<MatchSummary> summaries) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("file,bucket_start_ms,count");
+            for (MatchSummary s : summaries) {
+                for (int b = 0; b < HISTOGRAM_BUCKETS; b++) {
+                    if (s.loopHistogram[b] > 0) {
+                        out.println(String.format(Locale.US, "%s,%.0f,%d", csv(s.file), b * HISTOGRAM_BUCKET_MS, s.loopHistogram[b]));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeHtml(File file, List<MatchSummary> summaries) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Match Log Summary</title>");
+            out.println("<style>body{font-family:sans-serif}table{border-collapse:collapse;margin-bottom:2em}"
+                    + "td,th{border:1px solid #999;padding:2px 6px;text-align:right}th{background:#ddd}"
+                    + "td.name{text-align:left}.bar{background:#4a7;height:10px;display:inline-block}</style></head><body>");
+            out.println("<h1>Match Log Summary</h1>");
+
+            out.println("<h2>Matches</h2><table><tr><th>File</th><th>OpMode</th><th>Duration (s)</th>"
+                    + "<th>Loop p50/p90/p99/max (ms)</th><th>Spin-up mean/max (ms)</th><th>Shots</th>"
+                    + "<th>Recovery mean/max (ms)</th><th>Front/Back/Outside zone (s)</th><th>Drift (in, deg)</th></tr>");
+            for (MatchSummary s : summaries) {
+                if (s.error != null) {
+                    out.println("<tr><td class=\"name\">" + html(s.file) + "</td><td class=\"name\" colspan=\"8\">Error: "
+                            + html(s.error) + "</td></tr>");
+                    continue;
+                }
+                out.println(String.format(Locale.US,
+                        "<tr><td class=\"name\">%s</td><td class=\"name\">%s</td><td>%.1f%s</td><td>%.1f / %.1f / %.1f / %.1f</td>"
+                                + "<td>%s / %s</td><td>%d</td><td>%s / %s</td><td>%.1f / %.1f / %.1f</td><td>%s</td></tr>",
+                        html(s.file), html(s.opMode), s.durationSeconds, s.wrapped ? " (wrapped)" : "",
+                        s.loopP50Ms, s.loopP90Ms, s.loopP99Ms, s.loopMaxMs,
+                        num(s.meanSpinUpMs), num(s.maxSpinUpMs), s.shots.size(),
+                        num(s.meanRecoveryMs), num(s.maxRecoveryMs),
+                        s.frontZoneSeconds, s.backZoneSeconds, s.outsideZoneSeconds,
+                        s.hasEndPose ? String.format(Locale.US, "%.1f, %.1f", s.driftDistance, s.driftHeadingDeg) : "-"));
+            }
+            out.println("</table>");
+
+            // Loop-time distribution for the whole event
+            int[] eventHistogram = new int[HISTOGRAM_BUCKETS];
+            int maxCount = 1;
+            for (MatchSummary s : summaries) {
+                for (int b = 0; b < HISTOGRAM_BUCKETS; b++) {
+                    eventHistogram[b] += s.loopHistogram[b];
+                    maxCount = Math.max(maxCount, eventHistogram[b]);
+                }
+            }
+            out.println("<h2>Loop Time Distribution (all matches)</h2><table><tr><th>Loop (ms)</th><th>Loops</th><th></th></tr>");
+            for (int b = 0; b < HISTOGRAM_BUCKETS; b++) {
+                if (eventHistogram[b] == 0) {
+                    continue;
+                }
+                String label = b == HISTOGRAM_BUCKETS - 1
+                        ? String.format(Locale.US, "&ge; %.0f", b * HISTOGRAM_BUCKET_MS)
+                        : String.format(Locale.US, "%.0f - %.0f", b * HISTOGRAM_BUCKET_MS, (b + 1) * HISTOGRAM_BUCKET_MS);
+                out.println(String.format(Locale.US,
+                        "<tr><td>%s</td><td>%d</td><td class=\"name\"><span class=\"bar\" style=\"width:%dpx\"></span></td></tr>",
+                        label, eventHistogram[b], Math.max(1, eventHistogram[b] * 300 / maxCount)));
+            }
+            out.println("</table>");
+
+            out.println("<h2>Segment Times (s)</h2><table><tr><th>File</th><th>Segment</th><th>Seconds</th></tr>");
+            for (MatchSummary s : summaries) {
+                for (Map.Entry<Integer, Double> entry : s.segmentSeconds.entrySet()) {
+                    out.println(String.format(Locale.US, "<tr><td class=\"name\">%s</td><td>%d</td><td>%.2f</td></tr>",
+                            html(s.file), entry.getKey(), entry.getValue()));
+                }
+            }
+            out.println("</table></body></html>");
+        }
+    }
+
+    private static String num(double value) {
+        return Double.isNaN(value) ? "" : String.format(Locale.US, "%.1f", value);
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String html(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,187 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * AccelerationLimiter keeps the drivetrain's commanded translation inside what the wheels can
+ * transmit to the tiles without slipping.
+ *
+ * A full-stick reversal asks for far more force than the rollers can hold. The wheels spin, the
+ * robot slows no faster than friction allows anyway, and the OTOS (which tracks the floor under
+ * the robot) sees the skid. Limiting the command keeps the wheels gripping, so the real
+ * acceleration is the best traction allows and the odometry stays clean.
+ *
+ * Limits:
+ * - Traction: a = mu * m * g / (m + rotating mass); the wheels and motors add inertia the tire
+ *   force must also spin up, which matters more on a light robot. Strafing grips less, so the
+ *   lateral limit is LATERAL_TRACTION_RATIO of the forward one, and the two form an ellipse so a
+ *   diagonal does not get both limits at once.
+ * - Braking: while slowing down, at least the measured zero power acceleration is allowed. The
+ *   robot already decelerates that hard on its own with the motors at zero power.
+ * - Jerk: the acceleration itself changes at most MAX_JERK per second, and eases off as the
+ *   command nears the target so it does not overshoot.
+ *
+ * Rotation is not limited; auto-aim needs it at full rate.
+ *
+ * The defaults come from Constants.followerConstants (mass, zero power accelerations). Speeds
+ * are robot-relative, in inches per second.
+ */
+public class AccelerationLimiter {
+
+    // ===== TRACTION (EDITABLE) =====
+    public static double TRACTION_COEFFICIENT = 0.6;      // Effective friction of mecanum rollers on tiles
+    public static double LATERAL_TRACTION_RATIO = 0.7;    // Strafe traction relative to forward
+    public static double ROTATING_MASS_KG = 0.8;          // Wheels, gearboxes and motor rotors as equivalent mass
+    public static double MAX_JERK = 3000;                 // Inches/second^3
+
+    private static final double GRAVITY = 386.09;               // Inches/second^2
+    private static final long SAME_LOOP_NANOS = 2_000_000L;     // Calls closer than this belong to the same loop
+    private static final long FIRST_STEP_NANOS = 20_000_000L;   // The first call after a reset steps one typical loop
+
+    private final double forwardLimit;   // Inches/second^2
+    private final double lateralLimit;
+    private final double forwardBraking;
+    private final double lateralBraking;
+
+    // State after the last loop, and the state it was computed from
+    private double forward, strafe, forwardAcceleration, strafeAcceleration;
+    private double baseForward, baseStrafe, baseForwardAcceleration, baseStrafeAcceleration;
+    private long lastNanos = 0;
+    private double lastDt = 0;
+
+    /**
+     * Uses the robot mass and zero power accelerations from Constants.followerConstants.
+     */
+    public AccelerationLimiter() {
+        this(Constants.followerConstants.mass,
+                Math.abs(Constants.followerConstants.forwardZeroPowerAcceleration),
+                Math.abs(Constants.followerConstants.lateralZeroPowerAcceleration));
+    }
+
+    /**
+     * @param massKg Robot mass (kilograms)
+     * @param forwardZeroPowerDeceleration Forward coast-down deceleration (inches/second^2)
+     * @param lateralZeroPowerDeceleration Lateral coast-down deceleration (inches/second^2)
+     */
+    public AccelerationLimiter(double massKg, double forwardZeroPowerDeceleration, double lateralZeroPowerDeceleration) {
+        forwardLimit = TRACTION_COEFFICIENT * GRAVITY * massKg / (massKg + ROTATING_MASS_KG);
+        lateralLimit = forwardLimit * LATERAL_TRACTION_RATIO;
+        forwardBraking = Math.max(forwardLimit, forwardZeroPowerDeceleration);
+        lateralBraking = Math.max(lateralLimit, lateralZeroPowerDeceleration);
+    }
+
+    /**
+     * Moves the command toward the target within the limits. Read the result with getForward()
+     * and getStrafe(). Several calls in the same loop all step from where the last loop left off.
+     *
+     * @param targetForward Wanted forward speed
+     * @param targetStrafe Wanted strafe speed, right positive
+     * @param nanos System.nanoTime() now
+     */
+    public void update(double targetForward, double targetStrafe, long nanos) {
+        if (lastNanos == 0) {
+            // First call since construction or reset(): limit from the known state (rest, or the
+            // measured speed reset() was given) as if one loop had passed, never straight to the target
+            lastNanos = nanos - FIRST_STEP_NANOS;
+        }
+
+        if (nanos - lastNanos >= SAME_LOOP_NANOS) {
+            baseForward = forward;
+            baseStrafe = strafe;
+            baseForwardAcceleration = forwardAcceleration;
+            baseStrafeAcceleration = strafeAcceleration;
+            lastDt = (nanos - lastNanos) / 1e9;
+            lastNanos = nanos;
+        }
+        double dt = Math.min(lastDt, 0.1);  // A stalled loop should not allow one huge step
+        if (dt <= 0) {
+            return;
+        }
+
+        double errorForward = targetForward - baseForward;
+        double errorStrafe = targetStrafe - baseStrafe;
+
+        // Acceleration that would reach the target this loop
+        double wantForward = errorForward / dt;
+        double wantStrafe = errorStrafe / dt;
+
+        // Traction ellipse; braking axes get the larger of traction and coast-down
+        double limitForward = wantForward * baseForward < 0 ? forwardBraking : forwardLimit;
+        double limitStrafe = wantStrafe * baseStrafe < 0 ? lateralBraking : lateralLimit;
+        double usage = Math.hypot(wantForward / limitForward, wantStrafe / limitStrafe);
+        if (usage > 1) {
+            wantForward /= usage;
+            wantStrafe /= usage;
+        }
+
+        // Ease off near the target: from acceleration a, jerk J needs a^2 / 2J of speed to stop accelerating
+        double wantMagnitude = Math.hypot(wantForward, wantStrafe);
+        double easeLimit = Math.sqrt(2 * MAX_JERK * Math.hypot(errorForward, errorStrafe));
+        if (wantMagnitude > easeLimit) {
+            wantForward *= easeLimit / wantMagnitude;
+            wantStrafe *= easeLimit / wantMagnitude;
+        }
+
+        // Jerk
+        double changeForward = wantForward - baseForwardAcceleration;
+        double changeStrafe = wantStrafe - baseStrafeAcceleration;
+        double change = Math.hypot(changeForward, changeStrafe);
+        double maxChange = MAX_JERK * dt;
+        if (change > maxChange) {
+            changeForward *= maxChange / change;
+            changeStrafe *= maxChange / change;
+        }
+        forwardAcceleration = baseForwardAcceleration + changeForward;
+        strafeAcceleration = baseStrafeAcceleration + changeStrafe;
+
+        forward = baseForward + forwardAcceleration * dt;
+        strafe = baseStrafe + strafeAcceleration * dt;
+
+        // Do not step past the target on an axis
+        if ((targetForward - forward) * errorForward < 0) {
+            forward = targetForward;
+            forwardAcceleration = 0;
+        }
+        if ((targetStrafe - strafe) * errorStrafe < 0) {
+            strafe = targetStrafe;
+            strafeAcceleration = 0;
+        }
+    }
+
+    /** @return Limited forward speed (inches/second) */
+    public double getForward() {
+        return forward;
+    }
+
+    /** @return Limited strafe speed, right positive (inches/second) */
+    public double getStrafe() {
+        return strafe;
+    }
+
+    /** @return Traction-limited forward acceleration (inches/second^2) */
+    public double getForwardLimit() {
+        return forwardLimit;
+    }
+
+    /**
+     * Forgets the motion state, for example after the robot was stopped by something other than
+     * the drive command. The next command ramps up from rest.
+     */
+    public void reset() {
+        reset(0, 0);
+    }
+
+    /**
+     * Replaces the motion state with the robot's measured speed, for example when the path
+     * follower hands back the wheels while the robot is still moving. The next command ramps from
+     * that speed within the traction and jerk limits.
+     *
+     * @param forwardSpeed Measured forward speed (inches/second)
+     * @param strafeSpeed Measured strafe speed, right positive (inches/second)
+     */
+    public void reset(double forwardSpeed, double strafeSpeed) {
+        lastNanos = 0;
+        forward = forwardSpeed;
+        strafe = strafeSpeed;
+        forwardAcceleration = 0;
+        strafeAcceleration = 0;
+    }
+}
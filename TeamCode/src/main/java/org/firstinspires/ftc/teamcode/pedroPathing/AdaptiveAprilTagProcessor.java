@@ -0,0 +1,363 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import android.graphics.Canvas;
+
+import org.firstinspires.ftc.robotcore.external.matrices.VectorF;
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagGameDatabase;
+import org.firstinspires.ftc.vision.apriltag.AprilTagMetadata;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+
+import java.util.ArrayList;
+
+/**
+ * AdaptiveAprilTagProcessor sits in front of an AprilTagProcessor and decides how much work each
+ * camera frame gets, so AprilTag detection does not steal CPU from follower.update().
+ *
+ * Add this processor to the VisionPortal instead of the AprilTagProcessor it wraps; detections are
+ * still read from the wrapped processor. Every frame goes through three stages:
+ *
+ * 1. Frame skipping: the OpMode reports its loop time with reportLoopTime(). While loops run over
+ *    LOOP_BUDGET_MS, more frames are dropped (up to MAX_SKIPPED_FRAMES in a row); as loops recover,
+ *    fewer are.
+ * 2. Region of interest: if no localization tag can be in the camera's field of view (from the
+ *    robot pose given to setRobotState()), the frame is skipped entirely. Otherwise everything
+ *    outside the predicted tag region is blanked. The region is the last detection's bounding box,
+ *    shifted by how far the robot has turned since, or a band around the predicted tag column when
+ *    the last detection is too old. The blanking happens in a reused copy of the frame, so the
+ *    portal's frame reaches the other processors and the preview untouched. The copy is blanked
+ *    rather than cropped so pixel coordinates (and with them the camera intrinsics the pose solver
+ *    uses) stay valid; flat regions cost the detector almost nothing.
+ * 3. Decimation: after each processed frame, decimation follows the range to the nearest tag.
+ *    Close tags are large and survive heavy decimation; far tags need full resolution.
+ */
+public class AdaptiveAprilTagProcessor implements VisionProcessor {
+
+    // ===== DECIMATION BY RANGE (EDITABLE) =====
+    public static double NEAR_RANGE_INCHES = 36;      // Closer than this uses NEAR_DECIMATION
+    public static double MID_RANGE_INCHES = 72;       // Closer than this uses MID_DECIMATION
+    public static float NEAR_DECIMATION = 3;
+    public static float MID_DECIMATION = 2;
+    public static float FAR_DECIMATION = 1;
+    public static float SEARCH_DECIMATION = 2;        // No tag in the last processed frame
+
+    // ===== REGION OF INTEREST (EDITABLE) =====
+    public static double CAMERA_HORIZONTAL_FOV = Math.toRadians(70);  // Used when the camera has no calibration
+    public static double FOV_MARGIN = Math.toRadians(10);             // Extra angle before a tag counts as out of view
+    public static double ROI_MARGIN_PIXELS = 40;                      // Padding around the last detection
+    public static double ROI_BAND_HALF_WIDTH = 120;                   // Half width of the predicted-column band (pixels)
+    public static long ROI_TIMEOUT_MS = 300;                          // Last detection older than this is not reused
+
+    // ===== FRAME SKIPPING (EDITABLE) =====
+    public static double LOOP_BUDGET_MS = 20;          // Control loop time the vision thread must protect
+    public static int MAX_SKIPPED_FRAMES = 3;          // Never skip more than this many frames in a row
+
+    private static final Scalar BLANK = new Scalar(0, 0, 0, 255);
+
+    private final AprilTagProcessor aprilTag;
+    private final double[] tagX;  // Localization tag positions in Pedro coordinates
+    private final double[] tagY;
+
+    // ===== CAMERA MODEL (set in init) =====
+    private int frameWidth, frameHeight;
+    private double focalLengthX, principalPointX;
+    private double halfFov;
+
+    // ===== ROBOT STATE (written by the OpMode thread) =====
+    private boolean hasRobotState = false;
+    private double robotX, robotY, robotHeading, robotOmega;
+    private double smoothedLoopMs = 0;
+
+    // ===== VISION THREAD STATE =====
+    private float currentDecimation = SEARCH_DECIMATION;
+    private int skipEvery = 0;        // Process 1 frame, then skip this many
+    private int skippedInARow = 0;
+    private boolean hasLastBox = false;
+    private double boxLeft, boxTop, boxRight, boxBottom;
+    private long boxNanos;
+    private double boxHeading;
+    private Mat roiFrame;             // Reused detector input; the portal's frame is never written
+
+    // ===== STATISTICS =====
+    private volatile int processedFrames = 0;
+    private volatile int skippedForBudget = 0;
+    private volatile int skippedOutOfView = 0;
+
+    /**
+     * @param aprilTag AprilTag processor to drive (not added to the portal itself)
+     */
+    public AdaptiveAprilTagProcessor(AprilTagProcessor aprilTag) {
+        this.aprilTag = aprilTag;
+
+        ArrayList<AprilTagMetadata> tags = new ArrayList<>();
+        for (AprilTagMetadata tag : AprilTagGameDatabase.getDecodeTagLibrary().getAllTags()) {
+            if (TagRelocalizer.isLocalizationTag(tag.id) && tag.fieldPosition != null) {
+                tags.add(tag);
+            }
+        }
+        tagX = new double[tags.size()];
+        tagY = new double[tags.size()];
+        for (int i = 0; i < tags.size(); i++) {
+            AprilTagMetadata tag = tags.get(i);
+            VectorF position = tag.fieldPosition;
+            double scale = tag.distanceUnit.toInches(1);
+            // FTC field coordinates to Pedro coordinates, as in TagRelocalizer.toFieldPose()
+            tagX[i] = position.get(1) * scale + 72;
+            tagY[i] = -position.get(0) * scale + 72;
+        }
+
+        aprilTag.setDecimation(currentDecimation);
+    }
+
+    // ===== OPMODE-SIDE INPUTS =====
+
+    /**
+     * Gives the processor the latest robot pose, used to predict where tags will appear. Call every
+     * loop after odometry updates.
+     *
+     * @param x Robot X (inches, Pedro coordinates)
+     * @param y Robot Y (inches)
+     * @param heading Robot heading (radians)
+     * @param omega Robot angular velocity (radians per second)
+     */
+    public synchronized void setRobotState(double x, double y, double heading, double omega) {
+        robotX = x;
+        robotY = y;
+        robotHeading = heading;
+        robotOmega = omega;
+        hasRobotState = true;
+    }
+
+    /**
+     * Reports the duration of the last control loop. Call every loop.
+     *
+     * @param loopMs Loop time in milliseconds
+     */
+    public synchronized void reportLoopTime(double loopMs) {
+        smoothedLoopMs = smoothedLoopMs == 0 ? loopMs : smoothedLoopMs * 0.9 + loopMs * 0.1;
+    }
+
+    public AprilTagProcessor getAprilTagProcessor() {
+        return aprilTag;
+    }
+
+    public int getProcessedFrames() {
+        return processedFrames;
+    }
+
+    public int getSkippedForBudget() {
+        return skippedForBudget;
+    }
+
+    public int getSkippedOutOfView() {
+        return skippedOutOfView;
+    }
+
+    public float getCurrentDecimation() {
+        return currentDecimation;
+    }
+
+    // ===== VISION PROCESSOR =====
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+        frameWidth = width;
+        frameHeight = height;
+        if (calibration != null && !calibration.isFake() && calibration.focalLengthX > 0) {
+            focalLengthX = calibration.focalLengthX;
+            principalPointX = calibration.principalPointX;
+            halfFov = Math.atan2(width / 2.0, focalLengthX);
+        } else {
+            halfFov = CAMERA_HORIZONTAL_FOV / 2;
+            focalLengthX = (width / 2.0) / Math.tan(halfFov);
+            principalPointX = width / 2.0;
+        }
+        aprilTag.init(width, height, calibration);
+    }
+
+    @Override
+    public Object processFrame(Mat frame, long captureTimeNanos) {
+        // Take one consistent snapshot of the OpMode-side inputs
+        boolean poseKnown;
+        double x, y, heading, omega, loopMs;
+        synchronized (this) {
+            poseKnown = hasRobotState;
+            x = robotX;
+            y = robotY;
+            heading = robotHeading;
+            omega = robotOmega;
+            loopMs = smoothedLoopMs;
+        }
+
+        // --- Stage 1: protect the control loop ---
+        if (loopMs > LOOP_BUDGET_MS) {
+            skipEvery = Math.min(MAX_SKIPPED_FRAMES, skipEvery + 1);
+        } else if (skipEvery > 0) {
+            skipEvery--;
+        }
+        if (skippedInARow < skipEvery) {
+            skippedInARow++;
+            skippedForBudget++;
+            return null;
+        }
+        skippedInARow = 0;
+
+        // --- Stage 2: region of interest ---
+        double cameraHeading = heading + Math.toRadians(TagRelocalizer.CAMERA_YAW);
+        double predictedColumn = Double.NaN;
+        if (poseKnown) {
+            predictedColumn = predictTagColumn(x, y, cameraHeading);
+            if (Double.isNaN(predictedColumn)) {
+                skippedOutOfView++;
+                return null;
+            }
+        }
+
+        boolean recentBox = hasLastBox && (captureTimeNanos - boxNanos) < ROI_TIMEOUT_MS * 1_000_000L;
+        Mat detectFrame = frame;
+        if (recentBox) {
+            // Tags move across the image opposite to the robot's turn
+            double turnedSince = poseKnown ? wrapAngle(heading - boxHeading) : 0;
+            double shift = -Math.tan(turnedSince) * focalLengthX;
+            double motionPad = poseKnown ? Math.abs(omega) * 0.05 * focalLengthX : 0;  // About one frame of turning
+            detectFrame = copyRegion(frame,
+                    boxLeft + shift - ROI_MARGIN_PIXELS - motionPad,
+                    boxTop - ROI_MARGIN_PIXELS,
+                    boxRight + shift + ROI_MARGIN_PIXELS + motionPad,
+                    boxBottom + ROI_MARGIN_PIXELS);
+        } else if (!Double.isNaN(predictedColumn)) {
+            detectFrame = copyRegion(frame, predictedColumn - ROI_BAND_HALF_WIDTH, 0,
+                    predictedColumn + ROI_BAND_HALF_WIDTH, frameHeight);
+        }
+
+        // --- Detect ---
+        Object result = aprilTag.processFrame(detectFrame, captureTimeNanos);
+        processedFrames++;
+
+        // --- Stage 3: adapt decimation and remember where the tags were ---
+        ArrayList<AprilTagDetection> detections = aprilTag.getDetections();
+        double nearestRange = Double.POSITIVE_INFINITY;
+        boolean found = false;
+        double left = Double.POSITIVE_INFINITY, top = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY, bottom = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < detections.size(); i++) {
+            AprilTagDetection detection = detections.get(i);
+            if (detection.ftcPose != null) {
+                nearestRange = Math.min(nearestRange, detection.ftcPose.range);
+            }
+            for (Point corner : detection.corners) {
+                left = Math.min(left, corner.x);
+                right = Math.max(right, corner.x);
+                top = Math.min(top, corner.y);
+                bottom = Math.max(bottom, corner.y);
+            }
+            found = true;
+        }
+
+        if (found) {
+            hasLastBox = true;
+            boxLeft = left;
+            boxTop = top;
+            boxRight = right;
+            boxBottom = bottom;
+            boxNanos = captureTimeNanos;
+            boxHeading = heading;
+        }
+        setDecimation(found ? decimationForRange(nearestRange) : SEARCH_DECIMATION);
+
+        return result;
+    }
+
+    @Override
+    public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight,
+                            float scaleBmpPxToCanvasPx, float scaleCanvasDensity, Object userContext) {
+        if (userContext != null) {
+            aprilTag.onDrawFrame(canvas, onscreenWidth, onscreenHeight, scaleBmpPxToCanvasPx, scaleCanvasDensity, userContext);
+        }
+    }
+
+    // ===== HELPERS =====
+
+    /**
+     * Predicts the image column of the nearest localization tag inside the camera's view.
+     *
+     * @return Pixel column, or NaN if no tag is within the field of view plus FOV_MARGIN
+     */
+    private double predictTagColumn(double x, double y, double cameraHeading) {
+        double bestColumn = Double.NaN;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < tagX.length; i++) {
+            double dx = tagX[i] - x;
+            double dy = tagY[i] - y;
+            double bearing = wrapAngle(Math.atan2(dy, dx) - cameraHeading);
+            if (Math.abs(bearing) > halfFov + FOV_MARGIN) {
+                continue;
+            }
+            double distance = Math.hypot(dx, dy);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                // Positive bearing is to the left, which is a smaller pixel column
+                double clamped = Math.max(-halfFov, Math.min(halfFov, bearing));
+                bestColumn = principalPointX - Math.tan(clamped) * focalLengthX;
+            }
+        }
+        return bestColumn;
+    }
+
+    private float decimationForRange(double range) {
+        if (range < NEAR_RANGE_INCHES) return NEAR_DECIMATION;
+        if (range < MID_RANGE_INCHES) return MID_DECIMATION;
+        return FAR_DECIMATION;
+    }
+
+    private void setDecimation(float decimation) {
+        if (decimation != currentDecimation) {
+            currentDecimation = decimation;
+            aprilTag.setDecimation(decimation);
+        }
+    }
+
+    /**
+     * Copies the given rectangle of the frame into roiFrame, with everything outside it a flat
+     * color. The frame itself is only read.
+     *
+     * @return roiFrame, or the frame unchanged if the rectangle fell off the image
+     */
+    private Mat copyRegion(Mat frame, double left, double top, double right, double bottom) {
+        int l = clamp((int) left, 0, frameWidth);
+        int r = clamp((int) Math.ceil(right), 0, frameWidth);
+        int t = clamp((int) top, 0, frameHeight);
+        int b = clamp((int) Math.ceil(bottom), 0, frameHeight);
+        if (r <= l || b <= t) {
+            return frame;  // Region fell off the image; detect on the whole frame
+        }
+
+        if (roiFrame == null) {
+            roiFrame = new Mat();
+        }
+        roiFrame.create(frame.rows(), frame.cols(), frame.type());  // Only allocates on the first frame
+        roiFrame.setTo(BLANK);
+
+        Mat source = frame.submat(t, b, l, r);
+        Mat destination = roiFrame.submat(t, b, l, r);
+        source.copyTo(destination);
+        source.release();
+        destination.release();
+        return roiFrame;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double wrapAngle(double angle) {
+        while (angle > Math.PI) angle -= 2 * Math.PI;
+        while (angle <= -Math.PI) angle += 2 * Math.PI;
+        return angle;
+    }
+}
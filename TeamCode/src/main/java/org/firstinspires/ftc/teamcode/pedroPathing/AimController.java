@@ -0,0 +1,87 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * AimController turns the robot to face the alliance goal while it sits in a shooting zone.
+ *
+ * Auto-aim only takes over when the driver is not using the sticks; any stick input passes
+ * straight through so the driver is never fighting the controller. The heading loop is a plain
+ * proportional controller on the wrapped heading error.
+ *
+ * The controller has no hardware dependencies, so the same code runs on the robot and in
+ * ReplayEngine against recorded matches.
+ */
+public class AimController {
+
+    // ===== GAINS (EDITABLE) =====
+    public static final double DEFAULT_HEADING_KP = 0.5;  // Rotation power per radian of heading error
+    public static final double STICK_DEADBAND = 0.1;      // Stick values below this count as idle
+
+    public double targetX;   // Goal X (inches)
+    public double targetY;   // Goal Y (inches)
+    public double headingKp = DEFAULT_HEADING_KP;
+
+    private double lastHeadingError = 0;
+
+    /**
+     * @param targetX Alliance goal X coordinate (inches)
+     * @param targetY Alliance goal Y coordinate (inches)
+     */
+    public AimController(double targetX, double targetY) {
+        this.targetX = targetX;
+        this.targetY = targetY;
+    }
+
+    /**
+     * @return True if all three drive axes are inside the deadband
+     */
+    public static boolean areSticksIdle(double y, double x, double rx) {
+        return Math.abs(y) < STICK_DEADBAND && Math.abs(x) < STICK_DEADBAND && Math.abs(rx) < STICK_DEADBAND;
+    }
+
+    /**
+     * Chooses the rotation command for this loop: the auto-aim output when the robot is in a
+     * shooting zone and the sticks are idle, otherwise the driver's own rotation input.
+     *
+     * @param driverRotation Driver rotation stick value
+     * @param inShootingZone True if the robot is in the front or back shoot area
+     * @param sticksIdle True if the driver is not using the sticks
+     * @param robotX Robot X coordinate (inches)
+     * @param robotY Robot Y coordinate (inches)
+     * @param robotHeading Robot heading (radians)
+     * @return Rotation power for the drive (-1.0 to 1.0)
+     */
+    public double calculateRotation(double driverRotation, boolean inShootingZone, boolean sticksIdle,
+                                    double robotX, double robotY, double robotHeading) {
+        if (!inShootingZone || !sticksIdle) {
+            return driverRotation;
+        }
+        return calculateAimRotation(robotX, robotY, robotHeading);
+    }
+
+    /**
+     * Proportional rotation command that turns the robot toward the goal.
+     *
+     * @param robotX Robot X coordinate (inches)
+     * @param robotY Robot Y coordinate (inches)
+     * @param robotHeading Robot heading (radians)
+     * @return Rotation power clamped to -1.0 to 1.0
+     */
+    public double calculateAimRotation(double robotX, double robotY, double robotHeading) {
+        double desiredHeading = Math.atan2(targetY - robotY, targetX - robotX);
+
+        // Normalize heading error to (-PI, PI]
+        double headingError = desiredHeading - robotHeading;
+        while (headingError > Math.PI) headingError -= 2 * Math.PI;
+        while (headingError <= -Math.PI) headingError += 2 * Math.PI;
+        lastHeadingError = headingError;
+
+        return Math.max(-1.0, Math.min(1.0, headingError * headingKp));
+    }
+
+    /**
+     * @return Heading error from the most recent aim calculation (radians)
+     */
+    public double getLastHeadingError() {
+        return lastHeadingError;
+    }
+}
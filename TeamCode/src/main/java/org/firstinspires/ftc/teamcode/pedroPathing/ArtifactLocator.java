@@ -0,0 +1,360 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * ArtifactLocator is a VisionProcessor that finds purple and green artifacts on the floor and
+ * reports them in field coordinates, nearest first.
+ *
+ * Pipeline, per frame:
+ * 1. Downscale by DOWNSCALE (area averaging), then convert to HSV
+ * 2. Threshold the purple and green ranges and remove speckle with a morphological open
+ * 3. Label connected components and keep blobs of at least MIN_BLOB_AREA pixels
+ * 4. Project the bottom-center of each blob (where the ball touches the floor) onto the ground
+ *    plane through the camera mounting in TagRelocalizer, then into field coordinates using the
+ *    robot pose given to setRobotState()
+ *
+ * Every Mat and array is allocated once in init() and reused, so the vision thread does not
+ * create garbage and the frame rate stays steady. Ground projection needs TagRelocalizer.CAMERA_Z
+ * (lens height) and CAMERA_PITCH measured on the robot; blobs at or above the horizon are ignored.
+ */
+public class ArtifactLocator implements VisionProcessor {
+
+    /** Artifact colors. */
+    public static final int PURPLE = 0;
+    public static final int GREEN = 1;
+
+    // ===== PIPELINE (EDITABLE) =====
+    public static int DOWNSCALE = 4;               // Process at 1/4 width and height
+    public static int MIN_BLOB_AREA = 12;          // Smallest blob kept (downscaled pixels)
+    public static double MAX_RANGE_INCHES = 96;    // Farther ground points are ignored
+
+    // ===== HSV THRESHOLDS (EDITABLE, OpenCV ranges: H 0-180, S and V 0-255) =====
+    public static Scalar PURPLE_LOW = new Scalar(125, 60, 40);
+    public static Scalar PURPLE_HIGH = new Scalar(165, 255, 255);
+    public static Scalar GREEN_LOW = new Scalar(40, 80, 40);
+    public static Scalar GREEN_HIGH = new Scalar(85, 255, 255);
+
+    public static final int MAX_ARTIFACTS = 12;    // Reported per frame, nearest first
+    private static final int MAX_COMPONENTS = 256; // Blobs examined per color per frame
+
+    // ===== POOLED MATS (allocated in init) =====
+    private final Mat small = new Mat();
+    private final Mat hsv = new Mat();
+    private final Mat mask = new Mat();
+    private final Mat labels = new Mat();
+    private final Mat stats = new Mat();
+    private final Mat centroids = new Mat();
+    private Mat kernel;
+    private Size smallSize;
+    private final int[] statsBuffer = new int[MAX_COMPONENTS * Imgproc.CC_STAT_MAX];
+    private double groundForward, groundLeft;  // Output of projectToGround(), robot frame (inches)
+
+    // ===== CAMERA MODEL (set in init) =====
+    private double focalLengthX, focalLengthY, principalPointX, principalPointY;
+
+    // ===== ROBOT POSE (written by the OpMode thread) =====
+    private boolean hasRobotPose = false;
+    private double robotX, robotY, robotHeading;
+
+    // ===== RESULTS (double buffered: the vision thread fills working, then swaps) =====
+    private Detections working = new Detections();
+    private Detections published = new Detections();
+    private final Paint boxPaint = new Paint();
+
+    /**
+     * One frame's artifacts in parallel primitive arrays.
+     */
+    private static class Detections {
+        int count;
+        final double[] fieldX = new double[MAX_ARTIFACTS];
+        final double[] fieldY = new double[MAX_ARTIFACTS];
+        final double[] forward = new double[MAX_ARTIFACTS];  // Robot frame (inches)
+        final double[] left = new double[MAX_ARTIFACTS];
+        final double[] range = new double[MAX_ARTIFACTS];
+        final int[] color = new int[MAX_ARTIFACTS];
+        final int[] boxLeft = new int[MAX_ARTIFACTS];        // Full-resolution pixels
+        final int[] boxTop = new int[MAX_ARTIFACTS];
+        final int[] boxRight = new int[MAX_ARTIFACTS];
+        final int[] boxBottom = new int[MAX_ARTIFACTS];
+        long captureNanos;
+    }
+
+    public ArtifactLocator() {
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(4);
+    }
+
+    // ===== OPMODE-SIDE API =====
+
+    /**
+     * Gives the locator the robot pose used to convert detections into field coordinates. Call
+     * every loop after odometry updates.
+     *
+     * @param x Robot X (inches)
+     * @param y Robot Y (inches)
+     * @param heading Robot heading (radians)
+     */
+    public synchronized void setRobotState(double x, double y, double heading) {
+        robotX = x;
+        robotY = y;
+        robotHeading = heading;
+        hasRobotPose = true;
+    }
+
+    /**
+     * @return Number of artifacts in the latest processed frame
+     */
+    public synchronized int getArtifactCount() {
+        return published.count;
+    }
+
+    /** @return Field X of artifact i (inches); artifacts are sorted nearest first */
+    public synchronized double getFieldX(int i) {
+        return published.fieldX[i];
+    }
+
+    /** @return Field Y of artifact i (inches) */
+    public synchronized double getFieldY(int i) {
+        return published.fieldY[i];
+    }
+
+    /** @return Distance of artifact i ahead of the robot center (inches) */
+    public synchronized double getForward(int i) {
+        return published.forward[i];
+    }
+
+    /** @return Distance of artifact i to the left of the robot center (inches) */
+    public synchronized double getLeft(int i) {
+        return published.left[i];
+    }
+
+    /** @return Ground distance from the robot center to artifact i (inches) */
+    public synchronized double getRange(int i) {
+        return published.range[i];
+    }
+
+    /** @return PURPLE or GREEN */
+    public synchronized int getColor(int i) {
+        return published.color[i];
+    }
+
+    /**
+     * @return Age of the latest result (seconds), or infinity if no frame has been processed
+     */
+    public synchronized double getAgeSeconds() {
+        return published.captureNanos == 0 ? Double.POSITIVE_INFINITY
+                : (System.nanoTime() - published.captureNanos) / 1e9;
+    }
+
+    /**
+     * Finds the artifact nearest to a field point.
+     *
+     * @param x Field X (inches)
+     * @param y Field Y (inches)
+     * @param maxDistance Artifacts farther than this from (x, y) are ignored (inches)
+     * @return Index for the getters, or -1 if none qualifies
+     */
+    public synchronized int findNearest(double x, double y, double maxDistance) {
+        int best = -1;
+        double bestDistance = maxDistance;
+        for (int i = 0; i < published.count; i++) {
+            double distance = Math.hypot(published.fieldX[i] - x, published.fieldY[i] - y);
+            if (distance <= bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // ===== VISION PROCESSOR =====
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+        if (calibration != null && !calibration.isFake() && calibration.focalLengthX > 0) {
+            focalLengthX = calibration.focalLengthX;
+            focalLengthY = calibration.focalLengthY;
+            principalPointX = calibration.principalPointX;
+            principalPointY = calibration.principalPointY;
+        } else {
+            focalLengthX = (width / 2.0) / Math.tan(AdaptiveAprilTagProcessor.CAMERA_HORIZONTAL_FOV / 2);
+            focalLengthY = focalLengthX;
+            principalPointX = width / 2.0;
+            principalPointY = height / 2.0;
+        }
+
+        int smallWidth = Math.max(1, width / DOWNSCALE);
+        int smallHeight = Math.max(1, height / DOWNSCALE);
+        smallSize = new Size(smallWidth, smallHeight);
+        small.create(smallHeight, smallWidth, CvType.CV_8UC3);
+        hsv.create(smallHeight, smallWidth, CvType.CV_8UC3);
+        mask.create(smallHeight, smallWidth, CvType.CV_8UC1);
+        kernel = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(3, 3));
+    }
+
+    @Override
+    public Object processFrame(Mat frame, long captureTimeNanos) {
+        boolean poseKnown;
+        double x, y, heading;
+        synchronized (this) {
+            poseKnown = hasRobotPose;
+            x = robotX;
+            y = robotY;
+            heading = robotHeading;
+        }
+
+        Imgproc.resize(frame, small, smallSize, 0, 0, Imgproc.INTER_AREA);
+        Imgproc.cvtColor(small, hsv, Imgproc.COLOR_RGB2HSV);
+
+        working.count = 0;
+        findBlobs(PURPLE_LOW, PURPLE_HIGH, PURPLE);
+        findBlobs(GREEN_LOW, GREEN_HIGH, GREEN);
+
+        // Field coordinates from the robot pose; without one they repeat the robot frame
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        for (int i = 0; i < working.count; i++) {
+            if (poseKnown) {
+                working.fieldX[i] = x + cos * working.forward[i] - sin * working.left[i];
+                working.fieldY[i] = y + sin * working.forward[i] + cos * working.left[i];
+            } else {
+                working.fieldX[i] = working.forward[i];
+                working.fieldY[i] = working.left[i];
+            }
+        }
+        working.captureNanos = captureTimeNanos;
+
+        synchronized (this) {
+            Detections swap = published;
+            published = working;
+            working = swap;
+        }
+        return null;
+    }
+
+    @Override
+    public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight,
+                            float scaleBmpPxToCanvasPx, float scaleCanvasDensity, Object userContext) {
+        synchronized (this) {
+            for (int i = 0; i < published.count; i++) {
+                boxPaint.setColor(published.color[i] == PURPLE ? Color.MAGENTA : Color.GREEN);
+                canvas.drawRect(published.boxLeft[i] * scaleBmpPxToCanvasPx,
+                        published.boxTop[i] * scaleBmpPxToCanvasPx,
+                        published.boxRight[i] * scaleBmpPxToCanvasPx,
+                        published.boxBottom[i] * scaleBmpPxToCanvasPx, boxPaint);
+            }
+        }
+    }
+
+    // ===== HELPERS =====
+
+    /**
+     * Thresholds one color and adds its blobs to the working set, keeping it sorted by range.
+     */
+    private void findBlobs(Scalar low, Scalar high, int color) {
+        Core.inRange(hsv, low, high, mask);
+        Imgproc.morphologyEx(mask, mask, Imgproc.MORPH_OPEN, kernel);
+
+        int components = Imgproc.connectedComponentsWithStats(mask, labels, stats, centroids, 8, CvType.CV_32S);
+        components = Math.min(components, MAX_COMPONENTS);
+        if (components <= 1) {
+            return;  // Label 0 is the background
+        }
+        stats.get(0, 0, statsBuffer);
+
+        for (int label = 1; label < components; label++) {
+            int base = label * Imgproc.CC_STAT_MAX;
+            if (statsBuffer[base + Imgproc.CC_STAT_AREA] < MIN_BLOB_AREA) {
+                continue;
+            }
+            int left = statsBuffer[base + Imgproc.CC_STAT_LEFT] * DOWNSCALE;
+            int top = statsBuffer[base + Imgproc.CC_STAT_TOP] * DOWNSCALE;
+            int right = left + statsBuffer[base + Imgproc.CC_STAT_WIDTH] * DOWNSCALE;
+            int bottom = top + statsBuffer[base + Imgproc.CC_STAT_HEIGHT] * DOWNSCALE;
+
+            if (!projectToGround((left + right) / 2.0, bottom)) {
+                continue;
+            }
+            double range = Math.hypot(groundForward, groundLeft);
+            if (range > MAX_RANGE_INCHES) {
+                continue;
+            }
+            insertSorted(range, color, left, top, right, bottom);
+        }
+    }
+
+    /**
+     * Intersects the ray through a pixel with the floor.
+     *
+     * @return false if the ray does not reach the floor in front of the camera
+     */
+    private boolean projectToGround(double u, double v) {
+        double height = TagRelocalizer.CAMERA_Z;
+        // SDK convention: pitch -90 looks straight ahead, more negative tilts down
+        double tilt = Math.toRadians(-(TagRelocalizer.CAMERA_PITCH + 90));
+        double normalizedX = (u - principalPointX) / focalLengthX;  // Right
+        double normalizedY = (v - principalPointY) / focalLengthY;  // Down
+
+        double down = Math.sin(tilt) + normalizedY * Math.cos(tilt);
+        if (height <= 0 || down <= 1e-6) {
+            return false;
+        }
+        double scale = height / down;
+        double forward = scale * (Math.cos(tilt) - normalizedY * Math.sin(tilt));
+        double left = -scale * normalizedX;
+
+        // Camera yaw and mounting offset (SDK: X right, Y forward)
+        double yaw = Math.toRadians(TagRelocalizer.CAMERA_YAW);
+        groundForward = Math.cos(yaw) * forward - Math.sin(yaw) * left + TagRelocalizer.CAMERA_Y;
+        groundLeft = Math.sin(yaw) * forward + Math.cos(yaw) * left - TagRelocalizer.CAMERA_X;
+        return true;
+    }
+
+    /**
+     * Inserts the last projected blob into the working set by range, dropping the farthest when full.
+     */
+    private void insertSorted(double range, int color, int left, int top, int right, int bottom) {
+        Detections d = working;
+        int index = d.count;
+        while (index > 0 && d.range[index - 1] > range) {
+            index--;
+        }
+        if (index >= MAX_ARTIFACTS) {
+            return;
+        }
+
+        int last = Math.min(d.count, MAX_ARTIFACTS - 1);
+        for (int i = last; i > index; i--) {
+            d.forward[i] = d.forward[i - 1];
+            d.left[i] = d.left[i - 1];
+            d.range[i] = d.range[i - 1];
+            d.color[i] = d.color[i - 1];
+            d.boxLeft[i] = d.boxLeft[i - 1];
+            d.boxTop[i] = d.boxTop[i - 1];
+            d.boxRight[i] = d.boxRight[i - 1];
+            d.boxBottom[i] = d.boxBottom[i - 1];
+        }
+
+        d.forward[index] = groundForward;
+        d.left[index] = groundLeft;
+        d.range[index] = range;
+        d.color[index] = color;
+        d.boxLeft[index] = left;
+        d.boxTop[index] = top;
+        d.boxRight[index] = right;
+        d.boxBottom[index] = bottom;
+        d.count = Math.min(d.count + 1, MAX_ARTIFACTS);
+    }
+}
@@ -1,5 +1,6 @@
 package org.firstinspires.ftc.teamcode.pedroPathing;
 
+import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.hardware.sparkfun.SparkFunOTOS;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
@@ -8,9 +9,17 @@ import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.Servo;
 import com.qualcomm.robotcore.util.ElapsedTime;
+import com.qualcomm.robotcore.util.RobotLog;
 
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.io.File;
+import java.io.IOException;
 
 /**
  * OTOS-based Autonomous OpMode for DECODE (2025-2026)
@@ -26,8 +35,14 @@ public class Blue_Otos_Auto extends LinearOpMode {
     private SparkFunOTOS otos;
     private DcMotorEx frontLeftMotor, frontRightMotor, backLeftMotor, backRightMotor;
     private DcMotorEx flywheel;
+    private VoltageCompensator voltageCompensator;
     private DcMotor intake;
     private Servo gate;
+    private VisionManager visionManager;    // Only created when a webcam is configured
+    private AprilTagProcessor aprilTag;
+    private TagRelocalizer tagRelocalizer;
+    private AdaptiveAprilTagProcessor adaptiveTags;  // Decides how much of each camera frame to process
+    private ArtifactLocator artifactLocator;
 
     // ===================== POSITION VARIABLES (EDITABLE) =====================
     // Position 1: Starting position for shooting
@@ -57,7 +72,7 @@ public class Blue_Otos_Auto extends LinearOpMode {
     private double POS6_Y = 0.0;
 
     // ===================== MOTOR/MECHANISM VARIABLES =====================
-    private double FLYWHEEL_SPEED = 0.85; // Adjustable flywheel speed (0.0 - 1.0)
+    private double FLYWHEEL_SPEED = 0.85; // Adjustable flywheel speed (0.0 - 1.0) at VoltageCompensator.NOMINAL_VOLTAGE
     private double DRIVE_SPEED = 1.0; // Full drive speed
     private double SLOW_DRIVE_SPEED = 0.5; // 50% drive speed
     private int INTAKE_DURATION_MS = 5000; // 5 seconds for shooting 3 artifacts
@@ -69,6 +84,10 @@ public class Blue_Otos_Auto extends LinearOpMode {
 
     // ===================== OTOS CONSTANTS =====================
     private double OTOS_TOLERANCE = 2.0; // inches
+
+    // ===================== PICKUP RETARGETING (EDITABLE) =====================
+    private static final double PICKUP_RETARGET_INCHES = 8.0;  // Max sideways shift toward a seen artifact
+    private static final double ARTIFACT_MAX_AGE_S = 0.5;      // Older camera results are ignored
     private static final String OTOS_NAME = "otos";
 
     // Simple proportional gain for heading correction when a target heading is provided
@@ -76,30 +95,67 @@ public class Blue_Otos_Auto extends LinearOpMode {
 
     // ===================== STATE VARIABLES =====================
     private boolean flywheelAtSpeed = false;
+    private int motifTagId = 0;  // Obelisk tag seen during init (21-23), 0 if none
     private ElapsedTime intakeTimer = new ElapsedTime();
     private ElapsedTime flywheelTimer = new ElapsedTime();
 
+    // ===================== LOOP PERFORMANCE =====================
+    private final LoopProfiler loopProfiler = new LoopProfiler("OTOS Auto");
+
+    // ===================== FLIGHT RECORDER =====================
+    private FlightRecorder flightRecorder;
+    private int autoSegment = 0;         // Incremented for every move and shoot step
+    private double intakePower = 0;      // Last commanded intake power
+    private double flywheelPower = 0;    // Last commanded flywheel power
+    private long lastRecordNanos = 0;
+
+    // Reused for every OTOS read so the drive loop does not allocate
+    private final SparkFunOTOS.Pose2D otosPosition = new SparkFunOTOS.Pose2D();
+    private final SparkFunOTOS.Pose2D otosVelocity = new SparkFunOTOS.Pose2D();
+    private final SparkFunOTOS.Pose2D otosAcceleration = new SparkFunOTOS.Pose2D();
+    private final PosePredictor posePredictor = new PosePredictor();
+
     @Override
     public void runOpMode() {
         initializeHardware();
         initializeOTOS();
-
-        telemetry.addData("Status", "Ready to Start");
-        telemetry.update();
-
-        waitForStart();
+        initializeVision();
+        initializeFlightRecorder();
+
+        // Read the obelisk motif while waiting for start
+        while (opModeInInit()) {
+            if (visionManager != null) {
+                visionManager.update(false, false, true);
+                readMotif();
+            }
+            telemetry.addData("Status", "Ready to Start");
+            telemetry.addData("Motif Tag", motifTagId == 0 ? "not seen" : String.valueOf(motifTagId));
+            telemetry.update();
+            idle();
+        }
 
         if (opModeIsActive()) {
             executeAutonomous();
         }
 
         stopAllMotors();
+        if (flightRecorder != null) {
+            flightRecorder.close();
+        }
+        if (visionManager != null) {
+            visionManager.close();
+        }
     }
 
     /**
      * Initialize all hardware devices
      */
     private void initializeHardware() {
+        // Read all hub motor data in one bulk transaction per loop
+        for (LynxModule hub : hardwareMap.getAll(LynxModule.class)) {
+            hub.setBulkCachingMode(LynxModule.BulkCachingMode.AUTO);
+        }
+
         // Drive motors
         frontLeftMotor = hardwareMap.get(DcMotorEx.class, "leftFront");
         frontRightMotor = hardwareMap.get(DcMotorEx.class, "rightFront");
@@ -119,6 +175,7 @@ public class Blue_Otos_Auto extends LinearOpMode {
         flywheel = hardwareMap.get(DcMotorEx.class, "output");
         intake = hardwareMap.get(DcMotor.class, "intake");
         gate = hardwareMap.get(Servo.class, "gate");
+        voltageCompensator = new VoltageCompensator(hardwareMap);
 
         // Initialize servo to closed position
         gate.setPosition(GATE_CLOSED);
@@ -151,6 +208,42 @@ public class Blue_Otos_Auto extends LinearOpMode {
         telemetry.update();
     }
 
+    /**
+     * Start AprilTag relocalization if a webcam is configured. Without one the auto runs on OTOS alone.
+     */
+    private void initializeVision() {
+        WebcamName webcam = hardwareMap.tryGet(WebcamName.class, TagRelocalizer.WEBCAM_NAME);
+        if (webcam == null) {
+            telemetry.addData("AprilTags", "No webcam, OTOS only");
+            telemetry.update();
+            return;
+        }
+
+        aprilTag = TagRelocalizer.createAprilTagProcessor();
+        adaptiveTags = new AdaptiveAprilTagProcessor(aprilTag);
+        artifactLocator = new ArtifactLocator();
+        visionManager = new VisionManager(webcam, adaptiveTags, artifactLocator);
+        tagRelocalizer = new TagRelocalizer(aprilTag);
+        telemetry.addData("AprilTags", "Relocalization enabled");
+        telemetry.update();
+    }
+
+    /**
+     * Open a new flight log for post-match analysis
+     */
+    private void initializeFlightRecorder() {
+        try {
+            flightRecorder = new FlightRecorder(
+                    FlightRecorder.newLogFile(AppUtil.ROBOT_DATA_DIR, "OtosAuto"),
+                    FlightRecorder.DEFAULT_CAPACITY);
+            for (File oldLog : FlightRecorder.deleteOldLogs(AppUtil.ROBOT_DATA_DIR, "OtosAuto", FlightRecorder.DEFAULT_KEEP)) {
+                RobotLog.ww("Blue_Otos_Auto", "Could not delete old flight log " + oldLog);
+            }
+        } catch (IOException e) {
+            RobotLog.ee("Blue_Otos_Auto", e, "Flight recorder unavailable");
+        }
+    }
+
     /**
      * Main autonomous routine
      */
@@ -203,16 +296,37 @@ public class Blue_Otos_Auto extends LinearOpMode {
      * If targetHeading is NaN, heading control is ignored.
      */
     private void moveToPosition(double targetX, double targetY, double driveSpeed, boolean startIntake, double targetHeading) {
+        autoSegment++;
+        // Relocalize on the way to the shoot position; elsewhere the camera only streams for the intake
+        boolean toShootPosition = targetX == POS1_X && targetY == POS1_Y;
+        double plannedY = targetY;  // Pickup retargeting stays within reach of the planned sweep
         if (startIntake) {
-            intake.setPower(INTAKE_SPEED);
+            intakePower = INTAKE_SPEED;
+            intake.setPower(intakePower);
         }
 
         boolean reachedTarget = false;
 
         while (opModeIsActive() && !reachedTarget) {
-            SparkFunOTOS.Pose2D currentPos = otos.getPosition();
-            double currentX = currentPos.x;
-            double currentY = currentPos.y;
+            loopProfiler.mark();
+
+            // Position and velocity come back from one burst read
+            otos.getPosVelAcc(otosPosition, otosVelocity, otosAcceleration);
+            if (visionManager != null) {
+                visionManager.update(startIntake, toShootPosition, false);
+            }
+            relocalizeFromTags();
+
+            // Steer and stop on the pose the robot will have when these commands land
+            posePredictor.update(System.nanoTime(), otosPosition.x, otosPosition.y, Math.toRadians(otosPosition.h),
+                    otosVelocity.x, otosVelocity.y, Math.toRadians(otosVelocity.h));
+            double currentX = posePredictor.getX();
+            double currentY = posePredictor.getY();
+
+            // Pickup sweeps follow the row of artifacts the camera actually sees
+            if (startIntake) {
+                targetY = retargetPickupY(currentX, targetX, plannedY);
+            }
 
             // Translational error
             double errorX = targetX - currentX;
@@ -232,7 +346,7 @@ public class Blue_Otos_Auto extends LinearOpMode {
             // Heading correction (if requested)
             double rotate = 0.0;
             if (!Double.isNaN(targetHeading)) {
-                double currentHeading = currentPos.h;
+                double currentHeading = Math.toDegrees(posePredictor.getHeading());
                 double headingError = normalizeAngle(targetHeading - currentHeading);
                 rotate = headingError * HEADING_KP;
                 rotate = Math.max(Math.min(rotate, 1.0), -1.0);
@@ -240,14 +354,84 @@ public class Blue_Otos_Auto extends LinearOpMode {
 
             // Drive toward target with optional heading correction
             driveRobot(directionY * driveSpeed, directionX * driveSpeed, rotate);
+            recordFlightData(rotate, FlightRecorder.FLAG_PATH_ACTIVE);
 
             // Telemetry + cooperative multitasking
-            updateTelemetry(currentX, currentY, targetX, targetY);
+            updateTelemetry(otosPosition.x, otosPosition.y, targetX, targetY);
             idle();
         }
 
+        loopProfiler.pause();
         stopDriveMotors();
-        if (startIntake) intake.setPower(0);
+        if (startIntake) {
+            intakePower = 0;
+            intake.setPower(intakePower);
+        }
+    }
+
+    /**
+     * Correct OTOS drift with any AprilTags seen since the last loop. The tag pose is matched
+     * against the OTOS pose from when the frame was captured, so this works while driving.
+     * OTOS positions here are already in field inches; headings are converted to radians and back.
+     */
+    private void relocalizeFromTags() {
+        if (tagRelocalizer == null) {
+            return;
+        }
+
+        tagRelocalizer.recordOdometry(System.nanoTime(), otosPosition.x, otosPosition.y, Math.toRadians(otosPosition.h));
+        if (tagRelocalizer.update()) {
+            otosPosition.x = tagRelocalizer.getCorrectedX();
+            otosPosition.y = tagRelocalizer.getCorrectedY();
+            otosPosition.h = Math.toDegrees(tagRelocalizer.getCorrectedHeading());
+            otos.setPosition(otosPosition);
+        }
+
+        // Tell the vision thread where to look and how busy this loop is
+        adaptiveTags.setRobotState(otosPosition.x, otosPosition.y, Math.toRadians(otosPosition.h),
+                Math.toRadians(otosVelocity.h));
+        artifactLocator.setRobotState(otosPosition.x, otosPosition.y, Math.toRadians(otosPosition.h));
+        adaptiveTags.reportLoopTime(loopProfiler.getLastLoopMs());
+    }
+
+    /**
+     * Remember the obelisk tag in view, if any. The motif is fixed for the match, so the last tag
+     * seen before start is kept.
+     */
+    private void readMotif() {
+        for (AprilTagDetection detection : aprilTag.getDetections()) {
+            if (!TagRelocalizer.isLocalizationTag(detection.id)) {
+                motifTagId = detection.id;
+            }
+        }
+    }
+
+    /**
+     * Shift a pickup sweep sideways onto the nearest artifact still ahead of the robot. Pickup
+     * sweeps run along X at a fixed Y, so only the Y target moves; the sweep still ends at targetX.
+     *
+     * @param currentX Robot X
+     * @param targetX X where the sweep ends
+     * @param targetY Planned sweep Y
+     * @return Y to drive at this loop
+     */
+    private double retargetPickupY(double currentX, double targetX, double targetY) {
+        if (artifactLocator == null || artifactLocator.getAgeSeconds() > ARTIFACT_MAX_AGE_S) {
+            return targetY;
+        }
+
+        double direction = Math.signum(targetX - currentX);
+        double bestAhead = Double.POSITIVE_INFINITY;
+        double bestY = targetY;
+        for (int i = 0; i < artifactLocator.getArtifactCount(); i++) {
+            double ahead = (artifactLocator.getFieldX(i) - currentX) * direction;
+            double artifactY = artifactLocator.getFieldY(i);
+            if (ahead > 0 && ahead < bestAhead && Math.abs(artifactY - targetY) <= PICKUP_RETARGET_INCHES) {
+                bestAhead = ahead;
+                bestY = artifactY;
+            }
+        }
+        return bestY;
     }
 
     private double normalizeAngle(double angle) {
@@ -267,14 +451,24 @@ public class Blue_Otos_Auto extends LinearOpMode {
     private void shootSequence() {
         telemetry.addData("Status", "Starting Shoot Sequence");
         telemetry.update();
+        autoSegment++;
 
-        // Spin up flywheel
-        flywheel.setPower(FLYWHEEL_SPEED);
+        // Standing still while shooting, so the camera is not needed
+        if (visionManager != null) {
+            visionManager.update(false, false, false);
+        }
+
+        // Spin up flywheel; power follows the battery voltage so the shot range stays the same
+        flywheelPower = voltageCompensator.compensate(FLYWHEEL_SPEED);
+        flywheel.setPower(flywheelPower);
         flywheelTimer.reset();
 
         // Wait for flywheel to reach speed (adjust time as needed)
         while (opModeIsActive() && flywheelTimer.milliseconds() < 1500) {
+            flywheelPower = voltageCompensator.compensate(FLYWHEEL_SPEED);
+            flywheel.setPower(flywheelPower);
             flywheelAtSpeed = flywheelTimer.milliseconds() > 1000;
+            recordFlightData(0, 0);
             telemetry.addData("Flywheel At Speed", flywheelAtSpeed);
             telemetry.addData("Flywheel Timer", flywheelTimer.milliseconds());
             telemetry.update();
@@ -286,23 +480,29 @@ public class Blue_Otos_Auto extends LinearOpMode {
         gate.setPosition(GATE_OPEN);
 
         // Run intake for 5 seconds (shoot 3 artifacts)
-        intake.setPower(INTAKE_SPEED);
+        intakePower = INTAKE_SPEED;
+        intake.setPower(intakePower);
         intakeTimer.reset();
 
         while (opModeIsActive() && intakeTimer.milliseconds() < INTAKE_DURATION_MS) {
+            flywheelPower = voltageCompensator.compensate(FLYWHEEL_SPEED);
+            flywheel.setPower(flywheelPower);
+            recordFlightData(0, FlightRecorder.FLAG_GATE_OPEN);
             telemetry.addData("Intake Timer", intakeTimer.milliseconds());
             telemetry.addData("Status", "Shooting");
             telemetry.update();
         }
 
         // Stop intake
-        intake.setPower(0);
+        intakePower = 0;
+        intake.setPower(intakePower);
 
         // Close gate (0 degrees)
         gate.setPosition(GATE_CLOSED);
 
         // Stop flywheel
-        flywheel.setPower(0);
+        flywheelPower = 0;
+        flywheel.setPower(flywheelPower);
         flywheelAtSpeed = false;
 
         telemetry.addData("Status", "Shoot Sequence Complete");
@@ -311,6 +511,36 @@ public class Blue_Otos_Auto extends LinearOpMode {
         sleep(200); // Brief pause before next sequence
     }
 
+    /**
+     * Write one flight recorder record using the most recent OTOS reading. During the shoot
+     * sequence the OTOS is not polled, so the pose from the end of the last move is repeated.
+     *
+     * @param rotate Rotation power sent to the drive this loop
+     * @param extraFlags FlightRecorder FLAG_* bits to add to FLAG_AUTONOMOUS
+     */
+    private void recordFlightData(double rotate, int extraFlags) {
+        long now = System.nanoTime();
+        double loopMs = lastRecordNanos == 0 ? 0 : (now - lastRecordNanos) / 1e6;
+        lastRecordNanos = now;
+
+        if (flightRecorder == null) {
+            return;
+        }
+
+        // OTOS reports in inches and degrees; the recorder stores radians
+        flightRecorder.beginRecord()
+                .pose(otosPosition.x, otosPosition.y, Math.toRadians(otosPosition.h))
+                .velocity(otosVelocity.x, otosVelocity.y, Math.toRadians(otosVelocity.h))
+                .flywheel(flywheel.getVelocity() * 60.0 / 28.0, 0, flywheelPower)
+                .gate(gate.getPosition())
+                .intake(intakePower)
+                .rotationCommand(rotate)
+                .loopMs(loopMs)
+                .flags(FlightRecorder.FLAG_AUTONOMOUS | extraFlags)
+                .segment(autoSegment);
+        flightRecorder.commitRecord();
+    }
+
     /**
      * Drive the robot using mecanum drive kinematics
      *
@@ -374,6 +604,10 @@ public class Blue_Otos_Auto extends LinearOpMode {
         telemetry.addData("Error X", String.format("%.2f", targetX - pos.x));
         telemetry.addData("Error Y", String.format("%.2f", targetY - pos.y));
         telemetry.addData("Flywheel At Speed", flywheelAtSpeed);
+        loopProfiler.addTelemetry(telemetry);
+        if (visionManager != null) {
+            visionManager.addTelemetry(telemetry);
+        }
         telemetry.update();
     }
 }
@@ -13,6 +13,7 @@ import com.qualcomm.hardware.sparkfun.SparkFunOTOS;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
 
@@ -22,6 +23,10 @@ public class Constants {
     public static final double PowerScale = 1;  // Scales all mecanum motor outputs to 70%
     public static final double RotationalPowerScale = PowerScale * 0.70;  // Rotation speed at 70% of PowerScale
 
+    // ===== DRIVETRAIN VELOCITY (from the Forward/Lateral Velocity Tuners) =====
+    public static final double X_VELOCITY = 52.83157468780758;  // Forward speed at full power (inches/second)
+    public static final double Y_VELOCITY = 36.00413405050443;  // Strafe speed at full power (inches/second)
+
     public static class Paths {
 
         public PathChain Path1;
@@ -157,8 +162,8 @@ public class Constants {
             .leftRearMotorDirection(DcMotorSimple.Direction.REVERSE)
             .rightFrontMotorDirection(DcMotorSimple.Direction.FORWARD)
             .rightRearMotorDirection(DcMotorSimple.Direction.FORWARD)
-            .xVelocity(52.83157468780758)
-            .yVelocity(36.00413405050443);
+            .xVelocity(X_VELOCITY)
+            .yVelocity(Y_VELOCITY);
 
 
     public static PathConstraints pathConstraints = new PathConstraints(0.99, 100, 1, 1);
@@ -170,10 +175,33 @@ public class Constants {
             .angularScalar(0.017364276472449303)
 
             .offset(new SparkFunOTOS.Pose2D(0,-20.5,8.6));
+    /**
+     * Builds the follower. When a webcam is configured, the OTOS is fused with AprilTag poses by
+     * FusionLocalizer; otherwise the OTOS is used on its own.
+     */
     public static Follower createFollower(HardwareMap hardwareMap) {
-        return new FollowerBuilder(followerConstants, hardwareMap)
-                .pathConstraints(pathConstraints)
-                .OTOSLocalizer(localizerConstants)
+        return createFollower(hardwareMap, true);
+    }
+
+    /**
+     * Builds the follower.
+     *
+     * @param fuse True to fuse the OTOS with AprilTag poses when a webcam is configured; false for
+     *             the raw OTOS, which the tuners need so tag corrections do not hide OTOS error
+     */
+    public static Follower createFollower(HardwareMap hardwareMap, boolean fuse) {
+        WebcamName webcam = fuse ? hardwareMap.tryGet(WebcamName.class, TagRelocalizer.WEBCAM_NAME) : null;
+
+        FollowerBuilder builder = new FollowerBuilder(followerConstants, hardwareMap)
+                .pathConstraints(pathConstraints);
+
+        if (webcam != null) {
+            builder.setLocalizer(new FusionLocalizer(hardwareMap, localizerConstants, webcam));
+        } else {
+            builder.OTOSLocalizer(localizerConstants);
+        }
+
+        return builder
                 .mecanumDrivetrain(driveConstants)
 
 
@@ -0,0 +1,105 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Controller Replay re-runs the current FreeSpin controllers against a stored match and shows how
+ * the outputs would have changed. No motors are driven.
+ *
+ * Use it after editing AimController gains, FlywheelController scales or CoordinateTriangle vertices:
+ * - During INIT, D-Pad Up/Down picks a FreeSpinRed or FreeSpinBlue flight log (newest first)
+ * - Press START to replay it; the summary stays on screen until STOP
+ * - Every changed record is written to replay_<log name>.csv next to the log
+ */
+@TeleOp(name = "Controller Replay", group = "Testing")
+public class ControllerReplay extends LinearOpMode {
+
+    @Override
+    public void runOpMode() {
+        File[] logs = AppUtil.ROBOT_DATA_DIR.listFiles((dir, name) ->
+                (name.startsWith("flight_FreeSpinRed_") || name.startsWith("flight_FreeSpinBlue_")) && name.endsWith(".bin"));
+        if (logs == null || logs.length == 0) {
+            telemetry.addData("Controller Replay", "No FreeSpin flight logs in " + AppUtil.ROBOT_DATA_DIR);
+            telemetry.update();
+            waitForStart();
+            return;
+        }
+
+        // File names end in a timestamp, so reverse name order is newest first
+        Arrays.sort(logs, Collections.reverseOrder());
+
+        // --- LOG SELECTION ---
+        int selected = 0;
+        boolean previousDpadUp = false;
+        boolean previousDpadDown = false;
+        while (opModeInInit()) {
+            if (gamepad1.dpad_up && !previousDpadUp) {
+                selected = Math.max(0, selected - 1);
+            }
+            if (gamepad1.dpad_down && !previousDpadDown) {
+                selected = Math.min(logs.length - 1, selected + 1);
+            }
+            previousDpadUp = gamepad1.dpad_up;
+            previousDpadDown = gamepad1.dpad_down;
+
+            telemetry.addData("Log", "%d/%d %s", selected + 1, logs.length, logs[selected].getName());
+            telemetry.addData(">>", "D-Pad Up/Down to choose, START to replay");
+            telemetry.update();
+        }
+        if (isStopRequested()) {
+            return;
+        }
+
+        // --- REPLAY ---
+        File logFile = logs[selected];
+        boolean isRed = logFile.getName().startsWith("flight_FreeSpinRed_");
+        CoordinateTriangle shootingZones = new CoordinateTriangle();
+        ReplayEngine engine = new ReplayEngine(shootingZones,
+                isRed ? FreeSpinRed.createAimController() : FreeSpinBlue.createAimController(),
+                isRed ? FreeSpinRed.createFlywheelController(shootingZones) : FreeSpinBlue.createFlywheelController(shootingZones));
+
+        String diffName = "replay_" + logFile.getName().replace(".bin", ".csv");
+        File diffFile = new File(logFile.getParentFile(), diffName);
+
+        ReplayEngine.Result result;
+        long startNanos = System.nanoTime();
+        try (PrintWriter diffOut = new PrintWriter(new FileWriter(diffFile))) {
+            result = engine.run(new FlightLog(logFile), diffOut);
+        } catch (IOException e) {
+            telemetry.addData("Controller Replay", "Failed: " + e.getMessage());
+            telemetry.update();
+            while (opModeIsActive()) {
+                idle();
+            }
+            return;
+        }
+        double replayMs = (System.nanoTime() - startNanos) / 1e6;
+
+        // --- RESULTS ---
+        while (opModeIsActive()) {
+            telemetry.addData("Log", logFile.getName());
+            telemetry.addData("Records", "%d replayed in %.0f ms", result.records, replayMs);
+            telemetry.addData("Result", result.isIdentical() ? "IDENTICAL" : "CHANGED");
+            telemetry.addData("Zone Changes", result.zoneChanges);
+            telemetry.addData("Rotation Changes", "%d (max %.3f, rms %.3f)",
+                    result.rotationChanges, result.maxRotationDiff, result.rmsRotationDiff);
+            telemetry.addData("Flywheel Changes", "%d (max %.3f, rms %.3f)",
+                    result.powerChanges, result.maxPowerDiff, result.rmsPowerDiff);
+            if (!result.isIdentical()) {
+                telemetry.addData("First Change", "%.2f s", result.firstChangeSeconds);
+                telemetry.addData("Diff File", diffName);
+            }
+            telemetry.update();
+        }
+    }
+}
@@ -69,9 +69,19 @@ public class CoordinateTriangle {
      * @return true if robot is inside the front shoot area, false otherwise
      */
     public boolean checkIfRobotInFrontShootArea(Follower follower) {
-        double robotX = follower.getPose().getX();
-        double robotY = follower.getPose().getY();
+        return checkIfRobotInFrontShootArea(follower.getPose().getX(), follower.getPose().getY());
+    }
 
+    /**
+     * Same check as checkIfRobotInFrontShootArea(Follower), for a pose that does not come from a live
+     * follower (a predicted pose, or a pose read back from a flight log).
+     * Updates the isRobotInFrontShootArea flag.
+     *
+     * @param robotX Robot X coordinate (inches)
+     * @param robotY Robot Y coordinate (inches)
+     * @return true if the point is inside the front shoot area, false otherwise
+     */
+    public boolean checkIfRobotInFrontShootArea(double robotX, double robotY) {
         // Calculate the main triangle area
         double mainArea = calculateTriangleArea(x1, y1, x2, y2, x3, y1);
 
@@ -108,9 +118,19 @@ public class CoordinateTriangle {
      * @return true if robot is inside the back shoot area, false otherwise
      */
     public boolean checkIfRobotInBackShootArea(Follower follower) {
-        double robotX = follower.getPose().getX();
-        double robotY = follower.getPose().getY();
+        return checkIfRobotInBackShootArea(follower.getPose().getX(), follower.getPose().getY());
+    }
 
+    /**
+     * Same check as checkIfRobotInBackShootArea(Follower), for a pose that does not come from a live
+     * follower (a predicted pose, or a pose read back from a flight log).
+     * Updates the isRobotInBackShootArea flag.
+     *
+     * @param robotX Robot X coordinate (inches)
+     * @param robotY Robot Y coordinate (inches)
+     * @return true if the point is inside the back shoot area, false otherwise
+     */
+    public boolean checkIfRobotInBackShootArea(double robotX, double robotY) {
         // Calculate the main triangle area
         double mainArea = calculateTriangleArea(x6, y6, x7, y7, x8, y6);
 
@@ -0,0 +1,220 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+/**
+ * CurrentBudgetArbiter shares a total current limit between the shooter, the intake and the
+ * drivetrain, so that running everything at once sags the battery less and the flywheel recovers
+ * at a predictable rate.
+ *
+ * Each loop the OpMode requests a power for each channel, and the arbiter:
+ * 1. Estimates each channel's current at that power from the amps per unit power it has measured
+ * 2. Grants current in priority order; a channel whose request does not fit is scaled down to
+ *    what is left (the drivetrain never below MIN_DRIVE_SCALE, so the robot stays drivable)
+ * 3. Slew-limits each granted power on the way up, which caps the inrush when a motor starts;
+ *    power drops immediately
+ *
+ * Motor current is not part of the hub's bulk read, and each getCurrent() is its own bus
+ * transaction, so one motor is read every CURRENT_READ_PERIOD_MS in turn. With six motors each is
+ * re-read about every 150 ms, which is plenty to learn the load without slowing the loop.
+ */
+public class CurrentBudgetArbiter {
+
+    public enum Channel { SHOOTER, INTAKE, DRIVE }
+
+    // ===== CURRENT BUDGET (EDITABLE) =====
+    public static double TOTAL_CURRENT_LIMIT = 18.0;   // Amps shared by all channels (main breaker is 20 A)
+    public static double MIN_DRIVE_SCALE = 0.35;       // Drivetrain is never cut below this fraction
+    public static long CURRENT_READ_PERIOD_MS = 25;    // One motor is read per period, round robin
+
+    // Starting amps per unit power for each channel, replaced by measurements as they arrive
+    public static double SHOOTER_AMPS_PER_POWER = 4.0;
+    public static double INTAKE_AMPS_PER_POWER = 3.0;
+    public static double DRIVE_AMPS_PER_POWER = 12.0;  // All four drive motors together
+
+    // ===== SLEW LIMITS (EDITABLE, power per second while rising) =====
+    public static double SHOOTER_SLEW_RATE = 4.0;
+    public static double INTAKE_SLEW_RATE = 6.0;
+    public static double DRIVE_SLEW_RATE = 8.0;
+
+    private static final double LEARN_MIN_POWER = 0.2;   // Below this, current says little about load
+    private static final double LEARN_SMOOTHING = 0.2;
+
+    private static final int CHANNELS = Channel.values().length;
+
+    private final DcMotorEx[] motors;
+    private final int[] motorChannel;
+    private final double[] motorAmps;
+    private int nextMotor = 0;
+    private long lastReadNanos = 0;
+    private long lastArbitrateNanos = 0;
+
+    private final double[] ampsPerPower = new double[CHANNELS];
+    private final double[] requested = new double[CHANNELS];
+    private final double[] command = new double[CHANNELS];
+    private final double[] measuredAmps = new double[CHANNELS];
+    private final Channel[] priority = {Channel.DRIVE, Channel.INTAKE, Channel.SHOOTER};  // Refilled, never replaced
+
+    /**
+     * @param shooter Flywheel motor
+     * @param intake Intake motor, or null if it should not be budgeted
+     * @param drive Drive motors
+     */
+    public CurrentBudgetArbiter(DcMotorEx shooter, DcMotorEx intake, DcMotorEx... drive) {
+        int count = 1 + (intake != null ? 1 : 0) + drive.length;
+        motors = new DcMotorEx[count];
+        motorChannel = new int[count];
+        motorAmps = new double[count];
+
+        int i = 0;
+        motors[i] = shooter;
+        motorChannel[i++] = Channel.SHOOTER.ordinal();
+        if (intake != null) {
+            motors[i] = intake;
+            motorChannel[i++] = Channel.INTAKE.ordinal();
+        }
+        for (DcMotorEx motor : drive) {
+            motors[i] = motor;
+            motorChannel[i++] = Channel.DRIVE.ordinal();
+        }
+
+        ampsPerPower[Channel.SHOOTER.ordinal()] = SHOOTER_AMPS_PER_POWER;
+        ampsPerPower[Channel.INTAKE.ordinal()] = INTAKE_AMPS_PER_POWER;
+        ampsPerPower[Channel.DRIVE.ordinal()] = DRIVE_AMPS_PER_POWER;
+    }
+
+    /**
+     * Sets which channel gets current first, for example the shooter while aiming so the flywheel
+     * recovers between shots, and the drivetrain otherwise. Cheap enough to call every loop: it
+     * refills a fixed array and does not allocate.
+     */
+    public void setPriority(Channel first, Channel second, Channel third) {
+        priority[0] = first;
+        priority[1] = second;
+        priority[2] = third;
+    }
+
+    /**
+     * @param channel Channel
+     * @param power Power the OpMode wants this loop (-1.0 to 1.0); for DRIVE use driveDemand()
+     */
+    public void request(Channel channel, double power) {
+        requested[channel.ordinal()] = power;
+    }
+
+    /**
+     * Drive power demand for stick inputs: the largest wheel power MecanumDrive will command.
+     */
+    public static double driveDemand(double y, double x, double rx) {
+        return Math.min(1.0, Math.abs(y) + Math.abs(x) + Math.abs(rx));
+    }
+
+    /**
+     * Reads the next motor current if its turn has come, then divides the budget between this
+     * loop's requests. Call once per loop after every request() and before getCommand().
+     */
+    public void arbitrate() {
+        long now = System.nanoTime();
+        if (now - lastReadNanos >= CURRENT_READ_PERIOD_MS * 1_000_000L) {
+            lastReadNanos = now;
+            readNextCurrent();
+        }
+        double dt = lastArbitrateNanos == 0 ? 0 : (now - lastArbitrateNanos) / 1e9;
+        lastArbitrateNanos = now;
+
+        double remaining = TOTAL_CURRENT_LIMIT;
+        for (Channel channel : priority) {
+            int c = channel.ordinal();
+            double magnitude = Math.abs(requested[c]);
+            double demand = magnitude * ampsPerPower[c];
+
+            double granted = magnitude;
+            if (demand > remaining) {
+                granted = remaining > 0 ? magnitude * remaining / demand : 0;
+                if (channel == Channel.DRIVE) {
+                    granted = Math.max(granted, magnitude * MIN_DRIVE_SCALE);
+                }
+            }
+
+            // Rising power is slew limited; the first loop has no dt and passes through
+            double previous = Math.abs(command[c]);
+            if (dt > 0 && granted > previous) {
+                granted = Math.min(granted, previous + slewRate(channel) * dt);
+            }
+
+            command[c] = Math.copySign(granted, requested[c]);
+            remaining -= granted * ampsPerPower[c];
+        }
+    }
+
+    /**
+     * Reads one motor and updates its channel's measured current and amps per unit power.
+     */
+    private void readNextCurrent() {
+        int m = nextMotor;
+        nextMotor = (nextMotor + 1) % motors.length;
+        motorAmps[m] = motors[m].getCurrent(CurrentUnit.AMPS);
+
+        int c = motorChannel[m];
+        double total = 0;
+        for (int i = 0; i < motors.length; i++) {
+            if (motorChannel[i] == c) {
+                total += motorAmps[i];
+            }
+        }
+        measuredAmps[c] = total;
+
+        double power = Math.abs(command[c]);
+        if (power >= LEARN_MIN_POWER) {
+            ampsPerPower[c] += LEARN_SMOOTHING * (total / power - ampsPerPower[c]);
+        }
+    }
+
+    private static double slewRate(Channel channel) {
+        switch (channel) {
+            case SHOOTER: return SHOOTER_SLEW_RATE;
+            case INTAKE: return INTAKE_SLEW_RATE;
+            default: return DRIVE_SLEW_RATE;
+        }
+    }
+
+    /**
+     * @return Power to apply this loop
+     */
+    public double getCommand(Channel channel) {
+        return command[channel.ordinal()];
+    }
+
+    /**
+     * @return Granted power as a fraction of the request (1 when nothing was cut)
+     */
+    public double getScale(Channel channel) {
+        int c = channel.ordinal();
+        return requested[c] == 0 ? 1.0 : Math.abs(command[c] / requested[c]);
+    }
+
+    /**
+     * @return True if the channel got less than it asked for this loop
+     */
+    public boolean isLimited(Channel channel) {
+        return getScale(channel) < 1.0 - 1e-9;
+    }
+
+    /**
+     * @return Latest measured current of a channel (amps)
+     */
+    public double getMeasuredAmps(Channel channel) {
+        return measuredAmps[channel.ordinal()];
+    }
+
+    public void addTelemetry(Telemetry telemetry) {
+        telemetry.addData("Current (A)", "shooter %.1f, intake %.1f, drive %.1f",
+                measuredAmps[Channel.SHOOTER.ordinal()], measuredAmps[Channel.INTAKE.ordinal()],
+                measuredAmps[Channel.DRIVE.ordinal()]);
+        telemetry.addData("Budget Scale", "shooter %.2f, intake %.2f, drive %.2f",
+                getScale(Channel.SHOOTER), getScale(Channel.INTAKE), getScale(Channel.DRIVE));
+    }
+}
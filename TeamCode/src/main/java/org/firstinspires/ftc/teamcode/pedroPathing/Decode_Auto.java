@@ -10,6 +10,7 @@ import static org.firstinspires.ftc.teamcode.pedroPathing.Constants.createFollow
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.pedropathing.follower.Follower;
+import com.pedropathing.paths.PathChain;
         import com.pedropathing.util.Timer;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.hardware.DcMotor;
@@ -27,6 +28,7 @@ public class Decode_Auto extends LinearOpMode {
     private Follower follower;
     private Timer pathTimer, actionTimer, opmodeTimer;
     private int pathState;
+    private final LoopProfiler loopProfiler = new LoopProfiler("Decode Auto");
 
 
     public void shoot(double targetRPM) {
@@ -50,9 +52,25 @@ public class Decode_Auto extends LinearOpMode {
 
         // In Decode_Auto.java
     }
+    /**
+     * Follows a path to its end. The follower only moves the robot from follower.update(), so
+     * this loops on it until the path is done or the OpMode stops.
+     */
+    private void runPath(PathChain path) {
+        follower.followPath(path);
+        while (opModeIsActive() && follower.isBusy()) {
+            loopProfiler.mark();
+            follower.update();
+            loopProfiler.addTelemetry(telemetry);
+            telemetry.update();
+        }
+        loopProfiler.pause();
+    }
+
     @Override
     public void runOpMode () {
-        // Initialize the follower and hardware
+        // Initialize the follower and hardware. The camera stays idle (nothing here opts in to
+        // VisionManager), so the paths run on the OTOS alone
         follower = createFollower(hardwareMap);
         intake = hardwareMap.get(DcMotorEx.class, "intake");
         flyWheel = hardwareMap.get(DcMotorEx.class, "Output"); // Uncomment when ready
@@ -72,7 +90,7 @@ public class Decode_Auto extends LinearOpMode {
             // Path 1: Moves from starting position (56, 10) to the back scoring position (70, 20).
             telemetry.addData("Status", "Following Path 1 to Back Score Position");
             telemetry.update();
-            follower.followPath(paths.Path1);
+            runPath(paths.Path1);
 
             // Action: Score pre-loaded artifacts on the goal.
             // (Shooter/placing code to be added here)
@@ -80,7 +98,7 @@ public class Decode_Auto extends LinearOpMode {
             // Path 2: Moves from the back scoring position (70, 20) to the far-side pickup area (40, 85).
             telemetry.addData("Status", "Following Path 2 to Far Pickup Area");
             telemetry.update();
-            follower.followPath(paths.Path2);
+            runPath(paths.Path2);
 
             // Action: Start intake to pick up artifacts.
             telemetry.addData("Status", "Running Intake");
@@ -90,13 +108,13 @@ public class Decode_Auto extends LinearOpMode {
             // Path Pickup 1: Strafes left (to 25, 85) to secure the artifacts.
             telemetry.addData("Status", "Following Pickup Path 1");
             telemetry.update();
-            follower.followPath(paths.PathPickup1);
+            runPath(paths.PathPickup1);
             intake.setPower(0.0); // Stop intake after pickup.
 
             // Path 3: Moves from the pickup spot (25, 85) to the front scoring position (59, 92).
             telemetry.addData("Status", "Following Path 3 to Front Score Position");
             telemetry.update();
-            follower.followPath(paths.Path3);
+            runPath(paths.Path3);
 
             // Action: Score the picked-up artifacts on the goal.
             // (Shooter/placing code to be added here)
@@ -104,7 +122,7 @@ public class Decode_Auto extends LinearOpMode {
             // Path 4: Moves from the front scoring position (59, 92) to the middle pickup area (40, 60).
             telemetry.addData("Status", "Following Path 4 to Middle Pickup Area");
             telemetry.update();
-            follower.followPath(paths.Path4);
+            runPath(paths.Path4);
 
             // Action: Start intake to pick up artifacts.
             telemetry.addData("Status", "Running Intake");
@@ -114,13 +132,13 @@ public class Decode_Auto extends LinearOpMode {
             // Path Pickup 2: Strafes left (to 25, 60) to secure the artifacts.
             telemetry.addData("Status", "Following Pickup Path 2");
             telemetry.update();
-            follower.followPath(paths.PathPickup2);
+            runPath(paths.PathPickup2);
             intake.setPower(0.0); // Stop intake after pickup.
 
             // Path 5: Moves from the pickup spot (25, 60) back to the front scoring position (59, 92).
             telemetry.addData("Status", "Following Path 5 to Front Score Position");
             telemetry.update();
-            follower.followPath(paths.Path5);
+            runPath(paths.Path5);
 
             // Action: Score the picked-up artifacts on the goal.
             // (Shooter/placing code to be added here)
@@ -128,7 +146,7 @@ public class Decode_Auto extends LinearOpMode {
             // Path 6: Moves from the front scoring position (59, 92) to the near-side pickup area (40, 35).
             telemetry.addData("Status", "Following Path 6 to Near Pickup Area");
             telemetry.update();
-            follower.followPath(paths.Path6);
+            runPath(paths.Path6);
 
             // Action: Start intake to pick up artifacts.
             telemetry.addData("Status", "Running Intake");
@@ -138,13 +156,13 @@ public class Decode_Auto extends LinearOpMode {
             // Path Pickup 3: Strafes left (to 25, 35) to secure the artifacts.
             telemetry.addData("Status", "Following Pickup Path 3");
             telemetry.update();
-            follower.followPath(paths.PathPickup3);
+            runPath(paths.PathPickup3);
             intake.setPower(0.0); // Stop intake after pickup.
 
             // Path 7: Moves from the pickup spot (25, 35) back to the front scoring position (59, 92).
             telemetry.addData("Status", "Following Path 7 to Front Score Position");
             telemetry.update();
-            follower.followPath(paths.Path7);
+            runPath(paths.Path7);
 
             // Action: Score the picked-up artifacts on the goal.
             // (Shooter/placing code to be added here)
@@ -152,7 +170,7 @@ public class Decode_Auto extends LinearOpMode {
             // Path 8: Moves from the front scoring position (59, 92) to the parking area (20, 70).
             telemetry.addData("Status", "Following Path 8 to Park");
             telemetry.update();
-            follower.followPath(paths.Path8);
+            runPath(paths.Path8);
 
             telemetry.addData("Status", "Autonomous Finished");
             telemetry.update();
@@ -16,11 +16,14 @@ public class Decode_Minimal_Auto extends LinearOpMode {
     public DcMotorEx backLeft;
     public DcMotorEx backRight;
     private ElapsedTime runtime = new ElapsedTime();
+    private VoltageCompensator voltageCompensator;
+    private final LoopProfiler loopProfiler = new LoopProfiler("Minimal Auto");
 
     // ===== DISTANCE-TO-TIME CALIBRATION RATIOS (EDITABLE) =====
     // These values represent the time (in milliseconds) needed to travel 1 centimeter at full power
     // Calibrate by measuring actual distance traveled and adjusting these values
     // Calibration Reference: Robot travels 106cm in 750ms
+    // Times are at VoltageCompensator.NOMINAL_VOLTAGE and scaled for the battery at run time
     private static final double FORWARD_MS_PER_CM = 7.075;    // Time in ms to travel 1 cm forward (750ms / 106cm)
     private static final double STRAFE_MS_PER_CM = 7.075;     // Time in ms to travel 1 cm strafe (sideways)
     private static final double ROTATE_MS_PER_DEGREE = 10.0; // Time in ms to rotate 1 degree
@@ -50,9 +53,19 @@ public class Decode_Minimal_Auto extends LinearOpMode {
         frontRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
         backRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
 
+        voltageCompensator = new VoltageCompensator(hardwareMap);
+
         waitForStart();
-        drive(.5, 0, 0);
-        sleep(750);
+        // Timed on purpose: this is the safe auto and needs no odometry. The loop only re-applies
+        // the compensated power and feeds the loop profiler.
+        runtime.reset();
+        while (opModeIsActive() && runtime.milliseconds() < 750) {
+            loopProfiler.mark();
+            drive(voltageCompensator.compensate(.5), 0, 0);
+            loopProfiler.addTelemetry(telemetry);
+            telemetry.update();
+        }
+        loopProfiler.pause();
         drive(0, 0, 0);
         sleep(28250);
     }
@@ -82,7 +95,8 @@ public class Decode_Minimal_Auto extends LinearOpMode {
 
     /**
      * Drive forward for a specific distance at full power.
-     * Uses the FORWARD_MS_PER_CM calibration ratio to calculate required time.
+     * Uses the FORWARD_MS_PER_CM calibration ratio to calculate required time, stretched or
+     * shortened for the battery voltage.
      *
      * @param distanceCM The distance to travel in centimeters (positive = forward, negative = backward)
      */
@@ -90,13 +104,14 @@ public class Decode_Minimal_Auto extends LinearOpMode {
         long timeMS = (long) (Math.abs(distanceCM) * FORWARD_MS_PER_CM);
         double direction = distanceCM >= 0 ? 1.0 : -1.0;
         drive(direction, 0, 0);
-        sleep(timeMS);
+        sleep(voltageCompensator.compensateDuration(timeMS));
         drive(0, 0, 0);
     }
 
     /**
      * Strafe (move sideways) for a specific distance at full power.
-     * Uses the STRAFE_MS_PER_CM calibration ratio to calculate required time.
+     * Uses the STRAFE_MS_PER_CM calibration ratio to calculate required time, stretched or
+     * shortened for the battery voltage.
      *
      * @param distanceCM The distance to strafe in centimeters (positive = right, negative = left)
      */
@@ -104,13 +119,14 @@ public class Decode_Minimal_Auto extends LinearOpMode {
         long timeMS = (long) (Math.abs(distanceCM) * STRAFE_MS_PER_CM);
         double direction = distanceCM >= 0 ? 1.0 : -1.0;
         drive(0, direction, 0);
-        sleep(timeMS);
+        sleep(voltageCompensator.compensateDuration(timeMS));
         drive(0, 0, 0);
     }
 
     /**
      * Rotate the robot for a specific angle at full power.
-     * Uses the ROTATE_MS_PER_DEGREE calibration ratio to calculate required time.
+     * Uses the ROTATE_MS_PER_DEGREE calibration ratio to calculate required time, stretched or
+     * shortened for the battery voltage.
      *
      * @param angleDegrees The angle to rotate in degrees (positive = counterclockwise, negative = clockwise)
      */
@@ -118,7 +134,7 @@ public class Decode_Minimal_Auto extends LinearOpMode {
         long timeMS = (long) (Math.abs(angleDegrees) * ROTATE_MS_PER_DEGREE);
         double direction = angleDegrees >= 0 ? 1.0 : -1.0;
         drive(0, 0, direction);
-        sleep(timeMS);
+        sleep(voltageCompensator.compensateDuration(timeMS));
         drive(0, 0, 0);
     }
 
@@ -141,7 +157,7 @@ public class Decode_Minimal_Auto extends LinearOpMode {
         double rxDirection = angleDegrees >= 0 ? 1.0 : -1.0;
 
         drive(yDirection, xDirection, rxDirection);
-        sleep(timeMS);
+        sleep(voltageCompensator.compensateDuration(timeMS));
         drive(0, 0, 0);
     }
 
@@ -5,10 +5,16 @@ import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.Servo;
 import com.pedropathing.follower.Follower;
 import com.pedropathing.geometry.Pose;
 
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.IOException;
+
 import static org.firstinspires.ftc.teamcode.pedroPathing.Constants.createFollower;
 import static org.firstinspires.ftc.teamcode.pedroPathing.Constants.Poses;
 
@@ -34,6 +40,29 @@ public class Decode_TeleOp extends LinearOpMode {
     private Servo gate;
     private Follower follower;
     private MecanumDrive drive;
+    private DriveArbiter driveArbiter;        // Driver sticks or the path follower, one wheel write per loop
+    private boolean followerWasDriving = false;
+    private ArtifactLocator artifactLocator;  // Only present when the follower fuses a webcam
+    private VisionManager visionManager;      // Only present when the follower fuses a webcam
+    private final PosePredictor posePredictor = new PosePredictor();
+
+    // ===== LOOP PERFORMANCE =====
+    private final LoopProfiler loopProfiler = new LoopProfiler("Driver Controlled");
+
+    // ===== GAMEPAD RECORDING / REPLAY =====
+    // Every live run records both gamepads to a new timestamped file, keeping the newest
+    // GamepadRecorder.DEFAULT_KEEP; a replay run plays back the newest one instead
+    private static final String GAMEPAD_LOG_NAME = "DriverControlled";
+    private Gamepad driver;    // gamepad1, or the replayed driver inputs
+    private Gamepad operator;  // gamepad2, or the replayed operator inputs
+    private GamepadRecorder gamepadRecorder;
+    private GamepadReplayer gamepadReplayer;
+
+    // ===== FLIGHT RECORDER =====
+    private FlightRecorder flightRecorder;
+    private CoordinateTriangle shootingZones;  // Checked every loop for the camera and the recorded zone flags
+    private double intakePower = 0;            // Last commanded intake power
+    private double flywheelPower = 0;          // Last open-loop flywheel power (0 while under velocity control)
 
     // ===== SHOOTING SYSTEM STATE VARIABLES =====
     private double targetFlywheelRPM = 0;
@@ -42,10 +71,16 @@ public class Decode_TeleOp extends LinearOpMode {
     private boolean isMovingToShootPosition = false;
     private ShootPosition currentShootPosition = ShootPosition.NONE;
     private boolean isTestShootingMode = false;
+    private boolean isMovingToArtifact = false;
+
+    // ===== ARTIFACT PICKUP (D-PAD LEFT) =====
+    private static final double ARTIFACT_MAX_AGE_S = 0.5;  // Older camera results are ignored
 
     // State tracking for D-Pad button releases
     private boolean previousDpadUp = false;
     private boolean previousDpadDown = false;
+    private boolean previousDpadLeft = false;
+    private boolean artifactPickupPending = false;  // D-Pad Left held, waiting for the camera to see an artifact
 
     // ===== ENUM FOR SHOOT POSITIONS =====
     private enum ShootPosition {
@@ -58,9 +93,18 @@ public class Decode_TeleOp extends LinearOpMode {
 
         // Initialize the MecanumDrive object. This will map and configure all drive motors.
         drive = new MecanumDrive(hardwareMap);
+        driveArbiter = new DriveArbiter(drive);
+        // Open loop unless velocity mode has been tuned and opted in (see MecanumDrive.USE_VELOCITY_CONTROL)
+        drive.setVelocityControl(MecanumDrive.USE_VELOCITY_CONTROL);
+        // Full-stick reversals ramp at what the tires can hold instead of spinning the wheels
+        drive.setAccelerationLimiter(new AccelerationLimiter());
 
         // Initialize PedroPathing follower for autonomous positioning
         follower = createFollower(hardwareMap);
+        if (follower.getPoseTracker().getLocalizer() instanceof FusionLocalizer) {
+            artifactLocator = ((FusionLocalizer) follower.getPoseTracker().getLocalizer()).getArtifactLocator();
+            visionManager = ((FusionLocalizer) follower.getPoseTracker().getLocalizer()).getVisionManager();
+        }
 
         // Map the intake motor from the hardware configuration
         intake = hardwareMap.get(DcMotor.class, "intake");
@@ -84,30 +128,68 @@ public class Decode_TeleOp extends LinearOpMode {
         // Initialize gate to closed position
         gate.setPosition(GATE_CLOSED_POSITION);
 
-        telemetry.addData("Status", "Initialized");
-        telemetry.update();
+        // Open a new flight log for post-match analysis
+        shootingZones = new CoordinateTriangle();
+        try {
+            flightRecorder = new FlightRecorder(
+                    FlightRecorder.newLogFile(AppUtil.ROBOT_DATA_DIR, "DriverControlled"),
+                    FlightRecorder.DEFAULT_CAPACITY);
+            for (File oldLog : FlightRecorder.deleteOldLogs(AppUtil.ROBOT_DATA_DIR, "DriverControlled", FlightRecorder.DEFAULT_KEEP)) {
+                telemetry.addData("Flight Recorder", "Could not delete old log " + oldLog.getName());
+            }
+        } catch (IOException e) {
+            telemetry.addData("Flight Recorder", "Unavailable: " + e.getMessage());
+        }
 
         // --- WAIT FOR START ---
-        waitForStart();
+        // Press X during init to replay the last recorded session instead of driving live
+        File lastRecording = GamepadRecorder.latestLogFile(AppUtil.ROBOT_DATA_DIR, GAMEPAD_LOG_NAME);
+        boolean replayRequested = false;
+        while (opModeInInit()) {
+            if (gamepad1.xWasPressed() && lastRecording != null) {
+                replayRequested = !replayRequested;
+            }
+            telemetry.addData("Status", "Initialized");
+            telemetry.addData("Input", replayRequested ? "REPLAY " + lastRecording.getName() : "LIVE (recording)");
+            telemetry.addData("Press X", lastRecording != null ? "Toggle gamepad replay" : "No recording to replay");
+            telemetry.update();
+        }
+
+        setUpInputSource(replayRequested ? lastRecording
+                : GamepadRecorder.newLogFile(AppUtil.ROBOT_DATA_DIR, GAMEPAD_LOG_NAME), replayRequested);
 
         // --- TELEOP LOOP ---
         while (opModeIsActive()) {
+            // --- Loop Timing ---
+            loopProfiler.mark();
+
+            // --- Input Source (record live gamepads or play back a recording) ---
+            if (gamepadReplayer != null) {
+                gamepadReplayer.next(driver, operator);
+            } else if (gamepadRecorder != null) {
+                gamepadRecorder.record(gamepad1, gamepad2);
+            }
+
             // --- Drive Train Control ---
-            double y = gamepad1.left_stick_y;
-            double x = gamepad1.left_stick_x;
-            double rx = gamepad1.right_stick_x;
+            double y = driver.left_stick_y;
+            double x = driver.left_stick_x;
+            double rx = driver.right_stick_x;
 
-            // Call the drive method from our MecanumDrive class
-            drive.drive(y, x, rx);
+            // Driver request; a running path takes over below
+            driveArbiter.requestTranslation(DriveArbiter.Source.DRIVER, y, x, true);
+            driveArbiter.requestRotation(DriveArbiter.Source.DRIVER, rx);
 
             // --- Shooting Position Control ---
             handleShootingPositionInput();
 
+            // --- Drive to Nearest Artifact (D-Pad Left) ---
+            handleArtifactPickupInput();
+
             // --- Test Shooting Mode (Left Trigger) ---
             handleTestShootingMode();
 
             // --- Max RPM Mode: press and hold Left Bumper to run at motor max RPM ---
-            if (gamepad1.left_bumper) {
+            if (driver.left_bumper) {
                 isMaxMode = true;
                 targetFlywheelRPM = flywheelMaxRPM;
             } else {
@@ -120,20 +202,42 @@ public class Decode_TeleOp extends LinearOpMode {
                 }
             }
 
+            // --- Drive Output: either the follower or MecanumDrive writes the wheels, never both ---
+            if (follower.isBusy()) {
+                driveArbiter.requestFollower();
+            }
+            setMeasuredDriveVelocity();
+            driveArbiter.arbitrate();
+            if (followerWasDriving && !driveArbiter.isFollowerActive()) {
+                follower.breakFollowing();  // Ends the end-of-path hold, which would keep writing the motors
+            }
+            followerWasDriving = driveArbiter.isFollowerActive();
+            driveArbiter.apply();
+
             // --- Update Follower (PedroPathing) ---
             follower.update();
+            posePredictor.update(System.nanoTime(), follower);
             updateRobotPosition();
+            shootingZones.checkIfRobotInFrontShootArea(follower);
+            shootingZones.checkIfRobotInBackShootArea(follower);
 
             // --- Intake Control ---
-            if (gamepad1.right_trigger > 0.1) {
-                intake.setPower(1.0);
+            if (driver.right_trigger > 0.1 || isMovingToArtifact) {
+                intakePower = 1.0;
             } else {
-                intake.setPower(0.0);
+                intakePower = 0.0;
+            }
+            intake.setPower(intakePower);
+
+            // --- Vision: the camera idles until asked; tags in a shooting zone, artifacts for the intake ---
+            if (visionManager != null) {
+                visionManager.update(shootingZones, intakePower > 0 || driver.dpad_left);
             }
 
             // --- Flywheel Reverse Control (Right Bumper) ---
-            if (gamepad1.right_bumper) {
-                flywheel.setPower(-0.05);  // Reverse at 0.05 power
+            if (driver.right_bumper) {
+                flywheelPower = -0.05;
+                flywheel.setPower(flywheelPower);  // Reverse at 0.05 power
             } else {
                 // --- Flywheel and Gate Control ---
                 handleFlywheelAndGate();
@@ -144,12 +248,16 @@ public class Decode_TeleOp extends LinearOpMode {
             double percentOfMax = (flywheelMaxRPM > 0) ? (currentRPM / flywheelMaxRPM) * 100.0 : 0.0;
             boolean atFull = flywheelMaxRPM > 0 && currentRPM >= (flywheelMaxRPM * 0.99);
 
+            // --- Flight Recorder ---
+            recordFlightData(currentRPM, rx);
+
             telemetry.addData("Status", "TeleOp Running");
             telemetry.addData("Left Stick Y", y);
             telemetry.addData("Left Stick X", x);
             telemetry.addData("Right Stick X", rx);
             telemetry.addData("Intake Power", intake.getPower());
             telemetry.addData("Current Position", currentShootPosition);
+            driveArbiter.addTelemetry(telemetry);
             telemetry.addData("Test Shooting Mode", isTestShootingMode);
             telemetry.addData("Max Flywheel RPM", "%.1f", flywheelMaxRPM);
             telemetry.addData("Target Flywheel RPM", targetFlywheelRPM);
@@ -158,7 +266,7 @@ public class Decode_TeleOp extends LinearOpMode {
             telemetry.addData("At 100% Capacity?", atFull);
 
             // When D-Pad Down is pressed, show detailed flywheel capacity info
-            if (gamepad1.dpad_down) {
+            if (driver.dpad_down) {
                 double flywheelPower = Math.abs(flywheel.getPower());
                 double flywheelCapacityPercent = flywheelPower * 100.0;
                 boolean flywheelAt100 = flywheelPower >= 0.99;
@@ -171,31 +279,167 @@ public class Decode_TeleOp extends LinearOpMode {
             telemetry.addData("Gate Position", gate.getPosition());
             telemetry.addData("Robot X", follower.getPose().getX());
             telemetry.addData("Robot Y", follower.getPose().getY());
+            if (artifactLocator != null) {
+                telemetry.addData("Artifacts Seen", artifactLocator.getArtifactCount());
+            }
+            if (visionManager != null) {
+                visionManager.addTelemetry(telemetry);
+            }
+            if (gamepadReplayer != null) {
+                telemetry.addData("Replay Frame", "%d / %d", gamepadReplayer.getFrameIndex(), gamepadReplayer.getFrameCount());
+            }
+            loopProfiler.addTelemetry(telemetry);
             telemetry.update();
         }
+
+        if (gamepadRecorder != null) {
+            gamepadRecorder.close();
+        }
+        if (flightRecorder != null) {
+            flightRecorder.close();
+        }
+    }
+
+    // ===== INPUT SOURCE SELECTION =====
+    private void setUpInputSource(File gamepadLog, boolean replay) {
+        driver = gamepad1;
+        operator = gamepad2;
+
+        try {
+            if (replay) {
+                // Replayed inputs go into private Gamepad objects so the SDK cannot overwrite them
+                gamepadReplayer = new GamepadReplayer(gamepadLog);
+                driver = new Gamepad();
+                operator = new Gamepad();
+            } else {
+                gamepadRecorder = new GamepadRecorder(gamepadLog);
+                GamepadRecorder.deleteOldLogs(AppUtil.ROBOT_DATA_DIR, GAMEPAD_LOG_NAME, GamepadRecorder.DEFAULT_KEEP);
+            }
+        } catch (IOException e) {
+            // Fall back to live driving without recording
+            telemetry.addData("Gamepad Log", "Unavailable: " + e.getMessage());
+        }
+    }
+
+    // ===== DRIVE HANDOVER =====
+    /**
+     * Gives the arbiter the robot-frame speed from the localizer (field frame), so a path ending
+     * under the driver's stick ramps from the speed the robot still has.
+     */
+    private void setMeasuredDriveVelocity() {
+        Pose velocity = follower.getPoseTracker().getLocalizer().getVelocity();
+        double heading = follower.getPose().getHeading();
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double forward = velocity.getX() * cos + velocity.getY() * sin;
+        double left = -velocity.getX() * sin + velocity.getY() * cos;
+        driveArbiter.setMeasuredVelocity(forward, -left);
+    }
+
+    // ===== FLIGHT RECORDER =====
+    private void recordFlightData(double currentRPM, double rotationCommand) {
+        if (flightRecorder == null) {
+            return;
+        }
+
+        Pose pose = follower.getPose();
+        Pose velocity = follower.getPoseTracker().getLocalizer().getVelocity();
+
+        int flags = 0;
+        if (shootingZones.isInFrontShootArea()) flags |= FlightRecorder.FLAG_FRONT_ZONE;
+        if (shootingZones.isInBackShootArea()) flags |= FlightRecorder.FLAG_BACK_ZONE;
+        if (gate.getPosition() == GATE_OPEN_POSITION) flags |= FlightRecorder.FLAG_GATE_OPEN;
+        if (isTestShootingMode) flags |= FlightRecorder.FLAG_TEST_MODE;
+        if (isMaxMode) flags |= FlightRecorder.FLAG_MAX_MODE;
+        if (isMovingToShootPosition) flags |= FlightRecorder.FLAG_PATH_ACTIVE;
+        if (Math.abs(driver.left_stick_y) < 0.1 && Math.abs(driver.left_stick_x) < 0.1
+                && Math.abs(driver.right_stick_x) < 0.1) {
+            flags |= FlightRecorder.FLAG_STICKS_IDLE;
+        }
+
+        flightRecorder.beginRecord()
+                .pose(pose.getX(), pose.getY(), pose.getHeading())
+                .velocity(velocity.getX(), velocity.getY(), velocity.getHeading())
+                .flywheel(currentRPM, targetFlywheelRPM, flywheelPower)
+                .gate(gate.getPosition())
+                .intake(intakePower)
+                .rotationCommand(rotationCommand)
+                .loopMs(loopProfiler.getLastLoopMs())
+                .flags(flags)
+                .segment(currentShootPosition.ordinal());
+        flightRecorder.commitRecord();
     }
 
     // ===== SHOOTING POSITION HANDLING =====
     private void handleShootingPositionInput() {
         // Move to front shoot position when D-Pad Up is pressed
-        if (gamepad1.dpad_up) {
+        if (driver.dpad_up) {
             moveToFrontShootPosition();
-        } else if (previousDpadUp && !gamepad1.dpad_up) {
+        } else if (previousDpadUp && !driver.dpad_up) {
             // D-Pad Up was released - reset shooting state to allow gate to close
             resetShootingState();
         }
 
         // Move to back shoot position when D-Pad Down is pressed
-        if (gamepad1.dpad_down) {
+        if (driver.dpad_down) {
             moveToBackShootPosition();
-        } else if (previousDpadDown && !gamepad1.dpad_down) {
+        } else if (previousDpadDown && !driver.dpad_down) {
             // D-Pad Down was released - reset shooting state to allow gate to close
             resetShootingState();
         }
 
         // Update previous D-Pad state for next iteration
-        previousDpadUp = gamepad1.dpad_up;
-        previousDpadDown = gamepad1.dpad_down;
+        previousDpadUp = driver.dpad_up;
+        previousDpadDown = driver.dpad_down;
+    }
+
+    // ===== ARTIFACT PICKUP HANDLING =====
+    private void handleArtifactPickupInput() {
+        // Holding D-Pad Left turns the artifact camera on; drive to the nearest artifact once it sees one
+        if (driver.dpad_left && !previousDpadLeft) {
+            artifactPickupPending = true;
+        } else if (previousDpadLeft && !driver.dpad_left) {
+            artifactPickupPending = false;
+            if (isMovingToArtifact) {
+                // D-Pad Left was released - stop the pickup drive
+                follower.breakFollowing();
+                isMovingToArtifact = false;
+            }
+        }
+        if (artifactPickupPending) {
+            artifactPickupPending = !moveToNearestArtifact();
+        }
+
+        // Arrived (or path finished) - the intake stops with the next trigger check
+        if (isMovingToArtifact && !follower.isBusy()) {
+            isMovingToArtifact = false;
+        }
+
+        previousDpadLeft = driver.dpad_left;
+    }
+
+    /**
+     * @return True if a drive to an artifact was started; false if no recent artifact is in view
+     */
+    private boolean moveToNearestArtifact() {
+        if (artifactLocator == null || artifactLocator.getArtifactCount() == 0
+                || artifactLocator.getAgeSeconds() > ARTIFACT_MAX_AGE_S) {
+            return false;
+        }
+
+        // Artifacts are sorted nearest first; face the artifact so the intake leads
+        Pose currentPose = follower.getPose();
+        double artifactX = artifactLocator.getFieldX(0);
+        double artifactY = artifactLocator.getFieldY(0);
+        double facing = Math.atan2(artifactY - currentPose.getY(), artifactX - currentPose.getX());
+        Pose artifactPose = new Pose(artifactX, artifactY, facing);
+
+        follower.followPath(follower.pathBuilder()
+            .addPath(new com.pedropathing.geometry.BezierLine(currentPose, artifactPose))
+            .setLinearHeadingInterpolation(currentPose.getHeading(), facing)
+            .build());
+        isMovingToArtifact = true;
+        return true;
     }
 
     private void resetShootingState() {
@@ -243,7 +487,8 @@ public class Decode_TeleOp extends LinearOpMode {
     private void updateRobotPosition() {
         // Check if the robot has arrived at the target position
         if (isMovingToShootPosition && !follower.isBusy()) {
-            Pose currentPose = follower.getPose();
+            // Judge arrival on where the robot will be once this loop's commands land
+            Pose currentPose = new Pose(posePredictor.getX(), posePredictor.getY(), posePredictor.getHeading());
             double distanceToTarget = 0;
 
             if (currentShootPosition == ShootPosition.FRONT) {
@@ -276,6 +521,7 @@ public class Decode_TeleOp extends LinearOpMode {
         } else {
             flywheel.setPower(0);
         }
+        flywheelPower = 0;
 
         // Validate conditions for opening gate
         boolean flywheelAtSpeed = isFlywheelAtTargetSpeed();
@@ -318,7 +564,7 @@ public class Decode_TeleOp extends LinearOpMode {
     // ===== TEST SHOOTING MODE (LEFT TRIGGER) =====
     private void handleTestShootingMode() {
         // Check if left trigger is pressed (> 0.1 threshold)
-        if (gamepad1.left_trigger > 0.1) {
+        if (driver.left_trigger > 0.1) {
             // Enable test shooting mode
             if (!isTestShootingMode) {
                 isTestShootingMode = true;
@@ -0,0 +1,122 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * DoubleRingBuffer keeps the most recent samples of a single value in a fixed primitive array.
+ *
+ * Adding a sample is O(1) and never allocates; once the buffer is full each new sample overwrites
+ * the oldest. This replaces the ArrayList&lt;Double&gt; plus remove(0) pattern, which shifts the whole
+ * list and boxes a Double every loop. Window statistics (mean, standard deviation, min, max) scan
+ * the buffer, so read them when displaying results rather than every loop.
+ */
+public class DoubleRingBuffer {
+
+    private final double[] values;
+    private int next = 0;   // Physical index the next sample is written to
+    private int count = 0;
+
+    /**
+     * @param capacity Number of samples kept
+     */
+    public DoubleRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        values = new double[capacity];
+    }
+
+    public void add(double value) {
+        values[next] = value;
+        next = (next + 1) % values.length;
+        if (count < values.length) {
+            count++;
+        }
+    }
+
+    /**
+     * @param i Logical index: 0 = oldest, size() - 1 = newest
+     */
+    public double get(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("index " + i + " with size " + count);
+        }
+        int oldest = count < values.length ? 0 : next;
+        return values[(oldest + i) % values.length];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public boolean isFull() {
+        return count == values.length;
+    }
+
+    public void clear() {
+        next = 0;
+        count = 0;
+    }
+
+    // ===== WINDOW STATISTICS =====
+
+    /**
+     * @return Mean of the samples in the buffer, 0 when empty
+     */
+    public double mean() {
+        if (count == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return sum / count;
+    }
+
+    /**
+     * @return Sample standard deviation of the buffer, 0 with fewer than two samples
+     */
+    public double standardDeviation() {
+        if (count < 2) {
+            return 0;
+        }
+        double mean = mean();
+        double sumSquares = 0;
+        for (int i = 0; i < count; i++) {
+            double deviation = values[i] - mean;
+            sumSquares += deviation * deviation;
+        }
+        return Math.sqrt(sumSquares / (count - 1));
+    }
+
+    /**
+     * @return Smallest sample in the buffer, NaN when empty
+     */
+    public double min() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double min = values[0];
+        for (int i = 1; i < count; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    /**
+     * @return Largest sample in the buffer, NaN when empty
+     */
+    public double max() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double max = values[0];
+        for (int i = 1; i < count; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,251 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * DriveArbiter collects drive requests from everything that wants to move the robot in a loop
+ * and writes the wheels once.
+ *
+ * Without it each source calls drive() in turn and the last one wins. Every call is four motor
+ * writes on the hub, and when the Pedro follower is running a path it writes the same motors
+ * again in follower.update(), so the wheels get commands that fight each other within one loop.
+ *
+ * Each loop:
+ * 1. Sources request translation and/or rotation (stick units, -1 to 1)
+ * 2. arbitrate() walks the sources from lowest to highest priority. Each request pulls the
+ *    result toward itself by its weight: 1 replaces what the lower sources asked for, 0.5 meets
+ *    them halfway. Translation and rotation are arbitrated separately, so aim assist can own the
+ *    turn while the driver keeps translating.
+ * 3. apply() writes the result once through MecanumDrive.drive()
+ *
+ * The path follower cannot be blended: Pedro writes its own motor commands in follower.update().
+ * When its request wins, apply() writes nothing and leaves the wheels to the follower. When it
+ * loses, the OpMode should break following so the follower stops writing too. Each handover resets
+ * the drive's acceleration history, which would otherwise still hold the speed from before the
+ * follower took over.
+ *
+ * Driver-frame translation is rotated into the robot frame with the drive's field-centric
+ * rotation before blending, so field-centric sticks and robot-frame commands (a camera strafe)
+ * mix correctly. apply() turns the result back into the driver's frame for drive(), which applies
+ * the acceleration limit there before rotating it again. Set the drive's heading before making
+ * requests, so both rotations use this loop's heading.
+ */
+public class DriveArbiter {
+
+    public enum Source { DRIVER, AIM_ASSIST, VISUAL_SERVO, PATH_FOLLOWER }
+
+    private static final int SOURCES = Source.values().length;
+
+    private final MecanumDrive drive;
+
+    // Highest priority first
+    private Source[] priority = {Source.PATH_FOLLOWER, Source.VISUAL_SERVO, Source.AIM_ASSIST, Source.DRIVER};
+
+    // This loop's requests, indexed by Source.ordinal(); translation is stored in the robot frame
+    private final boolean[] hasTranslation = new boolean[SOURCES];
+    private final boolean[] hasRotation = new boolean[SOURCES];
+    private final double[] requestY = new double[SOURCES];
+    private final double[] requestX = new double[SOURCES];
+    private final double[] requestRx = new double[SOURCES];
+    private final double[] translationWeight = new double[SOURCES];
+    private final double[] rotationWeight = new double[SOURCES];
+
+    // Result of the last arbitrate()
+    private double y, x, rx;
+    private Source translationSource = null;
+    private Source rotationSource = null;
+    private boolean followerActive = false;
+
+    // Robot speed the drive's acceleration history restarts from at a handover (robot frame, inches/second)
+    private double measuredForward, measuredStrafe;
+
+    public DriveArbiter(MecanumDrive drive) {
+        this.drive = drive;
+    }
+
+    /**
+     * @param highestFirst Sources in priority order, highest first. Sources left out never win.
+     */
+    public void setPriority(Source... highestFirst) {
+        priority = highestFirst.clone();
+    }
+
+    // ===== REQUESTS =====
+
+    /**
+     * Requests translation with full weight.
+     *
+     * @param source Who is asking
+     * @param y Forward stick (negative is forward, as gamepad left_stick_y)
+     * @param x Strafe stick (right positive)
+     * @param driverFrame True for sticks seen from the driver (rotated when the drive is
+     *                    field-centric), false for robot-frame commands
+     */
+    public void requestTranslation(Source source, double y, double x, boolean driverFrame) {
+        requestTranslation(source, y, x, driverFrame, 1.0);
+    }
+
+    /**
+     * @param weight How far this request pulls the lower-priority result toward itself (0 to 1)
+     */
+    public void requestTranslation(Source source, double y, double x, boolean driverFrame, double weight) {
+        int i = source.ordinal();
+        if (driverFrame) {
+            // Same rotation as MecanumDrive.drive(), with left positive for the math
+            double angle = drive.getStickRotation();
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double forward = -y;
+            double left = -x;
+            y = -(forward * cos - left * sin);
+            x = -(forward * sin + left * cos);
+        }
+        requestY[i] = y;
+        requestX[i] = x;
+        translationWeight[i] = Math.max(0, Math.min(1, weight));
+        hasTranslation[i] = true;
+    }
+
+    public void requestRotation(Source source, double rx) {
+        requestRotation(source, rx, 1.0);
+    }
+
+    /**
+     * @param rx Rotation stick (clockwise positive)
+     * @param weight How far this request pulls the lower-priority result toward itself (0 to 1)
+     */
+    public void requestRotation(Source source, double rx, double weight) {
+        int i = source.ordinal();
+        requestRx[i] = rx;
+        rotationWeight[i] = Math.max(0, Math.min(1, weight));
+        hasRotation[i] = true;
+    }
+
+    /**
+     * The path follower is driving this loop; follower.update() will write the wheels.
+     */
+    public void requestFollower() {
+        int i = Source.PATH_FOLLOWER.ordinal();
+        hasTranslation[i] = true;
+        hasRotation[i] = true;
+        translationWeight[i] = 1.0;
+        rotationWeight[i] = 1.0;
+        requestY[i] = 0;
+        requestX[i] = 0;
+        requestRx[i] = 0;
+    }
+
+    /**
+     * Measured robot speed, so a follower handover restarts the acceleration limit from how the
+     * robot is really moving. Call each loop before arbitrate(); without it the robot is assumed
+     * to be at rest.
+     *
+     * @param forward Forward speed, robot frame (inches/second)
+     * @param strafe Strafe speed, robot frame, right positive (inches/second)
+     */
+    public void setMeasuredVelocity(double forward, double strafe) {
+        measuredForward = forward;
+        measuredStrafe = strafe;
+    }
+
+    // ===== ARBITRATION =====
+
+    /**
+     * Combines this loop's requests and clears them for the next loop. Read the result with
+     * getY/getX/getRx, then call apply().
+     */
+    public void arbitrate() {
+        y = 0;
+        x = 0;
+        rx = 0;
+        translationSource = null;
+        rotationSource = null;
+
+        for (int p = priority.length - 1; p >= 0; p--) {
+            Source source = priority[p];
+            int i = source.ordinal();
+            if (hasTranslation[i] && translationWeight[i] > 0) {
+                y += translationWeight[i] * (requestY[i] - y);
+                x += translationWeight[i] * (requestX[i] - x);
+                translationSource = source;
+            }
+            if (hasRotation[i] && rotationWeight[i] > 0) {
+                rx += rotationWeight[i] * (requestRx[i] - rx);
+                rotationSource = source;
+            }
+        }
+
+        // The follower only drives if nothing above it took either axis
+        boolean followerWasActive = followerActive;
+        followerActive = translationSource == Source.PATH_FOLLOWER && rotationSource == Source.PATH_FOLLOWER;
+        if (followerActive != followerWasActive) {
+            drive.resetAcceleration(measuredForward, measuredStrafe);
+        }
+
+        for (int i = 0; i < SOURCES; i++) {
+            hasTranslation[i] = false;
+            hasRotation[i] = false;
+        }
+    }
+
+    /**
+     * The single drive write for this loop. Skipped while the follower owns the wheels.
+     */
+    public void apply() {
+        apply(1.0);
+    }
+
+    /**
+     * @param scale Multiplies the whole command, for example a current budget drive scale
+     */
+    public void apply(double scale) {
+        if (followerActive) {
+            return;
+        }
+        // Undo drive()'s field-centric rotation, with left positive for the math
+        double angle = drive.getStickRotation();
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double forward = -y;
+        double left = -x;
+        double driverY = -(forward * cos + left * sin);
+        double driverX = -(-forward * sin + left * cos);
+        drive.drive(driverY * scale, driverX * scale, rx * scale);
+    }
+
+    // ===== RESULT (robot frame) =====
+
+    public double getY() {
+        return y;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getRx() {
+        return rx;
+    }
+
+    /**
+     * @return True if the last arbitrate() left the wheels to the path follower
+     */
+    public boolean isFollowerActive() {
+        return followerActive;
+    }
+
+    /** @return Highest-priority source in the last translation result, null if none asked */
+    public Source getTranslationSource() {
+        return translationSource;
+    }
+
+    /** @return Highest-priority source in the last rotation result, null if none asked */
+    public Source getRotationSource() {
+        return rotationSource;
+    }
+
+    public void addTelemetry(Telemetry telemetry) {
+        telemetry.addData("Drive Owner", followerActive ? "PATH_FOLLOWER"
+                : translationSource + " / " + rotationSource);
+    }
+}
@@ -0,0 +1,194 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import static org.firstinspires.ftc.teamcode.pedroPathing.FlightRecorder.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * FlightLog is a read-only view of a file written by FlightRecorder.
+ *
+ * The file is memory-mapped rather than read into the heap, so opening a log is cheap and records
+ * are decoded on demand. Records are indexed oldest first: index 0 is the oldest record still in the
+ * ring, which is the first record of the match unless the ring wrapped.
+ *
+ * Like FlightRecorder, this class only uses java.* APIs so it runs both on the robot and on a laptop.
+ */
+public class FlightLog {
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long totalRecords;
+    private final long startMillis;
+    private final int recordCount;
+    private final int firstSlot;
+
+    /**
+     * Maps a flight log and validates its header.
+     *
+     * @param file Log written by FlightRecorder
+     * @throws IOException if the file cannot be read or is not a compatible flight log
+     */
+    public FlightLog(File file) throws IOException {
+        this.file = file;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(file + " is too short to be a flight log");
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(BYTE_ORDER);
+
+        if (buffer.getInt(HEADER_MAGIC) != MAGIC) {
+            throw new IOException(file + " is not a flight log");
+        }
+        int version = buffer.getInt(HEADER_VERSION);
+        if (version != VERSION) {
+            throw new IOException("Unsupported flight log version " + version + " in " + file);
+        }
+        if (buffer.getInt(HEADER_RECORD_BYTES) != RECORD_BYTES) {
+            throw new IOException("Unexpected record size in " + file);
+        }
+
+        capacity = buffer.getInt(HEADER_CAPACITY);
+        totalRecords = buffer.getLong(HEADER_TOTAL_RECORDS);
+        startMillis = buffer.getLong(HEADER_START_MILLIS);
+
+        // A log cut short (robot power loss) may have fewer complete slots than its header claims
+        long slotsInFile = (buffer.capacity() - HEADER_BYTES) / RECORD_BYTES;
+        recordCount = (int) Math.min(Math.min(totalRecords, capacity), slotsInFile);
+        firstSlot = totalRecords > capacity ? (int) (totalRecords % capacity) : 0;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return OpMode name taken from the file name (flight_NAME_yyyyMMdd_HHmmss.bin, with an
+     * optional _N run index), or the file name itself if it does not follow that pattern
+     */
+    public String getOpModeName() {
+        String name = file.getName();
+        if (name.startsWith(PREFIX)) {
+            String rest = name.substring(PREFIX.length());
+            String opModeName = rest.replaceFirst("_\\d{8}_\\d{6}(_\\d+)?\\.bin$", "");
+            if (!opModeName.equals(rest) && !opModeName.isEmpty()) {
+                return opModeName;
+            }
+        }
+        return name;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getTotalRecords() {
+        return totalRecords;
+    }
+
+    /**
+     * @return Number of records available, at most the ring capacity
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return True if older records were overwritten because the match outlasted the ring
+     */
+    public boolean hasWrapped() {
+        return totalRecords > capacity;
+    }
+
+    public long getTimeNanos(int index) {
+        return buffer.getLong(offset(index) + OFFSET_TIME_NANOS);
+    }
+
+    public double getTimeSeconds(int index) {
+        return getTimeNanos(index) / 1e9;
+    }
+
+    public float getX(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_X);
+    }
+
+    public float getY(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_Y);
+    }
+
+    public float getHeading(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_HEADING);
+    }
+
+    public float getVx(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_VX);
+    }
+
+    public float getVy(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_VY);
+    }
+
+    public float getOmega(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_OMEGA);
+    }
+
+    public float getFlywheelRpm(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_FLYWHEEL_RPM);
+    }
+
+    public float getFlywheelTarget(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_FLYWHEEL_TARGET);
+    }
+
+    public float getFlywheelPower(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_FLYWHEEL_POWER);
+    }
+
+    public float getGate(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_GATE);
+    }
+
+    public float getIntake(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_INTAKE);
+    }
+
+    public float getRotationCommand(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_ROTATION);
+    }
+
+    public float getLoopMs(int index) {
+        return buffer.getFloat(offset(index) + OFFSET_LOOP_MS);
+    }
+
+    public int getFlags(int index) {
+        return buffer.getInt(offset(index) + OFFSET_FLAGS);
+    }
+
+    public boolean hasFlag(int index, int flag) {
+        return (getFlags(index) & flag) != 0;
+    }
+
+    public int getSegment(int index) {
+        return buffer.getInt(offset(index) + OFFSET_SEGMENT);
+    }
+
+    /**
+     * Converts an oldest-first record index into a byte offset in the mapped file.
+     */
+    private int offset(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        int slot = (firstSlot + index) % capacity;
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+}
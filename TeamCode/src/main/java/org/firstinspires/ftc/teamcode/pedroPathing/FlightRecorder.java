@@ -0,0 +1,246 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * FlightRecorder keeps full-rate match data in a preallocated, memory-mapped ring file.
+ *
+ * Every loop the OpMode fills one fixed-width record (pose, velocities, flywheel, gate, intake,
+ * zone flags, loop time) and commits it. Values are written with absolute puts straight into the
+ * mapped file, so recording does not allocate and does not block on storage; the kernel flushes the
+ * pages in the background. When the file is full the oldest records are overwritten.
+ *
+ * File layout (little-endian):
+ * - Header, HEADER_BYTES long: MAGIC, VERSION, RECORD_BYTES, capacity (ints), total records written
+ *   (long), recording start wall-clock time in milliseconds (long), then reserved space.
+ * - capacity records, RECORD_BYTES each, at the offsets given by the OFFSET_* constants.
+ *   Record i of the match lives in slot (i % capacity).
+ *
+ * This class only uses java.* APIs so that offline tools can read the same layout on a laptop.
+ *
+ * Usage:
+ *   recorder.beginRecord()
+ *           .pose(x, y, heading)
+ *           .velocity(vx, vy, omega)
+ *           .flags(flags);
+ *   recorder.commitRecord();
+ */
+public class FlightRecorder {
+
+    // ===== FILE FORMAT =====
+    public static final int MAGIC = 0x464C5452;  // "FLTR"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int RECORD_BYTES = 72;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // ===== HEADER OFFSETS =====
+    public static final int HEADER_MAGIC = 0;
+    public static final int HEADER_VERSION = 4;
+    public static final int HEADER_RECORD_BYTES = 8;
+    public static final int HEADER_CAPACITY = 12;
+    public static final int HEADER_TOTAL_RECORDS = 16;
+    public static final int HEADER_START_MILLIS = 24;
+
+    // ===== RECORD OFFSETS =====
+    public static final int OFFSET_TIME_NANOS = 0;        // long, nanoseconds since recording start
+    public static final int OFFSET_X = 8;                 // float, inches
+    public static final int OFFSET_Y = 12;                // float, inches
+    public static final int OFFSET_HEADING = 16;          // float, radians
+    public static final int OFFSET_VX = 20;               // float, inches per second
+    public static final int OFFSET_VY = 24;               // float, inches per second
+    public static final int OFFSET_OMEGA = 28;            // float, radians per second
+    public static final int OFFSET_FLYWHEEL_RPM = 32;     // float, measured flywheel RPM
+    public static final int OFFSET_FLYWHEEL_TARGET = 36;  // float, target RPM (0 when open loop)
+    public static final int OFFSET_FLYWHEEL_POWER = 40;   // float, commanded flywheel power
+    public static final int OFFSET_GATE = 44;             // float, gate servo position
+    public static final int OFFSET_INTAKE = 48;           // float, commanded intake power
+    public static final int OFFSET_ROTATION = 52;         // float, rotation command sent to the drive
+    public static final int OFFSET_LOOP_MS = 56;          // float, duration of the previous loop
+    public static final int OFFSET_FLAGS = 60;            // int, FLAG_* bits
+    public static final int OFFSET_SEGMENT = 64;          // int, OpMode-defined phase (auto step, shoot position)
+
+    // ===== FLAG BITS =====
+    public static final int FLAG_FRONT_ZONE = 1;          // Inside the front shoot area
+    public static final int FLAG_BACK_ZONE = 1 << 1;      // Inside the back shoot area
+    public static final int FLAG_GATE_OPEN = 1 << 2;      // Gate commanded open (shooting)
+    public static final int FLAG_TEST_MODE = 1 << 3;      // TeleOp test shooting mode
+    public static final int FLAG_MAX_MODE = 1 << 4;       // TeleOp max RPM mode
+    public static final int FLAG_PATH_ACTIVE = 1 << 5;    // Driving to a target (path or move)
+    public static final int FLAG_STICKS_IDLE = 1 << 6;    // Driver sticks inside the deadband
+    public static final int FLAG_AUTONOMOUS = 1 << 7;     // Recorded by an autonomous OpMode
+    public static final int FLAG_FLYWHEEL_OVERRIDE = 1 << 8;  // Driver forcing full flywheel power
+    public static final int FLAG_TAG_RANGE = 1 << 9;      // Flywheel scaled from the camera tag range, not the pose
+    public static final int FLAG_PREDICTED_POSE = 1 << 10; // Controllers acted on PosePredictor's pose, not the recorded one
+    public static final int FLAG_CURRENT_LIMITED = 1 << 11; // Flywheel power cut or slew-limited by the current budget
+
+    // ===== DEFAULT SIZE =====
+    // 3 minutes at 100 loops per second covers a full match with margin (about 1.3 MB)
+    public static final int DEFAULT_CAPACITY = 18000;
+
+    // ===== FILE NAMING =====
+    public static final int DEFAULT_KEEP = 10;  // Logs kept per OpMode; older ones are deleted
+    public static final String PREFIX = "flight_";
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long startNanos;
+
+    private long totalRecords = 0;
+    private int recordOffset = HEADER_BYTES;
+
+    /**
+     * Creates (or replaces) a ring file and maps it into memory.
+     *
+     * @param path File to write
+     * @param capacity Number of records kept before the oldest are overwritten
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public FlightRecorder(File path, int capacity) throws IOException {
+        File dir = path.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        this.capacity = capacity;
+        long size = HEADER_BYTES + (long) capacity * RECORD_BYTES;
+
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(size);
+        channel = file.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(BYTE_ORDER);
+
+        buffer.putInt(HEADER_MAGIC, MAGIC);
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_RECORD_BYTES, RECORD_BYTES);
+        buffer.putInt(HEADER_CAPACITY, capacity);
+        buffer.putLong(HEADER_TOTAL_RECORDS, 0);
+        buffer.putLong(HEADER_START_MILLIS, System.currentTimeMillis());
+
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Builds a timestamped file name so each match keeps its own log, for example
+     * flight_DriverControlled_20251019_143015.bin.
+     *
+     * @param dir Directory for the log (AppUtil.ROBOT_DATA_DIR on the robot)
+     * @param opModeName Short name of the OpMode, without spaces or underscores
+     * @return File for a new flight log; never an existing file
+     */
+    public static File newLogFile(File dir, String opModeName) {
+        return LogFiles.newLogFile(dir, PREFIX, opModeName);
+    }
+
+    /**
+     * Deletes all but the newest flight logs for the OpMode. Each log is preallocated to its full
+     * capacity, so without this every run adds about 1.3 MB to the Control Hub's storage.
+     *
+     * @param dir Directory the logs are in
+     * @param opModeName Name passed to newLogFile
+     * @param keep Number of logs to keep
+     * @return Logs that could not be deleted
+     */
+    public static File[] deleteOldLogs(File dir, String opModeName, int keep) {
+        return LogFiles.deleteOldLogs(dir, PREFIX, opModeName, keep);
+    }
+
+    /**
+     * Starts a new record in the next ring slot. The slot is cleared and stamped with the current
+     * time; fill it with the setters below, then call commitRecord().
+     *
+     * @return this recorder, for chaining setters
+     */
+    public FlightRecorder beginRecord() {
+        recordOffset = HEADER_BYTES + (int) (totalRecords % capacity) * RECORD_BYTES;
+        for (int i = 0; i < RECORD_BYTES; i += 8) {
+            buffer.putLong(recordOffset + i, 0L);
+        }
+        buffer.putLong(recordOffset + OFFSET_TIME_NANOS, System.nanoTime() - startNanos);
+        return this;
+    }
+
+    public FlightRecorder pose(double x, double y, double heading) {
+        buffer.putFloat(recordOffset + OFFSET_X, (float) x);
+        buffer.putFloat(recordOffset + OFFSET_Y, (float) y);
+        buffer.putFloat(recordOffset + OFFSET_HEADING, (float) heading);
+        return this;
+    }
+
+    public FlightRecorder velocity(double vx, double vy, double omega) {
+        buffer.putFloat(recordOffset + OFFSET_VX, (float) vx);
+        buffer.putFloat(recordOffset + OFFSET_VY, (float) vy);
+        buffer.putFloat(recordOffset + OFFSET_OMEGA, (float) omega);
+        return this;
+    }
+
+    public FlightRecorder flywheel(double rpm, double targetRpm, double power) {
+        buffer.putFloat(recordOffset + OFFSET_FLYWHEEL_RPM, (float) rpm);
+        buffer.putFloat(recordOffset + OFFSET_FLYWHEEL_TARGET, (float) targetRpm);
+        buffer.putFloat(recordOffset + OFFSET_FLYWHEEL_POWER, (float) power);
+        return this;
+    }
+
+    public FlightRecorder gate(double position) {
+        buffer.putFloat(recordOffset + OFFSET_GATE, (float) position);
+        return this;
+    }
+
+    public FlightRecorder intake(double power) {
+        buffer.putFloat(recordOffset + OFFSET_INTAKE, (float) power);
+        return this;
+    }
+
+    public FlightRecorder rotationCommand(double rotation) {
+        buffer.putFloat(recordOffset + OFFSET_ROTATION, (float) rotation);
+        return this;
+    }
+
+    public FlightRecorder loopMs(double loopMs) {
+        buffer.putFloat(recordOffset + OFFSET_LOOP_MS, (float) loopMs);
+        return this;
+    }
+
+    public FlightRecorder flags(int flags) {
+        buffer.putInt(recordOffset + OFFSET_FLAGS, flags);
+        return this;
+    }
+
+    public FlightRecorder segment(int segment) {
+        buffer.putInt(recordOffset + OFFSET_SEGMENT, segment);
+        return this;
+    }
+
+    /**
+     * Publishes the record started by beginRecord() by advancing the record count in the header.
+     */
+    public void commitRecord() {
+        totalRecords++;
+        buffer.putLong(HEADER_TOTAL_RECORDS, totalRecords);
+    }
+
+    public long getTotalRecords() {
+        return totalRecords;
+    }
+
+    /**
+     * Flushes the mapped pages to storage and closes the file. Call when the OpMode ends.
+     */
+    public void close() {
+        buffer.force();
+        try {
+            channel.close();
+            file.close();
+        } catch (IOException ignored) {
+            // The data is already flushed; nothing useful to do if close fails
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * FlywheelController picks the open-loop flywheel power from the robot's shooting zone and its
+ * distance to the alliance goal.
+ *
+ * - Front shoot area: distance / MAX_FRONT_SHOOT_DISTANCE, scaled by SHORT_SHOT_SCALE
+ * - Back shoot area: distance / distance-to-back-reference-vertex, scaled by FULL_SHOT_SCALE
+ * - Outside both zones: off
+ * - Manual override (D-Pad Down in FreeSpin): full power regardless of zone
+ *
+ * The back reference vertex is the corner of the back shoot area furthest from the goal, which is
+ * (x6, y6) for Red and (x8, y6) for Blue.
+ *
+ * calculatePowerAtDistance() takes the distance from another source instead of the pose, such as
+ * the HuskyLens range to the goal tag when the odometry pose is in doubt.
+ *
+ * The controller has no hardware dependencies, so the same code runs on the robot and in
+ * ReplayEngine against recorded matches.
+ */
+public class FlywheelController {
+
+    // ===== FLYWHEEL POWER CONSTANTS (EDITABLE) =====
+    public static final double SHORT_SHOT_SCALE = 0.5;  // Scale for short shot (front area)
+    public static final double FULL_SHOT_SCALE = 1.0;   // Full power for back area
+    public static final double OVERRIDE_POWER = 1.0;    // Manual full-power override
+
+    // ===== SHOOTING DISTANCE CONFIGURATION (EDITABLE) =====
+    public static final double MAX_FRONT_SHOOT_DISTANCE = 152.4;  // Maximum distance robot can shoot from front zone (centimeters)
+
+    public double targetX;         // Goal X (inches)
+    public double targetY;         // Goal Y (inches)
+    public double backReferenceX;  // Back shoot area vertex furthest from the goal
+    public double backReferenceY;
+
+    /**
+     * @param targetX Alliance goal X coordinate
+     * @param targetY Alliance goal Y coordinate
+     * @param backReferenceX X of the back shoot area vertex used as the maximum distance
+     * @param backReferenceY Y of the back shoot area vertex used as the maximum distance
+     */
+    public FlywheelController(double targetX, double targetY, double backReferenceX, double backReferenceY) {
+        this.targetX = targetX;
+        this.targetY = targetY;
+        this.backReferenceX = backReferenceX;
+        this.backReferenceY = backReferenceY;
+    }
+
+    /**
+     * Flywheel power for this loop.
+     *
+     * @param robotX Robot X coordinate
+     * @param robotY Robot Y coordinate
+     * @param inFrontArea True if the robot is in the front shoot area
+     * @param inBackArea True if the robot is in the back shoot area
+     * @param fullPowerOverride True if the driver is forcing full power
+     * @return Flywheel power (0.0 to 1.0)
+     */
+    public double calculatePower(double robotX, double robotY, boolean inFrontArea, boolean inBackArea,
+                                 boolean fullPowerOverride) {
+        return calculatePowerAtDistance(distanceToTarget(robotX, robotY), inFrontArea, inBackArea, fullPowerOverride);
+    }
+
+    /**
+     * Flywheel power for this loop from a measured distance to the goal.
+     *
+     * @param distance Distance from the robot to the goal
+     * @param inFrontArea True if the robot is in the front shoot area
+     * @param inBackArea True if the robot is in the back shoot area
+     * @param fullPowerOverride True if the driver is forcing full power
+     * @return Flywheel power (0.0 to 1.0)
+     */
+    public double calculatePowerAtDistance(double distance, boolean inFrontArea, boolean inBackArea,
+                                           boolean fullPowerOverride) {
+        if (fullPowerOverride) {
+            return OVERRIDE_POWER;
+        }
+        if (inFrontArea) {
+            return frontDistanceRatio(distance) * SHORT_SHOT_SCALE;
+        }
+        if (inBackArea) {
+            return backDistanceRatio(distance) * FULL_SHOT_SCALE;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Scales power by distance to the goal for the front shoot zone, using MAX_FRONT_SHOOT_DISTANCE
+     * as the maximum distance reference. The closer the robot is, the lower the power.
+     *
+     * @param robotX The robot's current X coordinate
+     * @param robotY The robot's current Y coordinate
+     * @return Distance ratio (0.0 to 1.0)
+     */
+    public double calculateFrontShootDistanceScaledPower(double robotX, double robotY) {
+        return frontDistanceRatio(distanceToTarget(robotX, robotY));
+    }
+
+    /**
+     * Scales power by distance to the goal for the back shoot zone, using the back reference vertex
+     * as the maximum distance reference. At that vertex full power is applied.
+     *
+     * @param robotX The robot's current X coordinate
+     * @param robotY The robot's current Y coordinate
+     * @return Distance ratio (0.0 to 1.0)
+     */
+    public double calculateDistanceScaledFlywheelPower(double robotX, double robotY) {
+        return backDistanceRatio(distanceToTarget(robotX, robotY));
+    }
+
+    /**
+     * @return Euclidean distance from (x, y) to the alliance goal
+     */
+    public double distanceToTarget(double x, double y) {
+        double deltaX = targetX - x;
+        double deltaY = targetY - y;
+        return Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+    }
+
+    private double frontDistanceRatio(double distance) {
+        // Avoid division by zero
+        if (MAX_FRONT_SHOOT_DISTANCE == 0) {
+            return 1.0;
+        }
+        return clampRatio(distance / MAX_FRONT_SHOOT_DISTANCE);
+    }
+
+    private double backDistanceRatio(double distance) {
+        double maxDistance = distanceToTarget(backReferenceX, backReferenceY);
+
+        // Avoid division by zero
+        if (maxDistance == 0) {
+            return 1.0;
+        }
+        return clampRatio(distance / maxDistance);
+    }
+
+    private static double clampRatio(double ratio) {
+        return Math.max(0.0, Math.min(1.0, ratio));
+    }
+}
@@ -9,21 +9,18 @@ import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.Servo;
-//import com.qualcomm.hardware.dfrobot.HuskyLens;
+import com.qualcomm.robotcore.util.RobotLog;
+import com.qualcomm.hardware.dfrobot.HuskyLens;
 
-//import org.firstinspires.ftc.robotcore.internal.system.Deadline;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
 
-import java.util.concurrent.TimeUnit;
+import java.io.File;
+import java.io.IOException;
 
 @TeleOp(name = "FreeSpinRed", group = "Testing")
 public class FreeSpinRed extends LinearOpMode {
 
-    // ===== FLYWHEEL POWER CONSTANTS =====
-    private static final double SHORT_SHOT_SCALE = 0.5;  // Scale for short shot (front area)
-    private static final double FULL_SHOT_SCALE = 1.0;   // Full power for back area
-
-    // ===== SHOOTING DISTANCE CONFIGURATION =====
-    private static final double MAX_FRONT_SHOOT_DISTANCE = 152.4;  // Maximum distance robot can shoot from front zone (centimeters) - EDITABLE
+    // Flywheel power scales and the front shoot distance live in FlywheelController
 
     // ===== SHOOTING ZONE TARGET HEADING =====
     private static final double TARGET_X = 131.5;  // Red alliance target X
@@ -38,20 +35,39 @@ public class FreeSpinRed extends LinearOpMode {
     private static final double ENCODER_TICKS_PER_REV = 28;  // REV HD Hex Motor encoder ticks
     private static final double POSITION_TOLERANCE_INCHES = 3.0;  // Position tolerance
 
-    // ===== HARDWARE DECLARATIONS =====
+    // ===== HUSKYLENS ALIGNMENT =====
+    private static final int HUSKYLENS_GOAL_TAG_ID = 1;  // ID the goal tag was learned as on the HuskyLens
+
+    // ===== STICK RESPONSE (EDITABLE) =====
+    private static final ResponseCurve TRANSLATION_CURVE = ResponseCurve.expo(0.4, 0.05);  // Finer control near center
+    private static final ResponseCurve ROTATION_CURVE = ResponseCurve.expo(0.6, 0.05);
+
+    // ===== FIELD-CENTRIC DRIVE (EDITABLE) =====
+    // Forward on the stick drives along the start heading until D-Pad Up resets the field pose,
+    // then along this field heading. Y re-zeros to the way the robot faces.
+    private static final double DRIVER_HEADING = Math.toRadians(180);  // Red drivers look toward -X from the alliance station
 
-    private final int READ_PERIOD = 1;
+    // ===== HARDWARE DECLARATIONS =====
 
-//    private HuskyLens huskyLens;
+    private HuskyLens huskyLens;  // Optional; Left Bumper alignment is disabled without it
+    private VisualServoController tagAligner;
+    private long lastHuskyLensReadNanos = 0;
 
-    private DcMotor intake;
+    private DcMotorEx intake;
     private DcMotorEx flywheel;
 
     private Servo gate;  // SERVO DISABLED - NOT USED IN THIS TEST
 
     private Follower follower;
     private MecanumDrive drive;
+    private DriveArbiter driveArbiter;  // Collects driver, aim and tag requests; one wheel write per loop
     private CoordinateTriangle shootingZones;
+    private AimController aimController;
+    private FlywheelController flywheelController;
+    private final PosePredictor posePredictor = new PosePredictor();  // Pose at actuation time
+    private CurrentBudgetArbiter currentBudget;
+    private FlightRecorder flightRecorder;
+    private VisionManager visionManager;  // Only present when the follower fuses a webcam
 
     // ===== SHOOTING SYSTEM STATE VARIABLES =====
 
@@ -63,6 +79,9 @@ public class FreeSpinRed extends LinearOpMode {
     private boolean isMovingToShootPosition = false;
     private ShootPosition currentShootPosition = ShootPosition.NONE;
     private boolean isTestShootingMode = false;
+    private double intakePower = 0;    // Last commanded intake power (for the flight recorder)
+    private double flywheelPower = 0;  // Last commanded flywheel power (for the flight recorder)
+    private long lastLoopNanos = 0;
 
     // State tracking for D-Pad button releases
     private boolean previousDpadUp = false;
@@ -76,20 +95,9 @@ public class FreeSpinRed extends LinearOpMode {
     @Override
     public void runOpMode() {
         // --- INITIALIZATION PHASE ---
-//        huskyLens = hardwareMap.get(HuskyLens.class, "huskylens");
-//        Deadline rateLimit = new Deadline(READ_PERIOD, TimeUnit.SECONDS);
-//        rateLimit.expire();
-//
-//        if (!huskyLens.knock()) {
-//            telemetry.addData(">>", "Problem communicating with " + huskyLens.getDeviceName());
-//        } else {
-//            telemetry.addData(">>", "Press start to continue");
-//        }
-//
-//        huskyLens.selectAlgorithm(HuskyLens.Algorithm.TAG_RECOGNITION);
-
         // Initialize the MecanumDrive object. This will map and configure all drive motors.
         drive = new MecanumDrive(hardwareMap);
+        driveArbiter = new DriveArbiter(drive);
 
         // Set all drive motors to BRAKE zero power behavior
         drive.frontLeft.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
@@ -97,15 +105,40 @@ public class FreeSpinRed extends LinearOpMode {
         drive.frontRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
         drive.backRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
 
+        // Open loop unless velocity mode has been tuned and opted in (see MecanumDrive.USE_VELOCITY_CONTROL)
+        drive.setVelocityControl(MecanumDrive.USE_VELOCITY_CONTROL);
+        // Full-stick reversals ramp at what the tires can hold instead of spinning the wheels
+        drive.setAccelerationLimiter(new AccelerationLimiter());
+        // Auto-aim keeps its full turn rate while the driver translates
+        drive.setDesaturation(MecanumDrive.Desaturation.ROTATION_PRIORITY);
+        // Sticks are seen from the driver station, using the heading the follower already tracks
+        drive.setFieldCentric(true);
+
         // Initialize PedroPathing follower for autonomous positioning
         follower = createFollower(hardwareMap);
+        if (follower.getPoseTracker().getLocalizer() instanceof FusionLocalizer) {
+            visionManager = ((FusionLocalizer) follower.getPoseTracker().getLocalizer()).getVisionManager();
+        }
 
 
         // Initialize CoordinateTriangle for shooting zone detection
         shootingZones = new CoordinateTriangle();
+        aimController = createAimController();
+        flywheelController = createFlywheelController(shootingZones);
+
+        // HuskyLens for goal tag alignment (Left Bumper)
+        huskyLens = hardwareMap.tryGet(HuskyLens.class, "huskylens");
+        if (huskyLens != null) {
+            if (huskyLens.knock()) {
+                huskyLens.selectAlgorithm(HuskyLens.Algorithm.TAG_RECOGNITION);
+                tagAligner = new VisualServoController(HUSKYLENS_GOAL_TAG_ID);
+            } else {
+                telemetry.addData(">>", "Problem communicating with " + huskyLens.getDeviceName());
+            }
+        }
 
         // Map the intake motor from the hardware configuration
-        intake = hardwareMap.get(DcMotor.class, "intake");
+        intake = hardwareMap.get(DcMotorEx.class, "intake");
 
         // Map the flywheel motor (using DcMotorEx for RPM/velocity control)
         flywheel = hardwareMap.get(DcMotorEx.class, "output");
@@ -122,12 +155,28 @@ public class FreeSpinRed extends LinearOpMode {
         flywheel.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
         flywheel.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
 
+        // Share the current limit between shooter, intake and drivetrain
+        currentBudget = new CurrentBudgetArbiter(flywheel, intake,
+                drive.frontLeft, drive.backLeft, drive.frontRight, drive.backRight);
+
         // Discover motor max RPM for "full capacity" mode
         flywheelMaxRPM = flywheel.getMotorType().getMaxRPM();
 
         // // SERVO GATE CLOSED POSITION INITIALIZATION DISABLED - NOT USED IN THIS TEST
         gate.setPosition(GATE_CLOSED_POSITION);
 
+        // Open a new flight log for post-match analysis
+        try {
+            flightRecorder = new FlightRecorder(
+                    FlightRecorder.newLogFile(AppUtil.ROBOT_DATA_DIR, "FreeSpinRed"),
+                    FlightRecorder.DEFAULT_CAPACITY);
+            for (File oldLog : FlightRecorder.deleteOldLogs(AppUtil.ROBOT_DATA_DIR, "FreeSpinRed", FlightRecorder.DEFAULT_KEEP)) {
+                RobotLog.ww("FreeSpinRed", "Could not delete old flight log " + oldLog);
+            }
+        } catch (IOException e) {
+            RobotLog.ee("FreeSpinRed", e, "Flight recorder unavailable");
+        }
+
         telemetry.addData("Status", "Initialized");
         telemetry.addData("Alliance", "RED");
         telemetry.addData("Target Heading", "(" + TARGET_X + ", " + TARGET_Y + ")");
@@ -141,125 +190,117 @@ public class FreeSpinRed extends LinearOpMode {
         // --- TELEOP LOOP ---
         while (opModeIsActive()) {
 
-//            if (!rateLimit.hasExpired()) {
-//                continue;
-//            }
-//            rateLimit.reset();
-//
-//            HuskyLens.Block[] blocks = huskyLens.blocks();
-//            telemetry.addData("Block count", blocks.length);
-//            for (HuskyLens.Block block : blocks) {
-//                telemetry.addData("Block", block.toString());
+                // --- D-Pad Up - Update Follower Pose to (129.5, 109.5) at 0 degrees ---
+                if (gamepad1.dpad_up) {
+                    drive.setDriverHeading(DRIVER_HEADING);
+                    follower.setStartingPose(new com.pedropathing.geometry.Pose(129.5, 109.5, Math.toRadians(0)));
+                }
+
+                // --- Update Follower (PedroPathing) before any request, so field-centric sticks use this loop's heading ---
+                follower.update();
+                posePredictor.update(System.nanoTime(), follower);
+                drive.setHeading(posePredictor.getHeading());
+
+                // --- Y - Re-zero field-centric forward to the way the robot faces ---
+                if (gamepad1.yWasPressed()) {
+                    drive.zeroHeading();
+                }
 
                 // --- Drive Train Control ---
                 double y = gamepad1.left_stick_y;
                 double x = gamepad1.left_stick_x;
                 double rx = gamepad1.right_stick_x;
 
-                // Call the drive method from our MecanumDrive class
-                drive.drive(y, x, rx);
-
-//                // --- Align Robot based on huskylens ---
-//                if (gamepad1.left_bumper) {
-//                    if (block.id != 0) {
-//                        if (block.x > 215) {
-//                            //STRAFE LEFT until  blocks[i].x between 205 and 215
-//                            drive.drive(0, -1, 0);
-//                        } else if (block.x < 205) {
-//                            //STRAFE RIGHT until blocks[i].x between 205 and 215
-//                            drive.drive(0, 1, 0);
-//                        }
-//
-//                    } else if (block.id == 2) {
-//                        if (block.x > 215) {
-//                            //STRAFE LEFT until  blocks[i].x between 205 and 215
-//                            drive.drive(0, 1, 0);
-//                        } else if (block.x < 205) {
-//                            //STRAFE RIGHT until blocks[i].x between 205 and 215
-//                            drive.drive(0, -1, 0);
-//                        }
-//
-//                    }
-//
-//                }
-
-                // --- Update Follower (PedroPathing)
-                follower.update();
+                // Idle is judged on the raw sticks, then the sticks are shaped for driving
+                boolean sticksIdle = AimController.areSticksIdle(y, x, rx);
+                y = TRANSLATION_CURVE.apply(y);
+                x = TRANSLATION_CURVE.apply(x);
+                rx = ROTATION_CURVE.apply(rx);
+
+                // Driver request; aim and tag alignment below may take over parts of it
+                driveArbiter.requestTranslation(DriveArbiter.Source.DRIVER, y, x, true);
+                driveArbiter.requestRotation(DriveArbiter.Source.DRIVER, rx);
 
-                // --- Check Shooting Zones ---
-                shootingZones.checkIfRobotInFrontShootArea(follower);
-                shootingZones.checkIfRobotInBackShootArea(follower);
+                // --- Check Shooting Zones (at the pose the robot will have when this loop's commands land) ---
+                shootingZones.checkIfRobotInFrontShootArea(posePredictor.getX(), posePredictor.getY());
+                shootingZones.checkIfRobotInBackShootArea(posePredictor.getX(), posePredictor.getY());
 
                 // --- Intake Control ---
                 if (gamepad1.right_trigger > 0.1) {
-                    intake.setPower(1.0);
+                    intakePower = 1.0;
                 } else {
-                    intake.setPower(0.0);
+                    intakePower = 0.0;
                 }
 
                 // --- Face Target Heading When in Shooting Zones (only when joysticks are idle) ---
-                // Check if both joysticks are not being used (driver is not inputting)
-                boolean isLeftStickIdle = Math.abs(gamepad1.left_stick_y) < 0.1 && Math.abs(gamepad1.left_stick_x) < 0.1;
-                boolean isRightStickIdle = Math.abs(gamepad1.right_stick_x) < 0.1;
-
-                if ((shootingZones.isInFrontShootArea() || shootingZones.isInBackShootArea()) && isLeftStickIdle && isRightStickIdle) {
-                    double robotX = follower.getPose().getX();
-                    double robotY = follower.getPose().getY();
-
-                    // Calculate desired heading to face target
-                    double deltaX = TARGET_X - robotX;
-                    double deltaY = TARGET_Y - robotY;
-                    double desiredHeading = Math.atan2(deltaY, deltaX);
-
-                    // Get current heading
-                    double currentHeading = follower.getPose().getHeading();
-
-                    // Calculate heading error
-                    double headingError = desiredHeading - currentHeading;
-
-                    // Normalize heading error to (-PI, PI]
-                    while (headingError > Math.PI) headingError -= 2 * Math.PI;
-                    while (headingError <= -Math.PI) headingError += 2 * Math.PI;
-
-                    // Apply proportional control for rotation
-                    double rotationPower = Math.max(-1.0, Math.min(1.0, headingError * 0.5));
-                    rx = rotationPower;
-
-                    // Update drive with new rotation
-                    drive.drive(y, x, rx);
+                boolean inFrontArea = shootingZones.isInFrontShootArea();
+                boolean inBackArea = shootingZones.isInBackShootArea();
+                if ((inFrontArea || inBackArea) && sticksIdle) {
+                    rx = aimController.calculateAimRotation(posePredictor.getX(), posePredictor.getY(),
+                            posePredictor.getHeading());
+                    driveArbiter.requestRotation(DriveArbiter.Source.AIM_ASSIST, rx);
                 }
 
-                // --- Flywheel Control Based on Shooting Zones ---
-                if (shootingZones.isInFrontShootArea() || shootingZones.isInBackShootArea()) {
-                    double robotX = follower.getPose().getX();
-                    double robotY = follower.getPose().getY();
-
-                    // Apply appropriate power based on shooting zone
-                    if (shootingZones.isInFrontShootArea()) {
-                        double frontDistanceScaledPower = calculateFrontShootDistanceScaledPower(robotX, robotY);
-                        flywheel.setPower(frontDistanceScaledPower * SHORT_SHOT_SCALE);
+                // --- Left Bumper - Strafe to line up with the goal tag (HuskyLens) ---
+                // The strafe is in the robot frame, so the sticks are robot-relative while aligning
+                if (tagAligner != null) {
+                    if (gamepad1.left_bumper) {
+                        long now = System.nanoTime();
+                        if (now - lastHuskyLensReadNanos >= VisualServoController.READ_PERIOD_MS * 1_000_000L) {
+                            lastHuskyLensReadNanos = now;
+                            tagAligner.update(huskyLens.blocks(), now);
+                        }
+                        x = tagAligner.calculateStrafe(now);
+                        driveArbiter.requestTranslation(DriveArbiter.Source.VISUAL_SERVO, y, x, false);
                     } else {
-                        double scaledPower = calculateDistanceScaledFlywheelPower(robotX, robotY);
-                        flywheel.setPower(scaledPower * FULL_SHOT_SCALE);
+                        tagAligner.reset();
                     }
-                } else {
-                    flywheel.setPower(0.0);
-                }
-
-                // --- Manual Flywheel Override (if needed for testing) ---
-                // Priority 1: D-Pad Down - Run at 100% full power
-                if (gamepad1.dpad_down) {
-                    flywheel.setPower(1.0);  // Full power (100%)
                 }
 
-                // --- D-Pad Up - Update Follower Pose to (129.5, 109.5) at 0 degrees ---
-                if (gamepad1.dpad_up) {
-                    follower.setStartingPose(new com.pedropathing.geometry.Pose(129.5, 109.5, Math.toRadians(0)));
+                // --- Flywheel Control Based on Shooting Zones ---
+                // D-Pad Down overrides to 100% full power for testing
+                // While aligning on the goal tag, its camera range replaces the odometry distance
+                boolean flywheelOverride = gamepad1.dpad_down;
+                boolean useTagRange = tagAligner != null && tagAligner.hasTarget();
+                if (useTagRange) {
+                    flywheelPower = flywheelController.calculatePowerAtDistance(tagAligner.getRangeInches(),
+                            inFrontArea, inBackArea, flywheelOverride);
+                } else {
+                    flywheelPower = flywheelController.calculatePower(posePredictor.getX(), posePredictor.getY(),
+                            inFrontArea, inBackArea, flywheelOverride);
                 }
 
                 // --- Right Bumper - Reverse INTAKE ONLY (not flywheel) ---
                 if (gamepad1.right_bumper) {
-                    intake.setPower(-1);    // Reverse intake only
+                    intakePower = -1;    // Reverse intake only
+                }
+
+                // --- Current Budget - Shooter recovery comes first while aiming, driving otherwise ---
+                boolean shooterFirst = (inFrontArea || inBackArea) && flywheelPower > 0;
+                if (shooterFirst) {
+                    currentBudget.setPriority(CurrentBudgetArbiter.Channel.SHOOTER,
+                            CurrentBudgetArbiter.Channel.INTAKE, CurrentBudgetArbiter.Channel.DRIVE);
+                } else {
+                    currentBudget.setPriority(CurrentBudgetArbiter.Channel.DRIVE,
+                            CurrentBudgetArbiter.Channel.INTAKE, CurrentBudgetArbiter.Channel.SHOOTER);
+                }
+                currentBudget.request(CurrentBudgetArbiter.Channel.SHOOTER, flywheelPower);
+                currentBudget.request(CurrentBudgetArbiter.Channel.INTAKE, intakePower);
+                driveArbiter.arbitrate();
+                currentBudget.request(CurrentBudgetArbiter.Channel.DRIVE, CurrentBudgetArbiter.driveDemand(
+                        driveArbiter.getY(), driveArbiter.getX(), driveArbiter.getRx()));
+                currentBudget.arbitrate();
+
+                boolean shooterLimited = currentBudget.isLimited(CurrentBudgetArbiter.Channel.SHOOTER);
+                flywheelPower = currentBudget.getCommand(CurrentBudgetArbiter.Channel.SHOOTER);
+                intakePower = currentBudget.getCommand(CurrentBudgetArbiter.Channel.INTAKE);
+                driveArbiter.apply(currentBudget.getScale(CurrentBudgetArbiter.Channel.DRIVE));
+                flywheel.setPower(flywheelPower);
+                intake.setPower(intakePower);
+
+                // --- Vision: only stream while aiming or intaking ---
+                if (visionManager != null) {
+                    visionManager.update(shootingZones, intakePower > 0);
                 }
 
                 if (gamepad1.a) {
@@ -268,6 +309,9 @@ public class FreeSpinRed extends LinearOpMode {
                     gate.setPosition(0);
                 }
 
+                // --- Flight Recorder ---
+                recordFlightData(rx, sticksIdle, flywheelOverride, useTagRange, shooterLimited);
+
                 // --- Telemetry ---
                 telemetry.addData("Left Stick Y", y);
                 telemetry.addData("Left Stick X", x);
@@ -277,91 +321,88 @@ public class FreeSpinRed extends LinearOpMode {
                 telemetry.addData("Robot X", follower.getPose().getX());
                 telemetry.addData("Robot Y", follower.getPose().getY());
                 telemetry.addData("Robot Heading (rad)", follower.getPose().getHeading());
+                telemetry.addData("Driver Heading (deg)", "%.0f", Math.toDegrees(drive.getDriverHeading()));
                 telemetry.addData("In Front Shoot Area", shootingZones.isInFrontShootArea());
                 telemetry.addData("In Back Shoot Area", shootingZones.isInBackShootArea());
                 telemetry.addData("Flywheel Power", flywheel.getPower());
                 telemetry.addData("Intake Power", intake.getPower());
+                if (tagAligner != null && tagAligner.hasTarget()) {
+                    telemetry.addData("Goal Tag Range (in)", "%.1f", tagAligner.getRangeInches());
+                }
+                if (visionManager != null) {
+                    visionManager.addTelemetry(telemetry);
+                }
+                currentBudget.addTelemetry(telemetry);
+                driveArbiter.addTelemetry(telemetry);
                 telemetry.update();
-            }
         }
 
+        if (flightRecorder != null) {
+            flightRecorder.close();
+        }
+    }
 
     /**
-     * Calculates the distance from the robot to the alliance goal and scales flywheel power accordingly for the front shoot zone.
-     * Uses MAX_FRONT_SHOOT_DISTANCE as the maximum distance reference.
-     *
-     * The scaling is a fraction: current_distance / max_distance
-     * This ensures that the closer the robot is, the lower the power, and at maximum distance, full power is applied.
+     * Writes one flight recorder record for the current loop. Zone flags come from the
+     * shootingZones state already updated this loop. The measured pose is recorded; the
+     * controllers acted on the predicted pose, which ReplayEngine rebuilds from it.
      *
-     * For Red alliance:
-     * - Target Goal: (131.5, 134.5)
-     * - Max Distance Reference: MAX_FRONT_SHOOT_DISTANCE (configurable, currently 60.0 inches)
-     *
-     * @param robotX The robot's current X coordinate
-     * @param robotY The robot's current Y coordinate
-     * @return Scaled flywheel power (0.0 to 1.0) based on distance ratio from target
+     * @param rotationCommand Rotation power sent to the drive (after auto-aim)
+     * @param sticksIdle True if the driver sticks are inside the deadband
+     * @param flywheelOverride True if the driver is forcing full flywheel power
+     * @param tagRange True if the flywheel power came from the HuskyLens tag range
+     * @param currentLimited True if the current budget cut or slew-limited the flywheel power
      */
-    private double calculateFrontShootDistanceScaledPower(double robotX, double robotY) {
-        // Calculate Euclidean distance from robot to target alliance goal
-        double deltaX = TARGET_X - robotX;
-        double deltaY = TARGET_Y - robotY;
-        double distanceToTarget = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
-
-        // Use configurable maximum front shoot distance
-        double maxDistance = MAX_FRONT_SHOOT_DISTANCE;
-
-        // Avoid division by zero
-        if (maxDistance == 0) {
-            return 1.0;  // Return full power if max distance is zero
+    private void recordFlightData(double rotationCommand, boolean sticksIdle, boolean flywheelOverride,
+                                  boolean tagRange, boolean currentLimited) {
+        long now = System.nanoTime();
+        double loopMs = lastLoopNanos == 0 ? 0 : (now - lastLoopNanos) / 1e6;
+        lastLoopNanos = now;
+
+        if (flightRecorder == null) {
+            return;
         }
 
-        // Calculate distance ratio (current distance / maximum distance)
-        double distanceRatio = distanceToTarget / maxDistance;
+        com.pedropathing.geometry.Pose pose = follower.getPose();
+        com.pedropathing.geometry.Pose velocity = follower.getPoseTracker().getLocalizer().getVelocity();
+
+        int flags = 0;
+        if (shootingZones.isInFrontShootArea()) flags |= FlightRecorder.FLAG_FRONT_ZONE;
+        if (shootingZones.isInBackShootArea()) flags |= FlightRecorder.FLAG_BACK_ZONE;
+        if (sticksIdle) flags |= FlightRecorder.FLAG_STICKS_IDLE;
+        if (flywheelOverride) flags |= FlightRecorder.FLAG_FLYWHEEL_OVERRIDE;
+        if (tagRange) flags |= FlightRecorder.FLAG_TAG_RANGE;
+        if (currentLimited) flags |= FlightRecorder.FLAG_CURRENT_LIMITED;
+        flags |= FlightRecorder.FLAG_PREDICTED_POSE;
+
+        flightRecorder.beginRecord()
+                .pose(pose.getX(), pose.getY(), pose.getHeading())
+                .velocity(velocity.getX(), velocity.getY(), velocity.getHeading())
+                .flywheel(flywheel.getVelocity() * 60.0 / ENCODER_TICKS_PER_REV, 0, flywheelPower)
+                .gate(gate.getPosition())
+                .intake(intakePower)
+                .rotationCommand(rotationCommand)
+                .loopMs(loopMs)
+                .flags(flags);
+        flightRecorder.commitRecord();
+    }
 
-        // Clamp ratio between 0 and 1 to ensure valid power output
-        distanceRatio = Math.max(0.0, Math.min(1.0, distanceRatio));
 
-        return distanceRatio;
+    /**
+     * Aim controller for the Red alliance goal. Shared with ControllerReplay so that replays run the
+     * exact configuration this OpMode drives with.
+     */
+    static AimController createAimController() {
+        return new AimController(TARGET_X, TARGET_Y);
     }
 
     /**
-     * Calculates the distance from the robot to the alliance goal and scales flywheel power accordingly.
-     * Uses the furthest vertex (x6, y6) of the back shoot area as the maximum distance reference.
+     * Flywheel controller for the Red alliance goal. Uses the furthest vertex (x6, y6) of the back
+     * shoot area as the maximum distance reference.
      *
-     * The scaling is a fraction: current_distance / max_distance
-     * This ensures that the closer the robot is, the lower the power, and at maximum distance, full power is applied.
-     *
-     * For Red alliance:
-     * - Target Goal: (131.5, 134.5)
-     * - Max Distance Reference Point: (shootingZones.x6, shootingZones.y6)
-     *
-     * @param robotX The robot's current X coordinate
-     * @param robotY The robot's current Y coordinate
-     * @return Scaled flywheel power (0.0 to 1.0) based on distance ratio from target
+     * @param shootingZones Zone definition that supplies the back shoot area vertices
      */
-    private double calculateDistanceScaledFlywheelPower(double robotX, double robotY) {
-        // Calculate Euclidean distance from robot to target alliance goal
-        double deltaX = TARGET_X - robotX;
-        double deltaY = TARGET_Y - robotY;
-        double distanceToTarget = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
-
-        // Calculate maximum distance reference using the furthest vertex (x6, y6) for Red
-        double maxDeltaX = TARGET_X - shootingZones.x6;
-        double maxDeltaY = TARGET_Y - shootingZones.y6;
-        double maxDistance = Math.sqrt(maxDeltaX * maxDeltaX + maxDeltaY * maxDeltaY);
-
-        // Avoid division by zero
-        if (maxDistance == 0) {
-            return 1.0;  // Return full power if max distance is zero
-        }
-
-        // Calculate distance ratio (current distance / maximum distance)
-        double distanceRatio = distanceToTarget / maxDistance;
-
-        // Clamp ratio between 0 and 1 to ensure valid power output
-        distanceRatio = Math.max(0.0, Math.min(1.0, distanceRatio));
-
-        return distanceRatio;
+    static FlywheelController createFlywheelController(CoordinateTriangle shootingZones) {
+        return new FlywheelController(TARGET_X, TARGET_Y, shootingZones.x6, shootingZones.y6);
     }
-
 }
@@ -0,0 +1,534 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.pedropathing.ftc.localization.constants.OTOSConstants;
+import com.pedropathing.ftc.localization.localizers.OTOSLocalizer;
+import com.pedropathing.geometry.Pose;
+import com.pedropathing.localization.Localizer;
+import com.pedropathing.math.Vector;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+
+/**
+ * FusionLocalizer is a Pedro Pathing Localizer that fuses the SparkFun OTOS with AprilTag pose
+ * measurements using an extended Kalman filter, so the follower's pose stops drifting over a match.
+ *
+ * State: robot pose (x, y, heading) in Pedro field coordinates, with a 3x3 covariance.
+ *
+ * Predict (every update): the OTOS pose change since the last update is turned into a robot-frame
+ * motion increment and applied to the fused pose. Using increments rather than the absolute OTOS
+ * pose means the OTOS's accumulated drift never reaches the fused estimate; process noise grows
+ * with the distance and angle travelled.
+ *
+ * Correct (whenever the camera delivers a frame): each goal AprilTag in view gives a full robot
+ * pose from the SDK's tag library and camera pose. Frames arrive tens of milliseconds after they
+ * were captured, so the filter keeps a short history of past states and motion increments. A
+ * measurement is applied at the history entry matching its capture time and the increments after
+ * it are replayed, giving the same result as if the measurement had arrived on time. Measurements
+ * that disagree wildly with the current estimate (Mahalanobis gate) are rejected.
+ *
+ * Velocity, IMU heading and multipliers come straight from the wrapped OTOSLocalizer.
+ */
+public class FusionLocalizer implements Localizer {
+
+    // Camera mounting and the tag library are shared with TagRelocalizer
+
+    // ===== FILTER TUNING (EDITABLE) =====
+    public static double ODOMETRY_XY_NOISE_PER_INCH = 0.02;       // OTOS translation error (inches per inch travelled)
+    public static double ODOMETRY_HEADING_NOISE_PER_RAD = 0.01;   // OTOS heading error (radians per radian turned)
+    public static double ODOMETRY_XY_NOISE_FLOOR = 0.002;         // Minimum translation noise per update (inches)
+    public static double TAG_XY_NOISE = 1.0;                      // AprilTag position noise at zero range (inches)
+    public static double TAG_XY_NOISE_PER_INCH = 0.03;            // Additional position noise per inch of tag range
+    public static double TAG_HEADING_NOISE = Math.toRadians(3);   // AprilTag heading noise (radians)
+    public static double GATE_THRESHOLD = 11.34;                  // Chi-square, 3 DOF, 99%: larger innovations are rejected
+    public static double INITIAL_XY_STD = 2.0;                    // Position uncertainty after setPose (inches)
+    public static double INITIAL_HEADING_STD = Math.toRadians(2); // Heading uncertainty after setPose (radians)
+
+    // ===== STATE HISTORY =====
+    private static final int HISTORY_SIZE = 64;  // About 0.6 s of updates at 100 Hz
+
+    private final OTOSLocalizer otos;
+    private final AprilTagProcessor aprilTag;
+    private final AdaptiveAprilTagProcessor adaptiveProcessor;
+    private final ArtifactLocator artifactLocator;
+    private long lastUpdateNanos = 0;
+    private final VisionManager visionManager;
+
+    // ===== FUSED STATE =====
+    private double x, y, heading;
+    private final double[] covariance = new double[9];  // Row-major 3x3
+    private Pose fusedPose = new Pose();
+
+    // ===== PREVIOUS OTOS POSE =====
+    private double otosX, otosY, otosHeading;
+
+    // ===== HISTORY (ring buffer, primitives only) =====
+    private final long[] historyNanos = new long[HISTORY_SIZE];
+    private final double[] historyX = new double[HISTORY_SIZE];
+    private final double[] historyY = new double[HISTORY_SIZE];
+    private final double[] historyHeading = new double[HISTORY_SIZE];
+    private final double[] historyCovariance = new double[HISTORY_SIZE * 9];
+    private final double[] historyForward = new double[HISTORY_SIZE];   // Robot-frame motion into this entry
+    private final double[] historyStrafe = new double[HISTORY_SIZE];
+    private final double[] historyTurn = new double[HISTORY_SIZE];
+    private int historyNewest = -1;
+    private int historyCount = 0;
+
+    // ===== SCRATCH (reused so updates do not allocate) =====
+    private final double[] scratchS = new double[9];
+    private final double[] scratchSInverse = new double[9];
+    private final double[] scratchGain = new double[9];
+    private final double[] scratchP = new double[9];
+    private final double[] scratchTagPose = new double[3];
+
+    // ===== STATISTICS =====
+    private int acceptedMeasurements = 0;
+    private int rejectedMeasurements = 0;
+    private int staleMeasurements = 0;
+    private long lastMeasurementNanos = 0;
+
+    /**
+     * Creates the localizer. The webcam stays idle, so no tag corrections arrive, until the OpMode
+     * drives getVisionManager().update() each loop.
+     *
+     * @param hardwareMap Hardware map
+     * @param otosConstants OTOS configuration (Constants.localizerConstants)
+     * @param webcam Webcam that sees the goal AprilTags
+     */
+    public FusionLocalizer(HardwareMap hardwareMap, OTOSConstants otosConstants, WebcamName webcam) {
+        otos = new OTOSLocalizer(hardwareMap, otosConstants);
+
+        aprilTag = TagRelocalizer.createAprilTagProcessor();
+        adaptiveProcessor = new AdaptiveAprilTagProcessor(aprilTag);
+
+        artifactLocator = new ArtifactLocator();
+        visionManager = new VisionManager(webcam, adaptiveProcessor, artifactLocator);
+
+        resetState(0, 0, 0);
+    }
+
+    // ===== LOCALIZER INTERFACE =====
+
+    @Override
+    public void update() {
+        otos.update();
+        Pose otosPose = otos.getPose();
+
+        // OTOS motion since the last update, rotated into the robot frame at the midpoint heading
+        double deltaX = otosPose.getX() - otosX;
+        double deltaY = otosPose.getY() - otosY;
+        double turn = wrapAngle(otosPose.getHeading() - otosHeading);
+        double midHeading = otosHeading + turn / 2;
+        double forward = Math.cos(midHeading) * deltaX + Math.sin(midHeading) * deltaY;
+        double strafe = -Math.sin(midHeading) * deltaX + Math.cos(midHeading) * deltaY;
+
+        otosX = otosPose.getX();
+        otosY = otosPose.getY();
+        otosHeading = otosPose.getHeading();
+
+        long now = System.nanoTime();
+        predict(forward, strafe, turn);
+        pushHistory(now, forward, strafe, turn);
+
+        // Time between updates is the follower's loop time; the vision thread backs off when it grows
+        if (lastUpdateNanos != 0) {
+            adaptiveProcessor.reportLoopTime((now - lastUpdateNanos) / 1e6);
+        }
+        lastUpdateNanos = now;
+
+        List<AprilTagDetection> detections = aprilTag.getFreshDetections();
+        if (detections != null) {
+            for (int i = 0; i < detections.size(); i++) {
+                fuseDetection(detections.get(i));
+            }
+        }
+
+        fusedPose = new Pose(x, y, normalizeAngle(heading));
+        adaptiveProcessor.setRobotState(x, y, heading, otos.getVelocity().getHeading());
+        artifactLocator.setRobotState(x, y, heading);
+    }
+
+    @Override
+    public Pose getPose() {
+        return fusedPose;
+    }
+
+    /**
+     * @return OTOS velocity rotated from the OTOS frame into the fused frame
+     */
+    @Override
+    public Pose getVelocity() {
+        Pose velocity = otos.getVelocity();
+        double correction = heading - otosHeading;
+        double cos = Math.cos(correction);
+        double sin = Math.sin(correction);
+        return new Pose(
+                cos * velocity.getX() - sin * velocity.getY(),
+                sin * velocity.getX() + cos * velocity.getY(),
+                velocity.getHeading());
+    }
+
+    @Override
+    public Vector getVelocityVector() {
+        return getVelocity().getAsVector();
+    }
+
+    @Override
+    public void setStartPose(Pose setStart) {
+        otos.setStartPose(setStart);
+        resetState(setStart.getX(), setStart.getY(), setStart.getHeading());
+    }
+
+    @Override
+    public void setPose(Pose setPose) {
+        otos.setPose(setPose);
+        resetState(setPose.getX(), setPose.getY(), setPose.getHeading());
+    }
+
+    @Override
+    public double getTotalHeading() {
+        return otos.getTotalHeading() + wrapAngle(heading - otosHeading);
+    }
+
+    @Override
+    public double getForwardMultiplier() {
+        return otos.getForwardMultiplier();
+    }
+
+    @Override
+    public double getLateralMultiplier() {
+        return otos.getLateralMultiplier();
+    }
+
+    @Override
+    public double getTurningMultiplier() {
+        return otos.getTurningMultiplier();
+    }
+
+    @Override
+    public void resetIMU() throws InterruptedException {
+        otos.resetIMU();
+    }
+
+    @Override
+    public double getIMUHeading() {
+        return otos.getIMUHeading();
+    }
+
+    @Override
+    public boolean isNAN() {
+        return Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(heading) || otos.isNAN();
+    }
+
+    // ===== DIAGNOSTICS =====
+
+    public VisionPortal getVisionPortal() {
+        return visionManager.getVisionPortal();
+    }
+
+    /**
+     * @return Manager that switches the camera stream; OpModes call its update() every loop
+     */
+    public VisionManager getVisionManager() {
+        return visionManager;
+    }
+
+    public AprilTagProcessor getAprilTagProcessor() {
+        return aprilTag;
+    }
+
+    public AdaptiveAprilTagProcessor getAdaptiveProcessor() {
+        return adaptiveProcessor;
+    }
+
+    public ArtifactLocator getArtifactLocator() {
+        return artifactLocator;
+    }
+
+    public int getAcceptedMeasurements() {
+        return acceptedMeasurements;
+    }
+
+    public int getRejectedMeasurements() {
+        return rejectedMeasurements;
+    }
+
+    public int getStaleMeasurements() {
+        return staleMeasurements;
+    }
+
+    /**
+     * @return Seconds since the last accepted AprilTag measurement, or infinity if none yet
+     */
+    public double getSecondsSinceMeasurement() {
+        if (lastMeasurementNanos == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (System.nanoTime() - lastMeasurementNanos) / 1e9;
+    }
+
+    /**
+     * @return One-sigma position uncertainty (inches), from the larger of the x and y variances
+     */
+    public double getPositionStdDev() {
+        return Math.sqrt(Math.max(covariance[0], covariance[4]));
+    }
+
+    /**
+     * @return One-sigma heading uncertainty (radians)
+     */
+    public double getHeadingStdDev() {
+        return Math.sqrt(covariance[8]);
+    }
+
+    // ===== FILTER =====
+
+    /**
+     * Applies a robot-frame motion increment to the state and propagates the covariance.
+     */
+    private void predict(double forward, double strafe, double turn) {
+        double midHeading = heading + turn / 2;
+        double cos = Math.cos(midHeading);
+        double sin = Math.sin(midHeading);
+        double worldX = cos * forward - sin * strafe;
+        double worldY = sin * forward + cos * strafe;
+
+        x += worldX;
+        y += worldY;
+        heading = wrapAngle(heading + turn);
+
+        // P = F P F^T + Q with F = [[1, 0, -worldY], [0, 1, worldX], [0, 0, 1]]
+        double[] p = covariance;
+        double a = -worldY;
+        double b = worldX;
+        double p00 = p[0] + a * (p[6] + p[2]) + a * a * p[8];
+        double p01 = p[1] + a * p[7] + b * p[2] + a * b * p[8];
+        double p02 = p[2] + a * p[8];
+        double p11 = p[4] + b * (p[7] + p[5]) + b * b * p[8];
+        double p12 = p[5] + b * p[8];
+
+        double distance = Math.hypot(forward, strafe);
+        double xyStd = ODOMETRY_XY_NOISE_PER_INCH * distance + ODOMETRY_XY_NOISE_FLOOR;
+        double headingStd = ODOMETRY_HEADING_NOISE_PER_RAD * Math.abs(turn);
+
+        p[0] = p00 + xyStd * xyStd;
+        p[1] = p01;
+        p[2] = p02;
+        p[3] = p01;
+        p[4] = p11 + xyStd * xyStd;
+        p[5] = p12;
+        p[6] = p02;
+        p[7] = p12;
+        p[8] = p[8] + headingStd * headingStd;
+    }
+
+    /**
+     * Converts one detection to a Pedro pose measurement and applies it at its capture time.
+     */
+    private void fuseDetection(AprilTagDetection detection) {
+        if (!TagRelocalizer.toFieldPose(detection, scratchTagPose)) {
+            return;
+        }
+
+        double xyStd = TAG_XY_NOISE + TAG_XY_NOISE_PER_INCH * detection.ftcPose.range;
+        applyDelayedMeasurement(detection.frameAcquisitionNanoTime,
+                scratchTagPose[0], scratchTagPose[1], scratchTagPose[2],
+                xyStd * xyStd, TAG_HEADING_NOISE * TAG_HEADING_NOISE);
+    }
+
+    /**
+     * Rewinds to the history entry at or just before the capture time, applies the measurement
+     * there, and replays the motion recorded since then.
+     */
+    private void applyDelayedMeasurement(long captureNanos, double mx, double my, double mh,
+                                         double xyVariance, double headingVariance) {
+        // Find the newest entry captured at or before the measurement
+        int stepsBack = 0;
+        int index = historyNewest;
+        while (stepsBack < historyCount && historyNanos[index] > captureNanos) {
+            index = (index - 1 + HISTORY_SIZE) % HISTORY_SIZE;
+            stepsBack++;
+        }
+        if (stepsBack >= historyCount) {
+            staleMeasurements++;  // Older than anything we still remember
+            return;
+        }
+
+        // Rewind
+        x = historyX[index];
+        y = historyY[index];
+        heading = historyHeading[index];
+        System.arraycopy(historyCovariance, index * 9, covariance, 0, 9);
+
+        if (!correct(mx, my, mh, xyVariance, headingVariance)) {
+            rejectedMeasurements++;
+        } else {
+            acceptedMeasurements++;
+            lastMeasurementNanos = System.nanoTime();
+        }
+        saveHistory(index);
+
+        // Replay the motion that happened after the measurement was captured
+        for (int i = 0; i < stepsBack; i++) {
+            index = (index + 1) % HISTORY_SIZE;
+            predict(historyForward[index], historyStrafe[index], historyTurn[index]);
+            saveHistory(index);
+        }
+    }
+
+    /**
+     * Kalman measurement update with H = I.
+     *
+     * @return false if the measurement failed the Mahalanobis gate and was not applied
+     */
+    private boolean correct(double mx, double my, double mh, double xyVariance, double headingVariance) {
+        double[] p = covariance;
+        double[] s = scratchS;
+        double[] sInv = scratchSInverse;
+        double[] k = scratchGain;
+
+        double innovationX = mx - x;
+        double innovationY = my - y;
+        double innovationH = wrapAngle(mh - heading);
+
+        // S = P + R
+        System.arraycopy(p, 0, s, 0, 9);
+        s[0] += xyVariance;
+        s[4] += xyVariance;
+        s[8] += headingVariance;
+        if (!invert3x3(s, sInv)) {
+            return false;
+        }
+
+        // Mahalanobis distance gate
+        double mahalanobis = innovationX * (sInv[0] * innovationX + sInv[1] * innovationY + sInv[2] * innovationH)
+                + innovationY * (sInv[3] * innovationX + sInv[4] * innovationY + sInv[5] * innovationH)
+                + innovationH * (sInv[6] * innovationX + sInv[7] * innovationY + sInv[8] * innovationH);
+        if (mahalanobis > GATE_THRESHOLD) {
+            return false;
+        }
+
+        // K = P S^-1
+        multiply3x3(p, sInv, k);
+
+        x += k[0] * innovationX + k[1] * innovationY + k[2] * innovationH;
+        y += k[3] * innovationX + k[4] * innovationY + k[5] * innovationH;
+        heading = wrapAngle(heading + k[6] * innovationX + k[7] * innovationY + k[8] * innovationH);
+
+        // P = (I - K) P
+        double[] newP = scratchP;
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                double sum = 0;
+                for (int j = 0; j < 3; j++) {
+                    double identity = row == j ? 1 : 0;
+                    sum += (identity - k[row * 3 + j]) * p[j * 3 + col];
+                }
+                newP[row * 3 + col] = sum;
+            }
+        }
+        // Keep P symmetric against rounding
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                p[row * 3 + col] = (newP[row * 3 + col] + newP[col * 3 + row]) / 2;
+            }
+        }
+        return true;
+    }
+
+    private void resetState(double startX, double startY, double startHeading) {
+        x = startX;
+        y = startY;
+        heading = wrapAngle(startHeading);
+        otosX = startX;
+        otosY = startY;
+        otosHeading = startHeading;
+
+        for (int i = 0; i < 9; i++) {
+            covariance[i] = 0;
+        }
+        covariance[0] = INITIAL_XY_STD * INITIAL_XY_STD;
+        covariance[4] = INITIAL_XY_STD * INITIAL_XY_STD;
+        covariance[8] = INITIAL_HEADING_STD * INITIAL_HEADING_STD;
+
+        historyCount = 0;
+        historyNewest = -1;
+        pushHistory(System.nanoTime(), 0, 0, 0);
+        fusedPose = new Pose(x, y, normalizeAngle(heading));
+    }
+
+    private void pushHistory(long nanos, double forward, double strafe, double turn) {
+        historyNewest = (historyNewest + 1) % HISTORY_SIZE;
+        historyCount = Math.min(historyCount + 1, HISTORY_SIZE);
+        historyNanos[historyNewest] = nanos;
+        historyForward[historyNewest] = forward;
+        historyStrafe[historyNewest] = strafe;
+        historyTurn[historyNewest] = turn;
+        saveHistory(historyNewest);
+    }
+
+    private void saveHistory(int index) {
+        historyX[index] = x;
+        historyY[index] = y;
+        historyHeading[index] = heading;
+        System.arraycopy(covariance, 0, historyCovariance, index * 9, 9);
+    }
+
+    // ===== MATH HELPERS =====
+
+    private static void multiply3x3(double[] a, double[] b, double[] out) {
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                out[row * 3 + col] = a[row * 3] * b[col] + a[row * 3 + 1] * b[3 + col] + a[row * 3 + 2] * b[6 + col];
+            }
+        }
+    }
+
+    /**
+     * Inverts a 3x3 matrix with the adjugate formula.
+     *
+     * @return false if the matrix is singular
+     */
+    private static boolean invert3x3(double[] m, double[] out) {
+        double c00 = m[4] * m[8] - m[5] * m[7];
+        double c01 = m[5] * m[6] - m[3] * m[8];
+        double c02 = m[3] * m[7] - m[4] * m[6];
+        double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (Math.abs(det) < 1e-12) {
+            return false;
+        }
+        double invDet = 1.0 / det;
+        out[0] = c00 * invDet;
+        out[1] = (m[2] * m[7] - m[1] * m[8]) * invDet;
+        out[2] = (m[1] * m[5] - m[2] * m[4]) * invDet;
+        out[3] = c01 * invDet;
+        out[4] = (m[0] * m[8] - m[2] * m[6]) * invDet;
+        out[5] = (m[2] * m[3] - m[0] * m[5]) * invDet;
+        out[6] = c02 * invDet;
+        out[7] = (m[1] * m[6] - m[0] * m[7]) * invDet;
+        out[8] = (m[0] * m[4] - m[1] * m[3]) * invDet;
+        return true;
+    }
+
+    /**
+     * Wraps an angle to (-PI, PI].
+     */
+    private static double wrapAngle(double angle) {
+        while (angle > Math.PI) angle -= 2 * Math.PI;
+        while (angle <= -Math.PI) angle += 2 * Math.PI;
+        return angle;
+    }
+
+    /**
+     * Wraps an angle to [0, 2*PI), the range Pedro uses for pose headings.
+     */
+    private static double normalizeAngle(double angle) {
+        double wrapped = angle % (2 * Math.PI);
+        return wrapped < 0 ? wrapped + 2 * Math.PI : wrapped;
+    }
+}
@@ -0,0 +1,209 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * GamepadRecorder logs the state of gamepad1 and gamepad2 once per loop into a compact binary file
+ * so that a driving session can be replayed later with GamepadReplayer.
+ *
+ * File layout (big-endian):
+ * - Header: MAGIC (int), VERSION (int)
+ * - One frame per loop, FRAME_BYTES long:
+ *   - Time since recording started (int, microseconds)
+ *   - gamepad1 then gamepad2, 8 bytes each:
+ *     left_stick_x, left_stick_y, right_stick_x, right_stick_y (signed byte, -127..127)
+ *     left_trigger, right_trigger (unsigned byte, 0..255)
+ *     button bit mask (short, see the BUTTON_* bits)
+ *
+ * Writes go through a BufferedOutputStream, so recording a frame does not allocate and only touches
+ * storage when the buffer fills.
+ *
+ * Each run gets its own timestamped file (newLogFile), so a recording is not lost when the next
+ * match starts; deleteOldLogs keeps the newest few and latestLogFile finds the one to replay.
+ */
+public class GamepadRecorder {
+
+    // ===== FILE FORMAT =====
+    public static final int MAGIC = 0x47504144;  // "GPAD"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 8;
+    public static final int GAMEPAD_BYTES = 8;
+    public static final int FRAME_BYTES = 4 + 2 * GAMEPAD_BYTES;
+
+    // ===== BUTTON BITS =====
+    public static final int BUTTON_DPAD_UP = 1;
+    public static final int BUTTON_DPAD_DOWN = 1 << 1;
+    public static final int BUTTON_DPAD_LEFT = 1 << 2;
+    public static final int BUTTON_DPAD_RIGHT = 1 << 3;
+    public static final int BUTTON_A = 1 << 4;
+    public static final int BUTTON_B = 1 << 5;
+    public static final int BUTTON_X = 1 << 6;
+    public static final int BUTTON_Y = 1 << 7;
+    public static final int BUTTON_LEFT_BUMPER = 1 << 8;
+    public static final int BUTTON_RIGHT_BUMPER = 1 << 9;
+    public static final int BUTTON_LEFT_STICK = 1 << 10;
+    public static final int BUTTON_RIGHT_STICK = 1 << 11;
+    public static final int BUTTON_BACK = 1 << 12;
+    public static final int BUTTON_START = 1 << 13;
+    public static final int BUTTON_GUIDE = 1 << 14;
+
+    // ===== FILE NAMING =====
+    public static final int DEFAULT_KEEP = 10;  // Recordings kept per OpMode; older ones are deleted
+    private static final String PREFIX = "gamepad_";
+
+    private static final String TAG = "GamepadRecorder";
+
+    private final DataOutputStream out;
+    private long startNanos = -1;
+    private int frameCount = 0;
+    private boolean failed = false;
+
+    /**
+     * Opens a new recording, replacing any existing file.
+     *
+     * @param file Destination file
+     * @throws IOException if the file cannot be created
+     */
+    public GamepadRecorder(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Records one frame containing the current state of both gamepads. Call once per loop, at the
+     * point where the OpMode reads its inputs.
+     *
+     * @param gamepad1 Driver gamepad
+     * @param gamepad2 Operator gamepad
+     */
+    public void record(Gamepad gamepad1, Gamepad gamepad2) {
+        if (failed) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (startNanos < 0) {
+            startNanos = now;
+        }
+
+        try {
+            out.writeInt((int) ((now - startNanos) / 1000));
+            writeGamepad(gamepad1);
+            writeGamepad(gamepad2);
+            frameCount++;
+        } catch (IOException e) {
+            failed = true;
+            RobotLog.ee(TAG, e, "Gamepad recording stopped");
+        }
+    }
+
+    /**
+     * Flushes and closes the recording. Safe to call more than once.
+     */
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            RobotLog.ee(TAG, e, "Failed to close gamepad recording");
+        }
+    }
+
+    /**
+     * Builds a timestamped file name for a new recording, for example
+     * gamepad_DriverControlled_20260118_143012.bin. Names sort in recording order.
+     *
+     * @param dir Directory for the recording (AppUtil.ROBOT_DATA_DIR on the robot)
+     * @param opModeName Short name of the OpMode, without spaces or underscores
+     * @return File for a new recording; never an existing file
+     */
+    public static File newLogFile(File dir, String opModeName) {
+        return LogFiles.newLogFile(dir, PREFIX, opModeName);
+    }
+
+    /**
+     * @param dir Directory the recordings are in
+     * @param opModeName Name passed to newLogFile
+     * @return Newest recording for the OpMode, or null if there is none
+     */
+    public static File latestLogFile(File dir, String opModeName) {
+        File[] logs = LogFiles.listLogs(dir, PREFIX, opModeName);
+        return logs.length == 0 ? null : logs[logs.length - 1];
+    }
+
+    /**
+     * Deletes all but the newest recordings for the OpMode.
+     *
+     * @param dir Directory the recordings are in
+     * @param opModeName Name passed to newLogFile
+     * @param keep Number of recordings to keep
+     */
+    public static void deleteOldLogs(File dir, String opModeName, int keep) {
+        for (File log : LogFiles.deleteOldLogs(dir, PREFIX, opModeName, keep)) {
+            RobotLog.ww(TAG, "Could not delete old recording " + log);
+        }
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    private void writeGamepad(Gamepad gamepad) throws IOException {
+        out.writeByte(quantizeStick(gamepad.left_stick_x));
+        out.writeByte(quantizeStick(gamepad.left_stick_y));
+        out.writeByte(quantizeStick(gamepad.right_stick_x));
+        out.writeByte(quantizeStick(gamepad.right_stick_y));
+        out.writeByte(quantizeTrigger(gamepad.left_trigger));
+        out.writeByte(quantizeTrigger(gamepad.right_trigger));
+        out.writeShort(buttonMask(gamepad));
+    }
+
+    /**
+     * Packs every digital button into one bit mask.
+     *
+     * @param gamepad Gamepad to read
+     * @return Bit mask built from the BUTTON_* constants
+     */
+    private static int buttonMask(Gamepad gamepad) {
+        int mask = 0;
+        if (gamepad.dpad_up) mask |= BUTTON_DPAD_UP;
+        if (gamepad.dpad_down) mask |= BUTTON_DPAD_DOWN;
+        if (gamepad.dpad_left) mask |= BUTTON_DPAD_LEFT;
+        if (gamepad.dpad_right) mask |= BUTTON_DPAD_RIGHT;
+        if (gamepad.a) mask |= BUTTON_A;
+        if (gamepad.b) mask |= BUTTON_B;
+        if (gamepad.x) mask |= BUTTON_X;
+        if (gamepad.y) mask |= BUTTON_Y;
+        if (gamepad.left_bumper) mask |= BUTTON_LEFT_BUMPER;
+        if (gamepad.right_bumper) mask |= BUTTON_RIGHT_BUMPER;
+        if (gamepad.left_stick_button) mask |= BUTTON_LEFT_STICK;
+        if (gamepad.right_stick_button) mask |= BUTTON_RIGHT_STICK;
+        if (gamepad.back) mask |= BUTTON_BACK;
+        if (gamepad.start) mask |= BUTTON_START;
+        if (gamepad.guide) mask |= BUTTON_GUIDE;
+        return mask;
+    }
+
+    private static int quantizeStick(float value) {
+        return Math.round(Math.max(-1f, Math.min(1f, value)) * 127f);
+    }
+
+    private static int quantizeTrigger(float value) {
+        return Math.round(Math.max(0f, Math.min(1f, value)) * 255f);
+    }
+}
@@ -0,0 +1,144 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import static org.firstinspires.ftc.teamcode.pedroPathing.GamepadRecorder.*;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * GamepadReplayer plays back a file written by GamepadRecorder, one recorded frame per loop.
+ *
+ * The whole recording is loaded into memory when the replayer is created, so stepping through it
+ * during the OpMode does no file I/O and no allocation. Replay is indexed by loop rather than by
+ * wall-clock time: loop N of the replay sees exactly the inputs that loop N of the recording saw,
+ * which keeps the OpMode's decisions (D-Pad shoot requests, trigger test mode, bumper max mode)
+ * identical between runs.
+ *
+ * Once the recording runs out, both gamepads are held at rest (sticks centered, nothing pressed).
+ */
+public class GamepadReplayer {
+
+    private final byte[] frames;
+    private final int frameCount;
+    private int frameIndex = 0;
+
+    /**
+     * Loads a recording into memory.
+     *
+     * @param file Recording written by GamepadRecorder
+     * @throws IOException if the file is missing, truncated or not a gamepad recording
+     */
+    public GamepadReplayer(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a gamepad recording");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported gamepad recording version " + version);
+            }
+
+            long payloadBytes = file.length() - HEADER_BYTES;
+            frameCount = (int) (payloadBytes / FRAME_BYTES);
+            frames = new byte[frameCount * FRAME_BYTES];
+            in.readFully(frames);
+        }
+    }
+
+    /**
+     * Writes the next recorded frame into the given gamepads and advances to the following frame.
+     * Call once per loop before the OpMode reads its inputs.
+     *
+     * @param gamepad1 Gamepad object to receive the driver inputs
+     * @param gamepad2 Gamepad object to receive the operator inputs
+     */
+    public void next(Gamepad gamepad1, Gamepad gamepad2) {
+        if (isFinished()) {
+            applyRest(gamepad1);
+            applyRest(gamepad2);
+            return;
+        }
+
+        int offset = frameIndex * FRAME_BYTES + 4;  // Skip the frame timestamp
+        applyFrame(gamepad1, offset);
+        applyFrame(gamepad2, offset + GAMEPAD_BYTES);
+        frameIndex++;
+    }
+
+    public boolean isFinished() {
+        return frameIndex >= frameCount;
+    }
+
+    public int getFrameIndex() {
+        return frameIndex;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return Time the current frame was recorded, in microseconds since the recording started
+     */
+    public int getRecordedMicros() {
+        int index = Math.min(frameIndex, frameCount - 1);
+        if (index < 0) {
+            return 0;
+        }
+        int offset = index * FRAME_BYTES;
+        return ((frames[offset] & 0xFF) << 24) | ((frames[offset + 1] & 0xFF) << 16)
+                | ((frames[offset + 2] & 0xFF) << 8) | (frames[offset + 3] & 0xFF);
+    }
+
+    private void applyFrame(Gamepad gamepad, int offset) {
+        gamepad.left_stick_x = frames[offset] / 127f;
+        gamepad.left_stick_y = frames[offset + 1] / 127f;
+        gamepad.right_stick_x = frames[offset + 2] / 127f;
+        gamepad.right_stick_y = frames[offset + 3] / 127f;
+        gamepad.left_trigger = (frames[offset + 4] & 0xFF) / 255f;
+        gamepad.right_trigger = (frames[offset + 5] & 0xFF) / 255f;
+        applyButtons(gamepad, ((frames[offset + 6] & 0xFF) << 8) | (frames[offset + 7] & 0xFF));
+    }
+
+    private void applyRest(Gamepad gamepad) {
+        gamepad.left_stick_x = 0;
+        gamepad.left_stick_y = 0;
+        gamepad.right_stick_x = 0;
+        gamepad.right_stick_y = 0;
+        gamepad.left_trigger = 0;
+        gamepad.right_trigger = 0;
+        applyButtons(gamepad, 0);
+    }
+
+    private void applyButtons(Gamepad gamepad, int mask) {
+        gamepad.dpad_up = (mask & BUTTON_DPAD_UP) != 0;
+        gamepad.dpad_down = (mask & BUTTON_DPAD_DOWN) != 0;
+        gamepad.dpad_left = (mask & BUTTON_DPAD_LEFT) != 0;
+        gamepad.dpad_right = (mask & BUTTON_DPAD_RIGHT) != 0;
+        gamepad.a = (mask & BUTTON_A) != 0;
+        gamepad.b = (mask & BUTTON_B) != 0;
+        gamepad.x = (mask & BUTTON_X) != 0;
+        gamepad.y = (mask & BUTTON_Y) != 0;
+        gamepad.left_bumper = (mask & BUTTON_LEFT_BUMPER) != 0;
+        gamepad.right_bumper = (mask & BUTTON_RIGHT_BUMPER) != 0;
+        gamepad.left_stick_button = (mask & BUTTON_LEFT_STICK) != 0;
+        gamepad.right_stick_button = (mask & BUTTON_RIGHT_STICK) != 0;
+        gamepad.back = (mask & BUTTON_BACK) != 0;
+        gamepad.start = (mask & BUTTON_START) != 0;
+        gamepad.guide = (mask & BUTTON_GUIDE) != 0;
+
+        // Keep the PlayStation-style aliases in sync with the Xbox-style names
+        gamepad.cross = gamepad.a;
+        gamepad.circle = gamepad.b;
+        gamepad.square = gamepad.x;
+        gamepad.triangle = gamepad.y;
+        gamepad.share = gamepad.back;
+        gamepad.options = gamepad.start;
+        gamepad.ps = gamepad.guide;
+    }
+}
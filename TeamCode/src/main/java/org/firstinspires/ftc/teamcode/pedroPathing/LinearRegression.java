@@ -0,0 +1,78 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * LinearRegression fits y = intercept + slope * x to a stream of (x, y) points by least squares,
+ * without storing the points.
+ *
+ * Like RunningStats it keeps running means and centered sums (Welford's update extended to the
+ * co-moment), so timestamps in seconds since start and values far from zero do not cancel out
+ * the way raw sums of x*x and x*y would. Each add() is O(1) with no allocation.
+ */
+public class LinearRegression {
+
+    private long count = 0;
+    private double meanX = 0, meanY = 0;
+    private double sxx = 0;   // Sum of (x - meanX)^2
+    private double syy = 0;   // Sum of (y - meanY)^2
+    private double sxy = 0;   // Sum of (x - meanX)(y - meanY)
+
+    public void add(double x, double y) {
+        count++;
+        double dx = x - meanX;
+        double dy = y - meanY;
+        meanX += dx / count;
+        meanY += dy / count;
+        sxx += dx * (x - meanX);
+        syy += dy * (y - meanY);
+        sxy += dx * (y - meanY);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Least squares slope, NaN until at least two distinct x values have been added
+     */
+    public double getSlope() {
+        return sxx > 0 ? sxy / sxx : Double.NaN;
+    }
+
+    /**
+     * @return Least squares intercept (y at x = 0), NaN when the slope is undefined
+     */
+    public double getIntercept() {
+        return meanY - getSlope() * meanX;
+    }
+
+    /**
+     * @return Coefficient of determination: 1 for a perfect line, near 0 when x explains nothing.
+     * NaN when either variable has no spread.
+     */
+    public double getRSquared() {
+        if (sxx <= 0 || syy <= 0) {
+            return Double.NaN;
+        }
+        return (sxy * sxy) / (sxx * syy);
+    }
+
+    /**
+     * @return Root mean square distance of the points from the fitted line, in y units
+     */
+    public double getResidualRms() {
+        if (count < 2 || sxx <= 0) {
+            return 0;
+        }
+        double residual = syy - sxy * sxy / sxx;
+        return Math.sqrt(Math.max(0, residual) / count);
+    }
+
+    public void reset() {
+        count = 0;
+        meanX = 0;
+        meanY = 0;
+        sxx = 0;
+        syy = 0;
+        sxy = 0;
+    }
+}
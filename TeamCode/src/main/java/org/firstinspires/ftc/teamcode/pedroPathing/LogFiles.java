@@ -0,0 +1,75 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * LogFiles names and prunes the per-run log files the recorders write, so every log type follows
+ * the same rules: PREFIX_OPMODE_yyyyMMdd_HHmmss.bin, a _N run index when two runs start in the
+ * same second, and only the newest few kept per OpMode.
+ *
+ * Like FlightRecorder, this class only uses java.* APIs so that offline tools can use it on a laptop.
+ */
+public final class LogFiles {
+
+    private LogFiles() {
+    }
+
+    /**
+     * Builds a timestamped file name for a new log. Names sort in recording order.
+     *
+     * @param dir Directory for the log (AppUtil.ROBOT_DATA_DIR on the robot)
+     * @param prefix Log type, for example "flight_"
+     * @param opModeName Short name of the OpMode, without spaces or underscores
+     * @return File for a new log; never an existing file
+     */
+    public static File newLogFile(File dir, String prefix, String opModeName) {
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, prefix + opModeName + "_" + stamp + ".bin");
+        // Two runs in the same second get a run index
+        for (int run = 2; file.exists(); run++) {
+            file = new File(dir, prefix + opModeName + "_" + stamp + "_" + run + ".bin");
+        }
+        return file;
+    }
+
+    /**
+     * @return The OpMode's logs of the given type, oldest first
+     */
+    public static File[] listLogs(File dir, String prefix, String opModeName) {
+        final String start = prefix + opModeName + "_";
+        File[] logs = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File parent, String name) {
+                return name.startsWith(start) && name.endsWith(".bin");
+            }
+        });
+        if (logs == null) {
+            return new File[0];
+        }
+        Arrays.sort(logs);  // Same directory, so this is name order
+        return logs;
+    }
+
+    /**
+     * Deletes all but the newest logs of the given type for the OpMode.
+     *
+     * @param keep Number of logs to keep
+     * @return Logs that could not be deleted, for the caller to report
+     */
+    public static File[] deleteOldLogs(File dir, String prefix, String opModeName, int keep) {
+        File[] logs = listLogs(dir, prefix, opModeName);
+        File[] failed = new File[Math.max(0, logs.length - keep)];
+        int failedCount = 0;
+        for (int i = 0; i < logs.length - keep; i++) {
+            if (!logs[i].delete()) {
+                failed[failedCount++] = logs[i];
+            }
+        }
+        return Arrays.copyOf(failed, failedCount);
+    }
+}
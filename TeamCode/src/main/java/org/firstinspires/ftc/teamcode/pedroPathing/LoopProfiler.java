@@ -0,0 +1,202 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.Arrays;
+
+/**
+ * LoopProfiler measures how long each iteration of an OpMode's control loop takes and roughly how
+ * many bytes the loop allocates.
+ *
+ * Usage: call mark() once at the top of every loop iteration. After the configured number of
+ * iterations has been sampled, the profiler computes loop-time percentiles and the allocation rate
+ * and reports them in telemetry and the robot log. Sampling uses preallocated primitive arrays, so
+ * the profiler itself does not allocate while the loop is running.
+ *
+ * It only runs on the robot, inside a real OpMode, and it judges nothing: there are no pass/fail
+ * thresholds, because none have been measured. Compare the logged numbers between runs by hand,
+ * on the same robot and battery.
+ *
+ * Allocation is estimated from the change in used heap between marks. A garbage collection in the
+ * middle of a loop makes that change negative, so those samples are clamped to zero.
+ */
+public class LoopProfiler {
+
+    // ===== BENCHMARK LENGTH =====
+    public static final int DEFAULT_ITERATIONS = 5000;  // Loops sampled before evaluating
+
+    private static final double NANOS_PER_MS = 1e6;
+    private static final String TAG = "LoopProfiler";
+
+    private final String name;
+    private final Runtime runtime = Runtime.getRuntime();
+
+    // ===== SAMPLE STORAGE (preallocated) =====
+    private final long[] loopNanos;
+    private final long[] allocBytes;
+    private int sampleCount = 0;
+
+    // ===== PREVIOUS MARK =====
+    private long lastMarkNanos = 0;
+    private long lastUsedBytes = 0;
+    private long lastLoopNanos = 0;
+    private boolean hasPreviousMark = false;
+
+    // ===== RESULTS (valid once evaluated) =====
+    private boolean evaluated = false;
+    private double p50Ms, p90Ms, p99Ms, maxMs;
+    private double meanAllocBytes;
+
+    /**
+     * Creates a profiler that evaluates after DEFAULT_ITERATIONS loops.
+     *
+     * @param name Name shown in telemetry and the robot log (usually the OpMode name)
+     */
+    public LoopProfiler(String name) {
+        this(name, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * @param name Name shown in telemetry and the robot log (usually the OpMode name)
+     * @param iterations Number of loops to sample before evaluating
+     */
+    public LoopProfiler(String name, int iterations) {
+        this.name = name;
+        this.loopNanos = new long[iterations];
+        this.allocBytes = new long[iterations];
+    }
+
+    /**
+     * Marks the start of a loop iteration. The time and heap growth since the previous mark are
+     * recorded as one sample. Call exactly once per loop.
+     */
+    public void mark() {
+        long now = System.nanoTime();
+        long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+
+        if (hasPreviousMark) {
+            lastLoopNanos = now - lastMarkNanos;
+
+            if (sampleCount < loopNanos.length) {
+                loopNanos[sampleCount] = lastLoopNanos;
+                allocBytes[sampleCount] = Math.max(0, usedBytes - lastUsedBytes);
+                sampleCount++;
+
+                if (sampleCount == loopNanos.length) {
+                    evaluate();
+                }
+            }
+        }
+
+        lastMarkNanos = now;
+        lastUsedBytes = usedBytes;
+        hasPreviousMark = true;
+    }
+
+    /**
+     * Stops timing until the next mark(). Call when leaving a control loop so that time spent
+     * outside it (a blocking shoot sequence, for example) is not counted as one long loop.
+     */
+    public void pause() {
+        hasPreviousMark = false;
+    }
+
+    /**
+     * Discards all samples and starts a new benchmark run.
+     */
+    public void reset() {
+        sampleCount = 0;
+        lastLoopNanos = 0;
+        hasPreviousMark = false;
+        evaluated = false;
+    }
+
+    /**
+     * @return Duration of the most recently completed loop in milliseconds, or 0 before any sample.
+     * Keeps updating after the benchmark has been evaluated.
+     */
+    public double getLastLoopMs() {
+        return lastLoopNanos / NANOS_PER_MS;
+    }
+
+    public boolean isEvaluated() {
+        return evaluated;
+    }
+
+    public double getP50Ms() {
+        return p50Ms;
+    }
+
+    public double getP90Ms() {
+        return p90Ms;
+    }
+
+    public double getP99Ms() {
+        return p99Ms;
+    }
+
+    public double getMaxMs() {
+        return maxMs;
+    }
+
+    public double getMeanAllocBytes() {
+        return meanAllocBytes;
+    }
+
+    /**
+     * Adds the benchmark progress or results to telemetry.
+     *
+     * @param telemetry OpMode telemetry
+     */
+    public void addTelemetry(Telemetry telemetry) {
+        if (!evaluated) {
+            telemetry.addData("Loop Benchmark", "%s %d/%d (last %.1f ms)",
+                    name, sampleCount, loopNanos.length, getLastLoopMs());
+            return;
+        }
+
+        telemetry.addData("Loop Benchmark", "%s done over %d loops", name, sampleCount);
+        telemetry.addData("Loop p50/p90/p99/max", "%.1f / %.1f / %.1f / %.1f ms", p50Ms, p90Ms, p99Ms, maxMs);
+        telemetry.addData("Alloc per Loop", "%.0f bytes", meanAllocBytes);
+    }
+
+    /**
+     * Computes percentiles and allocation rate from the collected samples and logs them. Runs once,
+     * when the sample buffer fills.
+     */
+    private void evaluate() {
+        long[] sorted = Arrays.copyOf(loopNanos, sampleCount);
+        Arrays.sort(sorted);
+
+        p50Ms = percentile(sorted, 0.50) / NANOS_PER_MS;
+        p90Ms = percentile(sorted, 0.90) / NANOS_PER_MS;
+        p99Ms = percentile(sorted, 0.99) / NANOS_PER_MS;
+        maxMs = sorted[sorted.length - 1] / NANOS_PER_MS;
+
+        long totalAlloc = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            totalAlloc += allocBytes[i];
+        }
+        meanAllocBytes = (double) totalAlloc / sampleCount;
+
+        evaluated = true;
+
+        RobotLog.ii(TAG, String.format("%s: p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms alloc=%.0fB/loop over %d loops",
+                name, p50Ms, p90Ms, p99Ms, maxMs, meanAllocBytes, sampleCount));
+    }
+
+    /**
+     * Nearest-rank percentile of an ascending array.
+     *
+     * @param sorted Samples sorted in ascending order
+     * @param fraction Percentile as a fraction (0.99 for p99)
+     * @return Sample value at that percentile
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        index = Math.max(0, Math.min(sorted.length - 1, index));
+        return sorted[index];
+    }
+}
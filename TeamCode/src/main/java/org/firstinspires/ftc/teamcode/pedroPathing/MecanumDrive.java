@@ -1,5 +1,6 @@
 package org.firstinspires.ftc.teamcode.pedroPathing;
 
+import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
@@ -7,12 +8,54 @@ import com.qualcomm.robotcore.hardware.HardwareMap;
 
 public class MecanumDrive {
 
+    /**
+     * What gives way when the sticks ask for more than a wheel can do.
+     * - PROPORTIONAL: translation and rotation shrink together (the original behavior)
+     * - ROTATION_PRIORITY: rotation is kept and translation gets what is left, so auto-aim turns at
+     *   full rate while the driver is moving
+     * - TRANSLATION_PRIORITY: translation is kept and rotation gets what is left
+     */
+    public enum Desaturation { PROPORTIONAL, ROTATION_PRIORITY, TRANSLATION_PRIORITY }
+
+    // ===== VELOCITY CONTROL (EDITABLE) =====
+    // In velocity mode the sticks ask for a robot speed instead of a wheel power. Each wheel's
+    // target speed goes through a feedforward (kS + kV * v + kA * a, in volts, divided by the
+    // battery voltage) plus a P correction on the measured wheel speed.
+    // The numbers below are unmeasured placeholders, and velocity mode needs all four drive
+    // encoders wired. Measure them with Tuning > Automatic > Drive Velocity Control Tuner, then
+    // set USE_VELOCITY_CONTROL to true; until then the OpModes drive open loop.
+    public static boolean USE_VELOCITY_CONTROL = false;  // OpModes opt in to velocity mode with this
+    public static double DRIVE_TICKS_PER_INCH = 41.8;  // Placeholder: goBILDA 312 RPM (537.7 ticks/rev) on a 104 mm wheel, on paper
+    public static double DRIVE_KS = 0.6;               // Placeholder: volts to start a wheel turning
+    public static double DRIVE_KV = (12.0 - DRIVE_KS) / Constants.X_VELOCITY;  // Placeholder: volts per inch/second
+    public static double DRIVE_KA = 0.02;              // Placeholder: volts per inch/second^2 (hand tuned)
+    public static double DRIVE_KP = 0.01;              // Placeholder: power per inch/second of wheel speed error (hand tuned)
+    private static final double MIN_ACCELERATION_DT = 0.005;  // Calls closer than this reuse the last acceleration
+
     // Declare drive motor objects as DcMotorEx for full functionality
     public DcMotorEx frontLeft;
     public DcMotorEx frontRight;
     public DcMotorEx backLeft;
     public DcMotorEx backRight;
 
+    private final VoltageCompensator voltageCompensator;
+    private boolean velocityControl = false;
+    private Desaturation desaturation = Desaturation.PROPORTIONAL;
+    private final double[] wheelMix = new double[4];  // Mixer output, same wheel order as below
+    private AccelerationLimiter accelerationLimiter = null;
+
+    // Field-centric state: the heading comes from the localizer the OpMode already updates
+    private boolean fieldCentric = false;
+    private double robotHeading = 0;   // Radians, from setHeading()
+    private double driverHeading = 0;  // Field heading a forward stick drives toward
+
+    // Velocity mode state, one entry per wheel: front left, back left, front right, back right
+    private final DcMotorEx[] wheels;
+    private final double[] wheelTargets = new double[4];
+    private final double[] previousTargets = new double[4];
+    private final double[] wheelAccelerations = new double[4];
+    private long previousTargetNanos = 0;
+
     // Constructor: This runs when you create a new MecanumDrive object
     public MecanumDrive(HardwareMap hardwareMap) {
         // Map the motors from the hardware configuration
@@ -37,10 +80,144 @@ public class MecanumDrive {
         frontRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
         backRight.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
 
+        wheels = new DcMotorEx[]{frontLeft, backLeft, frontRight, backRight};
+        voltageCompensator = new VoltageCompensator(hardwareMap);
+
+        // Wheel speeds come from one bulk read per loop instead of four separate reads
+        for (LynxModule hub : hardwareMap.getAll(LynxModule.class)) {
+            hub.setBulkCachingMode(LynxModule.BulkCachingMode.AUTO);
+        }
+    }
+
+    /**
+     * Switches between raw wheel power (the default) and closed-loop wheel velocity. The encoders
+     * keep counting in RUN_WITHOUT_ENCODER, so the motor mode does not change.
+     */
+    public void setVelocityControl(boolean enabled) {
+        velocityControl = enabled;
+        previousTargetNanos = 0;
+    }
+
+    public boolean isVelocityControl() {
+        return velocityControl;
+    }
+
+    public void setDesaturation(Desaturation policy) {
+        desaturation = policy;
+    }
+
+    public Desaturation getDesaturation() {
+        return desaturation;
+    }
+
+    /**
+     * Limits how fast drive() may change the translation command, so the wheels do not slip.
+     * Rotation is not limited. drive() limits the sticks in the driver's frame, before the
+     * field-centric rotation, so a stick held in one direction stays one steady command while the
+     * robot turns under it; driveRobotCentric() limits in the robot frame.
+     *
+     * @param limiter Limiter to use, or null to pass the sticks straight through
+     */
+    public void setAccelerationLimiter(AccelerationLimiter limiter) {
+        accelerationLimiter = limiter;
+    }
+
+    /**
+     * In field-centric mode drive() treats the left stick as directions seen from the driver
+     * station: forward drives toward getDriverHeading() whichever way the robot faces. The
+     * heading is whatever was last passed to setHeading(), so no extra IMU read is made.
+     */
+    public void setFieldCentric(boolean enabled) {
+        fieldCentric = enabled;
+    }
+
+    public boolean isFieldCentric() {
+        return fieldCentric;
+    }
+
+    /**
+     * Robot heading for field-centric driving. Call once per loop with the follower's (or the
+     * pose predictor's) heading.
+     *
+     * @param heading Field heading (radians)
+     */
+    public void setHeading(double heading) {
+        robotHeading = heading;
+    }
+
+    /**
+     * @param heading Field heading a forward stick drives toward (radians), for example the
+     *                direction the drivers look from their alliance station
+     */
+    public void setDriverHeading(double heading) {
+        driverHeading = heading;
+    }
+
+    public double getDriverHeading() {
+        return driverHeading;
+    }
+
+    /**
+     * Re-zero: the way the robot faces now becomes forward on the stick. For when the heading has
+     * drifted, or the robot was set down facing away from the drivers without a pose reset.
+     */
+    public void zeroHeading() {
+        driverHeading = robotHeading;
+    }
+
+    /**
+     * @return Angle drive() rotates the left stick by to get from the driver's frame to the robot's
+     * (radians, counterclockwise), 0 when not field-centric
+     */
+    public double getStickRotation() {
+        return fieldCentric ? driverHeading - robotHeading : 0;
     }
 
     // Method to control the robot with joystick inputs
     public void drive(double y, double x, double rx) {
+        if (accelerationLimiter != null) {
+            // Limit in the driver's frame, then rotate the limited command
+            accelerationLimiter.update(-y * Constants.X_VELOCITY, x * Constants.Y_VELOCITY, System.nanoTime());
+            y = -accelerationLimiter.getForward() / Constants.X_VELOCITY;
+            x = accelerationLimiter.getStrafe() / Constants.Y_VELOCITY;
+        }
+        if (fieldCentric) {
+            // Rotate the stick from the driver's frame into the robot's (left positive for the math)
+            double angle = getStickRotation();
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double forward = -y;
+            double left = -x;
+            y = -(forward * cos - left * sin);
+            x = -(forward * sin + left * cos);
+        }
+        write(y, x, rx);
+    }
+
+    /**
+     * Same as drive() with the sticks always robot-relative, even in field-centric mode. For
+     * commands computed in the robot frame, like a camera alignment strafe.
+     */
+    public void driveRobotCentric(double y, double x, double rx) {
+        if (accelerationLimiter != null) {
+            // Limit in inches/second, then turn the result back into stick values
+            accelerationLimiter.update(-y * Constants.X_VELOCITY, x * Constants.Y_VELOCITY, System.nanoTime());
+            y = -accelerationLimiter.getForward() / Constants.X_VELOCITY;
+            x = accelerationLimiter.getStrafe() / Constants.Y_VELOCITY;
+        }
+        write(y, x, rx);
+    }
+
+    /**
+     * Writes robot-frame sticks to the wheels, already limited.
+     */
+    private void write(double y, double x, double rx) {
+        if (velocityControl) {
+            // Full stick is the measured full-power speed in each direction
+            driveVelocity(-y * Constants.X_VELOCITY, x * Constants.Y_VELOCITY, rx);
+            return;
+        }
+
         // The y-stick is inverted, so we negate it
         y = -y;
         // This factor can be used to counteract imperfect strafing
@@ -48,17 +225,166 @@ public class MecanumDrive {
         // Apply rotational power scale to rotation input
         rx = rx * Constants.RotationalPowerScale / Constants.PowerScale;
 
-        // Calculate the power for each wheel
-        double denominator = Math.max(Math.abs(y) + Math.abs(x) + Math.abs(rx), 1);
-        double frontLeftPower = (y + x + rx) / denominator;
-        double backLeftPower = (y - x + rx) / denominator;
-        double frontRightPower = (y - x - rx) / denominator;
-        double backRightPower = (y + x - rx) / denominator;
+        // Calculate the power for each wheel, kept within full power
+        mix(y, x, rx, 1.0);
 
         // Apply PowerScale from Constants to all motor outputs
-        frontLeft.setPower(frontLeftPower * Constants.PowerScale);
-        backLeft.setPower(backLeftPower * Constants.PowerScale);
-        frontRight.setPower(frontRightPower * Constants.PowerScale);
-        backRight.setPower(backRightPower * Constants.PowerScale);
+        frontLeft.setPower(wheelMix[0] * Constants.PowerScale);
+        backLeft.setPower(wheelMix[1] * Constants.PowerScale);
+        frontRight.setPower(wheelMix[2] * Constants.PowerScale);
+        backRight.setPower(wheelMix[3] * Constants.PowerScale);
+    }
+
+    /**
+     * Mixes forward, strafe and turn into the four wheels (front left, back left, front right,
+     * back right) and desaturates with the selected policy so no wheel exceeds the limit.
+     * Results go to wheelMix.
+     *
+     * One of the four wheels always has all three terms adding up, so under PROPORTIONAL the
+     * largest wheel is |forward| + |strafe| + |turn|: the same as dividing by that sum.
+     */
+    private void mix(double forward, double strafe, double turn, double limit) {
+        double translationA = forward + strafe;  // Front left and back right
+        double translationB = forward - strafe;  // Back left and front right
+
+        switch (desaturation) {
+            case ROTATION_PRIORITY: {
+                turn = Math.max(-limit, Math.min(limit, turn));
+                double scale = Math.min(headroom(translationA, turn, limit), headroom(translationB, turn, limit));
+                scale = Math.min(scale, Math.min(headroom(translationB, -turn, limit), headroom(translationA, -turn, limit)));
+                translationA *= scale;
+                translationB *= scale;
+                break;
+            }
+            case TRANSLATION_PRIORITY: {
+                double largest = Math.max(Math.abs(translationA), Math.abs(translationB));
+                if (largest > limit) {
+                    translationA *= limit / largest;
+                    translationB *= limit / largest;
+                }
+                double scale = Math.min(headroom(turn, translationA, limit), headroom(turn, translationB, limit));
+                scale = Math.min(scale, Math.min(headroom(-turn, translationB, limit), headroom(-turn, translationA, limit)));
+                turn *= scale;
+                break;
+            }
+            default: {
+                double largest = Math.abs(forward) + Math.abs(strafe) + Math.abs(turn);
+                if (largest > limit) {
+                    translationA *= limit / largest;
+                    translationB *= limit / largest;
+                    turn *= limit / largest;
+                }
+                break;
+            }
+        }
+
+        wheelMix[0] = translationA + turn;
+        wheelMix[1] = translationB + turn;
+        wheelMix[2] = translationB - turn;
+        wheelMix[3] = translationA - turn;
+    }
+
+    /**
+     * Largest factor (0 to 1) the scaled term can be multiplied by while |scaled * k + kept| stays
+     * within the limit. The kept term must already be within the limit.
+     */
+    private static double headroom(double scaled, double kept, double limit) {
+        if (Math.abs(scaled + kept) <= limit) {
+            return 1.0;
+        }
+        return Math.max(0.0, (limit - kept * Math.signum(scaled)) / Math.abs(scaled));
+    }
+
+    /**
+     * Forgets the acceleration limiter's and velocity mode's motion history without touching the
+     * wheels, assuming the robot is at rest. See resetAcceleration(double, double).
+     */
+    public void resetAcceleration() {
+        resetAcceleration(0, 0);
+    }
+
+    /**
+     * Restarts the acceleration limiter from the robot's measured speed and forgets the velocity
+     * mode's history, without touching the wheels. Call when something else, like the path
+     * follower, takes or gives back the wheels: the history then describes commands that were not
+     * driving the robot, and the next drive() ramps from how the robot is really moving.
+     *
+     * @param forwardSpeed Measured forward speed, robot frame (inches/second)
+     * @param strafeSpeed Measured strafe speed, robot frame, right positive (inches/second)
+     */
+    public void resetAcceleration(double forwardSpeed, double strafeSpeed) {
+        if (accelerationLimiter != null) {
+            // drive() limits the driver's sticks before rotating them, so turn the speed into sticks
+            // and undo the field-centric rotation (left positive for the math)
+            double angle = getStickRotation();
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double forward = forwardSpeed / Constants.X_VELOCITY;
+            double left = -strafeSpeed / Constants.Y_VELOCITY;
+            double driverForward = forward * cos + left * sin;
+            double driverLeft = -forward * sin + left * cos;
+            accelerationLimiter.reset(driverForward * Constants.X_VELOCITY, -driverLeft * Constants.Y_VELOCITY);
+        }
+        for (int i = 0; i < 4; i++) {
+            wheelAccelerations[i] = 0;
+        }
+        previousTargetNanos = 0;
+    }
+
+    /**
+     * Sets every wheel to zero power (they brake) and forgets the velocity mode's acceleration
+     * history, so the next move starts clean.
+     */
+    public void stop() {
+        for (int i = 0; i < 4; i++) {
+            wheels[i].setPower(0);
+            wheelAccelerations[i] = 0;
+        }
+        previousTargetNanos = 0;
+    }
+
+    /**
+     * Drives at a robot-relative velocity with closed-loop wheel speeds.
+     *
+     * Inverse kinematics gives each wheel's surface speed. Strafing slips on the rollers, so a
+     * strafe speed needs X_VELOCITY / Y_VELOCITY times as much wheel speed as the same forward
+     * speed; that measured ratio replaces the open-loop x * 1.1 factor. If any wheel would exceed
+     * X_VELOCITY, the desaturation policy decides whether translation, rotation or both give way.
+     *
+     * @param forward Forward speed (inches/second)
+     * @param strafe Strafe speed, right positive (inches/second)
+     * @param turn Rotation (-1 to 1), clockwise positive as in drive()
+     */
+    public void driveVelocity(double forward, double strafe, double turn) {
+        double strafeWheel = strafe * Constants.X_VELOCITY / Constants.Y_VELOCITY;
+        double turnWheel = turn * Constants.RotationalPowerScale / Constants.PowerScale * Constants.X_VELOCITY;
+
+        mix(forward, strafeWheel, turnWheel, Constants.X_VELOCITY * Constants.PowerScale);
+        System.arraycopy(wheelMix, 0, wheelTargets, 0, 4);
+
+        // Target acceleration for the kA term. Several calls in one loop would give a near-zero
+        // dt, so those keep the last estimate.
+        long now = System.nanoTime();
+        double dt = (now - previousTargetNanos) / 1e9;
+        if (previousTargetNanos == 0) {
+            System.arraycopy(wheelTargets, 0, previousTargets, 0, 4);
+            previousTargetNanos = now;
+        } else if (dt >= MIN_ACCELERATION_DT) {
+            for (int i = 0; i < 4; i++) {
+                wheelAccelerations[i] = (wheelTargets[i] - previousTargets[i]) / dt;
+            }
+            System.arraycopy(wheelTargets, 0, previousTargets, 0, 4);
+            previousTargetNanos = now;
+        }
+
+        double batteryVoltage = voltageCompensator.getVoltage();
+        for (int i = 0; i < 4; i++) {
+            double target = wheelTargets[i];
+            double measured = wheels[i].getVelocity() / DRIVE_TICKS_PER_INCH;
+            double volts = target == 0 ? 0
+                    : DRIVE_KS * Math.signum(target) + DRIVE_KV * target + DRIVE_KA * wheelAccelerations[i];
+            double power = volts / batteryVoltage + DRIVE_KP * (target - measured);
+            wheels[i].setPower(Math.max(-1.0, Math.min(1.0, power)));
+        }
     }
 }
@@ -0,0 +1,152 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.pedropathing.follower.Follower;
+import com.pedropathing.geometry.Pose;
+
+/**
+ * PosePredictor estimates where the robot will be when this loop's motor commands take effect.
+ *
+ * The pose is read at the top of the loop, but the commands computed from it reach the motors
+ * about one loop later. At 1.5 m/s and a 25 ms loop that is almost 1.5 inches, enough to carry
+ * the robot across a zone edge or past a stop tolerance before the code reacts. The predictor:
+ * 1. Measures the loop period (smoothed, ignoring pauses longer than MAX_LOOP_PERIOD_MS)
+ * 2. Sets the horizon to one loop period plus ACTUATION_DELAY_MS, capped at the latency budget
+ * 3. Extrapolates the pose over the horizon with the current field velocity and turn rate,
+ *    following the arc the robot drives when it translates and turns at the same time
+ *
+ * Decisions that should act on the pose the robot will have (aim, zone checks, arrival) read
+ * getX/getY/getHeading(); telemetry and logging keep using the measured pose.
+ *
+ * The predictor has no hardware dependencies, so ReplayEngine can rebuild the same predictions
+ * from a flight log.
+ */
+public class PosePredictor {
+
+    // ===== LATENCY BUDGET (EDITABLE) =====
+    public static double ACTUATION_DELAY_MS = 5.0;      // Hub write to wheel response, beyond one loop
+    public static double DEFAULT_MAX_LATENCY_MS = 60.0; // Prediction horizon never exceeds this
+    public static double MAX_LOOP_PERIOD_MS = 100.0;    // Longer gaps (pauses between moves) are not loop time
+    public static double LOOP_SMOOTHING = 0.2;          // Weight of the newest loop period in the average
+
+    private final double maxLatencyMs;
+
+    private long lastUpdateNanos = 0;
+    private double loopPeriodMs = 0;
+    private double latencySeconds = 0;
+    private double predictedX, predictedY, predictedHeading;
+
+    public PosePredictor() {
+        this(DEFAULT_MAX_LATENCY_MS);
+    }
+
+    /**
+     * @param maxLatencyMs Latency budget: the longest horizon the predictor will extrapolate over
+     */
+    public PosePredictor(double maxLatencyMs) {
+        this.maxLatencyMs = maxLatencyMs;
+    }
+
+    /**
+     * Takes this loop's measured pose and velocity and computes the predicted pose.
+     *
+     * @param nanos System.nanoTime() when the pose was read
+     * @param x Field X (inches)
+     * @param y Field Y (inches)
+     * @param heading Heading (radians)
+     * @param velocityX Field-frame X velocity (inches per second)
+     * @param velocityY Field-frame Y velocity (inches per second)
+     * @param angularVelocity Turn rate (radians per second)
+     */
+    public void update(long nanos, double x, double y, double heading,
+                       double velocityX, double velocityY, double angularVelocity) {
+        if (lastUpdateNanos != 0) {
+            double periodMs = (nanos - lastUpdateNanos) / 1e6;
+            if (periodMs > 0 && periodMs <= MAX_LOOP_PERIOD_MS) {
+                loopPeriodMs = loopPeriodMs == 0
+                        ? periodMs
+                        : loopPeriodMs + LOOP_SMOOTHING * (periodMs - loopPeriodMs);
+            }
+        }
+        lastUpdateNanos = nanos;
+
+        latencySeconds = Math.min(loopPeriodMs + ACTUATION_DELAY_MS, maxLatencyMs) / 1000.0;
+        extrapolate(x, y, heading, velocityX, velocityY, angularVelocity, latencySeconds);
+    }
+
+    /**
+     * Reads the follower's pose and its localizer's velocity. Call after follower.update().
+     *
+     * @param nanos System.nanoTime() now
+     * @param follower Follower that was just updated
+     */
+    public void update(long nanos, Follower follower) {
+        Pose pose = follower.getPose();
+        Pose velocity = follower.getPoseTracker().getLocalizer().getVelocity();
+        update(nanos, pose.getX(), pose.getY(), pose.getHeading(),
+                velocity.getX(), velocity.getY(), velocity.getHeading());
+    }
+
+    /**
+     * Extrapolates at constant speed and turn rate. The field velocity turns with the robot, so
+     * the path is an arc; for small turn rates this reduces to a straight line.
+     */
+    private void extrapolate(double x, double y, double heading, double velocityX, double velocityY,
+                             double angularVelocity, double seconds) {
+        double turn = angularVelocity * seconds;
+        double along, across;  // Displacement factors for the velocity and its perpendicular
+        if (Math.abs(turn) < 1e-6) {
+            along = seconds;
+            across = 0;
+        } else {
+            along = Math.sin(turn) / angularVelocity;
+            across = (1 - Math.cos(turn)) / angularVelocity;
+        }
+
+        predictedX = x + along * velocityX - across * velocityY;
+        predictedY = y + along * velocityY + across * velocityX;
+        predictedHeading = wrapAngle(heading + turn);
+    }
+
+    /** @return Predicted X at actuation time (inches) */
+    public double getX() {
+        return predictedX;
+    }
+
+    /** @return Predicted Y at actuation time (inches) */
+    public double getY() {
+        return predictedY;
+    }
+
+    /** @return Predicted heading at actuation time (radians, -PI to PI) */
+    public double getHeading() {
+        return predictedHeading;
+    }
+
+    /** @return Horizon used for the last prediction (seconds) */
+    public double getLatencySeconds() {
+        return latencySeconds;
+    }
+
+    /** @return Smoothed loop period (milliseconds) */
+    public double getLoopPeriodMs() {
+        return loopPeriodMs;
+    }
+
+    /**
+     * Forgets the loop timing, for example when an OpMode restarts its control loop.
+     */
+    public void reset() {
+        lastUpdateNanos = 0;
+        loopPeriodMs = 0;
+        latencySeconds = 0;
+    }
+
+    /**
+     * Wraps an angle to (-PI, PI].
+     */
+    private static double wrapAngle(double angle) {
+        while (angle > Math.PI) angle -= 2 * Math.PI;
+        while (angle <= -Math.PI) angle += 2 * Math.PI;
+        return angle;
+    }
+}
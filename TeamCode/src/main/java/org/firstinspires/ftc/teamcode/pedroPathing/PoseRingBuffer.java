@@ -0,0 +1,263 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * PoseRingBuffer remembers where the robot was, so code that receives late data (camera frames,
+ * sensor reads) can ask "where was I at time t".
+ *
+ * Each entry holds a timestamp, the field pose and the field-frame velocity. Entries live in
+ * parallel primitive arrays sized once in the constructor, so adding an entry never allocates;
+ * when the buffer is full the oldest entry is overwritten. Lookups binary-search the timestamps
+ * (O(log n)) and interpolate between the two neighbouring entries, taking the short way around
+ * for heading so that a pose near +/-PI does not spin the wrong way.
+ *
+ * Timestamps are System.nanoTime() values and must not decrease; an entry older than the newest
+ * one is ignored. The class is not thread safe; use it from the OpMode thread.
+ */
+public class PoseRingBuffer {
+
+    public static final int DEFAULT_CAPACITY = 512;  // About 5 seconds at 100 loops per second
+
+    private final int capacity;
+    private final long[] nanos;
+    private final double[] x, y, heading;
+    private final double[] vx, vy, omega;
+    private int oldest = 0;  // Physical index of logical entry 0
+    private int count = 0;
+
+    public PoseRingBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of entries kept (loop rate times seconds of history)
+     */
+    public PoseRingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.capacity = capacity;
+        nanos = new long[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        heading = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        omega = new double[capacity];
+    }
+
+    // ===== INSERT =====
+
+    /**
+     * Adds a pose with its velocity.
+     *
+     * @param timeNanos System.nanoTime() when the pose was measured
+     * @param poseX Field X (inches)
+     * @param poseY Field Y (inches)
+     * @param poseHeading Heading (radians)
+     * @param velocityX Field-frame X velocity (inches per second)
+     * @param velocityY Field-frame Y velocity (inches per second)
+     * @param angularVelocity Angular velocity (radians per second)
+     */
+    public void add(long timeNanos, double poseX, double poseY, double poseHeading,
+                    double velocityX, double velocityY, double angularVelocity) {
+        if (count > 0 && timeNanos < nanos[physical(count - 1)]) {
+            return;
+        }
+
+        int index;
+        if (count < capacity) {
+            index = physical(count);
+            count++;
+        } else {
+            index = oldest;
+            oldest = (oldest + 1) % capacity;
+        }
+
+        nanos[index] = timeNanos;
+        x[index] = poseX;
+        y[index] = poseY;
+        heading[index] = poseHeading;
+        vx[index] = velocityX;
+        vy[index] = velocityY;
+        omega[index] = angularVelocity;
+    }
+
+    /**
+     * Adds a pose and derives its velocity from the previous entry.
+     *
+     * @param timeNanos System.nanoTime() when the pose was measured
+     * @param poseX Field X (inches)
+     * @param poseY Field Y (inches)
+     * @param poseHeading Heading (radians)
+     */
+    public void add(long timeNanos, double poseX, double poseY, double poseHeading) {
+        double velocityX = 0, velocityY = 0, angularVelocity = 0;
+        if (count > 0) {
+            int previous = physical(count - 1);
+            double dt = (timeNanos - nanos[previous]) / 1e9;
+            if (dt > 0) {
+                velocityX = (poseX - x[previous]) / dt;
+                velocityY = (poseY - y[previous]) / dt;
+                angularVelocity = wrapAngle(poseHeading - heading[previous]) / dt;
+            }
+        }
+        add(timeNanos, poseX, poseY, poseHeading, velocityX, velocityY, angularVelocity);
+    }
+
+    // ===== LOOKUP =====
+
+    /**
+     * Interpolates the state at a past time. Times after the newest entry return the newest entry.
+     *
+     * @param timeNanos Time to look up (System.nanoTime() base)
+     * @param out Receives x, y, heading, and if it has room for them vx, vy, omega
+     * @return false if the buffer is empty or the time is older than the oldest entry
+     */
+    public boolean interpolate(long timeNanos, double[] out) {
+        if (count == 0 || timeNanos < nanos[oldest]) {
+            return false;
+        }
+
+        int newest = physical(count - 1);
+        if (timeNanos >= nanos[newest]) {
+            copy(newest, out);
+            return true;
+        }
+
+        // Largest logical index whose time is <= timeNanos
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (nanos[physical(mid)] <= timeNanos) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int before = physical(low);
+        int after = physical(low + 1);
+        double span = nanos[after] - nanos[before];
+        double t = span > 0 ? (timeNanos - nanos[before]) / span : 0;
+
+        out[0] = x[before] + (x[after] - x[before]) * t;
+        out[1] = y[before] + (y[after] - y[before]) * t;
+        out[2] = wrapAngle(heading[before] + wrapAngle(heading[after] - heading[before]) * t);
+        if (out.length >= 6) {
+            out[3] = vx[before] + (vx[after] - vx[before]) * t;
+            out[4] = vy[before] + (vy[after] - vy[before]) * t;
+            out[5] = omega[before] + (omega[after] - omega[before]) * t;
+        }
+        return true;
+    }
+
+    // ===== BULK UPDATE =====
+
+    /**
+     * Moves every stored pose by the same rigid transform (rotation about the field origin, then a
+     * shift), rotating the velocities to match. Used when a relocalization corrects odometry, so
+     * later lookups return corrected poses.
+     *
+     * @param rotation Rotation (radians)
+     * @param shiftX X shift after rotating (inches)
+     * @param shiftY Y shift after rotating (inches)
+     */
+    public void transform(double rotation, double shiftX, double shiftY) {
+        double cos = Math.cos(rotation);
+        double sin = Math.sin(rotation);
+        for (int i = 0; i < count; i++) {
+            int index = physical(i);
+            double px = x[index];
+            double py = y[index];
+            x[index] = cos * px - sin * py + shiftX;
+            y[index] = sin * px + cos * py + shiftY;
+            heading[index] = wrapAngle(heading[index] + rotation);
+
+            double pvx = vx[index];
+            double pvy = vy[index];
+            vx[index] = cos * pvx - sin * pvy;
+            vy[index] = sin * pvx + cos * pvy;
+        }
+    }
+
+    public void clear() {
+        oldest = 0;
+        count = 0;
+    }
+
+    // ===== ACCESS (logical index: 0 = oldest, size() - 1 = newest) =====
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getNanos(int i) {
+        return nanos[physical(i)];
+    }
+
+    public double getX(int i) {
+        return x[physical(i)];
+    }
+
+    public double getY(int i) {
+        return y[physical(i)];
+    }
+
+    public double getHeading(int i) {
+        return heading[physical(i)];
+    }
+
+    public double getVelocityX(int i) {
+        return vx[physical(i)];
+    }
+
+    public double getVelocityY(int i) {
+        return vy[physical(i)];
+    }
+
+    public double getAngularVelocity(int i) {
+        return omega[physical(i)];
+    }
+
+    /**
+     * @return Logical index of the newest entry (size() - 1)
+     */
+    public int newest() {
+        return count - 1;
+    }
+
+    // ===== HELPERS =====
+
+    private int physical(int logical) {
+        return (oldest + logical) % capacity;
+    }
+
+    private void copy(int index, double[] out) {
+        out[0] = x[index];
+        out[1] = y[index];
+        out[2] = heading[index];
+        if (out.length >= 6) {
+            out[3] = vx[index];
+            out[4] = vy[index];
+            out[5] = omega[index];
+        }
+    }
+
+    /**
+     * Wraps an angle to (-PI, PI].
+     */
+    private static double wrapAngle(double angle) {
+        while (angle > Math.PI) angle -= 2 * Math.PI;
+        while (angle <= -Math.PI) angle += 2 * Math.PI;
+        return angle;
+    }
+}
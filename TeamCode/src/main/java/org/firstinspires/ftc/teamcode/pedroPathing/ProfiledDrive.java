@@ -0,0 +1,292 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.pedropathing.ftc.localization.constants.OTOSConstants;
+import com.qualcomm.hardware.sparkfun.SparkFunOTOS;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+/**
+ * ProfiledDrive moves the robot a set distance or angle on a trapezoidal motion profile, checked
+ * against the OTOS (or the drive encoders without one), and finishes as soon as the robot is
+ * there.
+ *
+ * A timed move at full power has to wait for the worst case and still lands wherever the battery
+ * and the floor put it. Here each move:
+ * 1. Plans a TrapezoidProfile from rest to rest within MAX_VELOCITY and MAX_ACCELERATION
+ * 2. Every loop, commands the profile's velocity plus a correction proportional to how far the
+ *    measured position lags the plan; straight moves also hold the starting heading. The speed
+ *    goes out open loop as a fraction of the measured full-power speed (X_VELOCITY, Y_VELOCITY),
+ *    corrected for battery voltage, so moves do not depend on the drive's velocity-mode gains.
+ *    If the OpMode has opted in to velocity mode, the same speed goes through it instead.
+ * 3. Ends when the measured position is inside the tolerance once the plan has (nearly) reached
+ *    the target, or SETTLE_TIMEOUT_S after the plan ends if it never gets there
+ *
+ * The OTOS is set up with the same name and mounting offset as the follower
+ * (Constants.localizerConstants). Without an OTOS the drive encoders are used; if none of them
+ * count for STALL_TIMEOUT_S while the plan is moving, the move stops instead of driving blind
+ * (isStalled()).
+ *
+ * Moves are relative to where the robot is when they start, in the robot frame: forward
+ * positive, right positive, counterclockwise positive. start*() returns immediately; call
+ * update() once per loop until it returns false.
+ */
+public class ProfiledDrive {
+
+    // ===== PROFILE LIMITS (EDITABLE) =====
+    public static double MAX_VELOCITY = 45;                   // Inches/second, below X_VELOCITY to leave room for correction
+    public static double MAX_ACCELERATION = 100;              // Inches/second^2
+    public static double MAX_TURN_RATE = Math.toRadians(180); // Radians/second
+    public static double MAX_TURN_ACCELERATION = Math.toRadians(360);  // Radians/second^2
+
+    // ===== TRACKING (EDITABLE) =====
+    public static double POSITION_KP = 4.0;                   // Inches/second per inch behind the plan
+    public static double HEADING_KP = 1.0;                    // Turn power per radian of heading error
+    public static double TURN_RADIUS = 9.0;                   // Wheel distance from the turning center, (track width + wheelbase) / 2
+    public static double POSITION_TOLERANCE = 0.75;           // Inches
+    public static double HEADING_TOLERANCE = Math.toRadians(2);
+    public static double SETTLE_TIMEOUT_S = 0.75;             // Give up this long after the plan ends
+    public static double STALL_TIMEOUT_S = 0.5;               // Encoder fallback: stop if no wheel counts for this long
+
+    private enum Axis { FORWARD, STRAFE, TURN }
+
+    private final MecanumDrive drive;
+    private final VoltageCompensator voltageCompensator;
+    private final SparkFunOTOS otos;  // Null: fall back to the drive encoders
+
+    // Current move
+    private TrapezoidProfile profile = null;
+    private Axis axis;
+    private long startNanos;
+    private double startX, startY, startHeading;
+    private double frameHeading;  // Heading of the frame x/y are in, relative to the robot at the start
+    private double progress, error;
+
+    // Latest odometry reading (inches, radians counterclockwise)
+    private double x, y, heading;
+
+    // Encoder fallback: raw wheel positions and when any of them last changed
+    private final int[] wheelTicks = new int[4];
+    private long ticksChangedNanos;
+    private boolean stalled = false;
+
+    /**
+     * @param hardwareMap Hardware map; the OTOS is used if one is configured under the follower's
+     *                    name (Constants.localizerConstants)
+     * @param drive Drive to command
+     */
+    public ProfiledDrive(HardwareMap hardwareMap, MecanumDrive drive) {
+        this.drive = drive;
+        voltageCompensator = new VoltageCompensator(hardwareMap);
+        OTOSConstants otosConstants = Constants.localizerConstants;
+        otos = hardwareMap.tryGet(SparkFunOTOS.class, otosConstants.hardwareMapName);
+        if (otos != null) {
+            // The offset is in the follower's configured units; readings are taken in inches and radians
+            otos.setLinearUnit(otosConstants.linearUnit);
+            otos.setAngularUnit(otosConstants.angleUnit);
+            otos.setOffset(otosConstants.offset);
+            otos.setLinearUnit(DistanceUnit.INCH);
+            otos.setAngularUnit(AngleUnit.RADIANS);
+            otos.calibrateImu();
+            otos.resetTracking();
+        }
+    }
+
+    // ===== MOVES =====
+
+    /** @param inches Forward distance (negative drives backward) */
+    public void startDrive(double inches) {
+        start(Axis.FORWARD, new TrapezoidProfile(inches, MAX_VELOCITY, MAX_ACCELERATION));
+    }
+
+    /** @param inches Strafe distance (positive right) */
+    public void startStrafe(double inches) {
+        // Strafing is slower; keep the same fraction of the available speed
+        double velocity = MAX_VELOCITY * Constants.Y_VELOCITY / Constants.X_VELOCITY;
+        start(Axis.STRAFE, new TrapezoidProfile(inches, velocity, MAX_ACCELERATION));
+    }
+
+    /** @param radians Rotation (positive counterclockwise) */
+    public void startRotate(double radians) {
+        start(Axis.TURN, new TrapezoidProfile(radians, MAX_TURN_RATE, MAX_TURN_ACCELERATION));
+    }
+
+    private void start(Axis axis, TrapezoidProfile profile) {
+        readOdometry();
+        this.axis = axis;
+        this.profile = profile;
+        startX = x;
+        startY = y;
+        startHeading = heading;
+        frameHeading = otos != null ? heading : 0;  // Encoder x/y are already robot-relative
+        progress = 0;
+        error = profile.getDistance();
+        startNanos = System.nanoTime();
+        ticksChangedNanos = startNanos;
+        stalled = false;
+    }
+
+    /**
+     * Tracks the current move for one loop.
+     *
+     * @return True while the move is still running; false once it has finished (the drive is stopped)
+     */
+    public boolean update() {
+        if (profile == null) {
+            return false;
+        }
+        readOdometry();
+        double t = (System.nanoTime() - startNanos) / 1e9;
+
+        // Progress along the move, in the robot frame at the start
+        double headingChange = wrapAngle(heading - startHeading);
+        double dx = x - startX;
+        double dy = y - startY;
+        double cos = Math.cos(frameHeading);
+        double sin = Math.sin(frameHeading);
+        switch (axis) {
+            case FORWARD:
+                progress = dx * cos + dy * sin;
+                break;
+            case STRAFE:
+                progress = dx * sin - dy * cos;  // Right positive
+                break;
+            default:
+                progress = headingChange;
+                break;
+        }
+        error = profile.getDistance() - progress;
+
+        double tolerance = axis == Axis.TURN ? HEADING_TOLERANCE : POSITION_TOLERANCE;
+        boolean planNearlyDone = Math.abs(profile.getDistance() - profile.getPosition(t)) < tolerance;
+        if ((planNearlyDone && Math.abs(error) < tolerance) || t > profile.getTotalTime() + SETTLE_TIMEOUT_S) {
+            stop();
+            return false;
+        }
+
+        // Encoders that never move mean the fallback would track 0 and drive on forever
+        if (otos == null && t < profile.getTotalTime()
+                && System.nanoTime() - ticksChangedNanos > STALL_TIMEOUT_S * 1e9) {
+            stop();
+            stalled = true;
+            return false;
+        }
+
+        double lag = profile.getPosition(t) - progress;
+        double command = profile.getVelocity(t) + POSITION_KP * lag;
+        double holdTurn = Math.max(-0.3, Math.min(0.3, HEADING_KP * headingChange));  // Clockwise positive
+
+        // Inches/second to stick values: full stick is the measured full-power speed. Velocity mode
+        // turns them back into the same speeds and needs no battery correction.
+        double scale = drive.isVelocityControl() ? 1.0 : voltageCompensator.getScale();
+        switch (axis) {
+            case FORWARD:
+                drive.driveRobotCentric(-command / Constants.X_VELOCITY * scale, 0, holdTurn * scale);
+                break;
+            case STRAFE:
+                drive.driveRobotCentric(0, command / Constants.Y_VELOCITY * scale, holdTurn * scale);
+                break;
+            default:
+                // Radians/second to turn stick, clockwise positive
+                double turnWheelSpeed = command * TURN_RADIUS;
+                double turn = -turnWheelSpeed * Constants.PowerScale
+                        / (Constants.RotationalPowerScale * Constants.X_VELOCITY);
+                drive.driveRobotCentric(0, 0, turn * scale);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Ends the current move and stops the wheels.
+     */
+    public void stop() {
+        profile = null;
+        drive.stop();
+    }
+
+    public boolean isBusy() {
+        return profile != null;
+    }
+
+    /** @return Distance still to go on the current (or last) move (inches, or radians for turns) */
+    public double getError() {
+        return error;
+    }
+
+    public boolean hasOtos() {
+        return otos != null;
+    }
+
+    /** @return True if the last move was stopped because the drive encoders were not counting */
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    public void addTelemetry(Telemetry telemetry) {
+        if (stalled) {
+            telemetry.addData("Move", "stopped: drive encoders not counting");
+        } else if (profile == null) {
+            telemetry.addData("Move", "idle");
+        } else {
+            telemetry.addData("Move", "%s, %.2f to go", axis, error);
+        }
+        telemetry.addData("Odometry", otos != null ? "OTOS" : "Encoders");
+    }
+
+    // ===== ODOMETRY =====
+
+    /**
+     * Reads the OTOS pose, or integrates the drive encoders into the same x/y/heading without one.
+     */
+    private void readOdometry() {
+        if (otos != null) {
+            SparkFunOTOS.Pose2D pose = otos.getPosition();
+            x = pose.x;
+            y = pose.y;
+            heading = pose.h;
+            return;
+        }
+
+        // Wheel positions; any change at all shows the encoders are counting
+        int frontLeftTicks = drive.frontLeft.getCurrentPosition();
+        int backLeftTicks = drive.backLeft.getCurrentPosition();
+        int frontRightTicks = drive.frontRight.getCurrentPosition();
+        int backRightTicks = drive.backRight.getCurrentPosition();
+        if (frontLeftTicks != wheelTicks[0] || backLeftTicks != wheelTicks[1]
+                || frontRightTicks != wheelTicks[2] || backRightTicks != wheelTicks[3]) {
+            wheelTicks[0] = frontLeftTicks;
+            wheelTicks[1] = backLeftTicks;
+            wheelTicks[2] = frontRightTicks;
+            wheelTicks[3] = backRightTicks;
+            ticksChangedNanos = System.nanoTime();
+        }
+
+        // Inches; forward + strafe + clockwise turn, as in MecanumDrive's mixer
+        double frontLeft = frontLeftTicks / MecanumDrive.DRIVE_TICKS_PER_INCH;
+        double backLeft = backLeftTicks / MecanumDrive.DRIVE_TICKS_PER_INCH;
+        double frontRight = frontRightTicks / MecanumDrive.DRIVE_TICKS_PER_INCH;
+        double backRight = backRightTicks / MecanumDrive.DRIVE_TICKS_PER_INCH;
+        double forward = (frontLeft + backLeft + frontRight + backRight) / 4;
+        double strafe = (frontLeft - backLeft - frontRight + backRight) / 4
+                * Constants.Y_VELOCITY / Constants.X_VELOCITY;  // Rollers slip when strafing
+        double clockwise = (frontLeft + backLeft - frontRight - backRight) / 4 / TURN_RADIUS;
+
+        // Totals in the robot frame; moves go along one axis at a time and hold heading, so
+        // differences between two readings are robot-relative displacements
+        heading = -clockwise;
+        x = forward;
+        y = -strafe;
+    }
+
+    /**
+     * Wraps an angle to (-PI, PI].
+     */
+    private static double wrapAngle(double angle) {
+        while (angle > Math.PI) angle -= 2 * Math.PI;
+        while (angle <= -Math.PI) angle += 2 * Math.PI;
+        return angle;
+    }
+}
@@ -19,29 +19,37 @@ public class Red_Shoot_Auto extends LinearOpMode {
     public DcMotor intake;
     private double powerscale = 1;
     private DcMotorEx flywheel;
+    private VoltageCompensator voltageCompensator;
+    private ProfiledDrive profiledDrive;
+    private final LoopProfiler loopProfiler = new LoopProfiler("Red_Shoot_Auto");
 
     // ===== DISTANCE-TO-TIME CALIBRATION RATIOS (EDITABLE) =====
+    // Only driveCombined() is still timed; the other moves run on ProfiledDrive
     // These values represent the time (in milliseconds) needed to travel 1 centimeter at full power
     // Calibrate by measuring actual distance traveled and adjusting these values
     // Calibration Reference: Robot travels 106cm in 750ms
+    // Times are at VoltageCompensator.NOMINAL_VOLTAGE and scaled for the battery at run time
     private static final double FORWARD_MS_PER_CM = 7.075;    // Time in ms to travel 1 cm forward (750ms / 106cm)
     private static final double STRAFE_MS_PER_CM = 7.075;     // Time in ms to travel 1 cm strafe (sideways)
     private static final double ROTATE_MS_PER_DEGREE = 10.0; // Time in ms to rotate 1 degree
+    private static final double CM_PER_INCH = 2.54;
 
 
     @Override
     public void runOpMode() throws InterruptedException {
         mecanumDrive = new MecanumDrive(hardwareMap);
+        profiledDrive = new ProfiledDrive(hardwareMap, mecanumDrive);
         intake = hardwareMap.get(DcMotor.class, "intake");
         flywheel = hardwareMap.get(DcMotorEx.class, "output");
         gate = hardwareMap.get(Servo.class, "gate");
 
         intake.setDirection(DcMotorSimple.Direction.REVERSE);
         flywheel.setDirection(DcMotorEx.Direction.REVERSE);
+        voltageCompensator = new VoltageCompensator(hardwareMap);
 
 
         waitForStart();
-        flywheel.setPower(1);
+        flywheel.setPower(voltageCompensator.compensate(1));
 
 
         driveDistance(-100);
@@ -76,45 +84,50 @@ public class Red_Shoot_Auto extends LinearOpMode {
     }
 
     /**
-     * Drive forward for a specific distance at full power.
-     * Uses the FORWARD_MS_PER_CM calibration ratio to calculate required time.
+     * Drive a specific distance on a motion profile, tracked with the OTOS (or the wheel
+     * encoders). Returns as soon as the robot arrives.
      *
-     * @param distanceCM The distance to travel in centimeters (positive = forward, negative = backward)
+     * @param distanceCM The distance to travel in centimeters (positive = backward, negative = forward; MecanumDrive.drive() inverts the stick)
      */
     public void driveDistance(double distanceCM) {
-        long timeMS = (long) (Math.abs(distanceCM) * FORWARD_MS_PER_CM);
-        double direction = distanceCM >= 0 ? 1.0 : -1.0;
-        drive(direction, 0, 0);
-        sleep(timeMS);
-        drive(0, 0, 0);
+        profiledDrive.startDrive(-distanceCM / CM_PER_INCH);
+        followMove();
     }
 
     /**
-     * Strafe (move sideways) for a specific distance at full power.
-     * Uses the STRAFE_MS_PER_CM calibration ratio to calculate required time.
+     * Strafe (move sideways) a specific distance on a motion profile. Returns as soon as the
+     * robot arrives.
      *
      * @param distanceCM The distance to strafe in centimeters (positive = right, negative = left)
      */
     public void strafeDistance(double distanceCM) {
-        long timeMS = (long) (Math.abs(distanceCM) * STRAFE_MS_PER_CM);
-        double direction = distanceCM >= 0 ? 1.0 : -1.0;
-        drive(0, direction, 0);
-        sleep(timeMS);
-        drive(0, 0, 0);
+        profiledDrive.startStrafe(distanceCM / CM_PER_INCH);
+        followMove();
     }
 
     /**
-     * Rotate the robot for a specific angle at full power.
-     * Uses the ROTATE_MS_PER_DEGREE calibration ratio to calculate required time.
+     * Rotate the robot a specific angle on a motion profile. Returns as soon as the robot arrives.
      *
-     * @param angleDegrees The angle to rotate in degrees (positive = counterclockwise, negative = clockwise)
+     * @param angleDegrees The angle to rotate in degrees (positive = clockwise, negative = counterclockwise,
+     *                     the same way drive(0, 0, 1) turns)
      */
     public void rotateAngle(double angleDegrees) {
-        long timeMS = (long) (Math.abs(angleDegrees) * ROTATE_MS_PER_DEGREE);
-        double direction = angleDegrees >= 0 ? 1.0 : -1.0;
-        drive(0, 0, direction);
-        sleep(timeMS);
-        drive(0, 0, 0);
+        profiledDrive.startRotate(-Math.toRadians(angleDegrees));
+        followMove();
+    }
+
+    /**
+     * Runs the started move until it finishes or the OpMode stops.
+     */
+    private void followMove() {
+        while (opModeIsActive() && profiledDrive.update()) {
+            loopProfiler.mark();
+            profiledDrive.addTelemetry(telemetry);
+            loopProfiler.addTelemetry(telemetry);
+            telemetry.update();
+        }
+        loopProfiler.pause();
+        profiledDrive.stop();
     }
 
     /**
@@ -136,7 +149,7 @@ public class Red_Shoot_Auto extends LinearOpMode {
         double rxDirection = angleDegrees >= 0 ? 1.0 : -1.0;
 
         drive(yDirection, xDirection, rxDirection);
-        sleep(timeMS);
+        sleep(voltageCompensator.compensateDuration(timeMS));
         drive(0, 0, 0);
     }
 
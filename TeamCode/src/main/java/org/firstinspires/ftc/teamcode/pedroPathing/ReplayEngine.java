@@ -0,0 +1,164 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * ReplayEngine re-runs the current shooting-zone, auto-aim and flywheel code against a recorded
+ * FreeSpin match and diffs the new outputs against the ones the robot actually sent.
+ *
+ * For every record in the flight log the engine:
+ * 1. Re-checks the shooting zones with the current CoordinateTriangle vertices at the recorded pose
+ * 2. Recomputes the rotation command with AimController
+ * 3. Recomputes the flywheel power with FlywheelController
+ * 4. Compares both against the recorded values
+ *
+ * Inputs come only from the log, so a replay is deterministic and runs as fast as the CPU allows.
+ * The driver's raw rotation stick is not recorded; it is reconstructed from the recorded rotation
+ * command when auto-aim was not active, and taken as 0 (inside the deadband) when it was.
+ * Records flagged FLAG_PREDICTED_POSE were driven from PosePredictor's pose; the replay rebuilds
+ * that prediction from the recorded pose, velocity and record times. Record times are taken a
+ * little later in the loop than the live prediction, so predictions match to within loop jitter.
+ * Records where the flywheel was scaled from the camera tag range (FLAG_TAG_RANGE) or cut by the
+ * current budget (FLAG_CURRENT_LIMITED) cannot be recomputed from the log, so their recorded power
+ * is taken as is.
+ * Poses are stored as floats, so a pose sitting exactly on a zone edge can flip zones on replay;
+ * that shows up as an isolated zone change rather than a run of them.
+ */
+public class ReplayEngine {
+
+    // ===== DIFF TOLERANCES (EDITABLE) =====
+    public static final double ROTATION_TOLERANCE = 0.01;  // Rotation power difference counted as a change
+    public static final double POWER_TOLERANCE = 0.01;     // Flywheel power difference counted as a change
+
+    /**
+     * Outcome of one replay.
+     */
+    public static class Result {
+        public int records;
+        public int zoneChanges;          // Records whose zone membership changed
+        public int rotationChanges;      // Records whose rotation command changed beyond tolerance
+        public int powerChanges;         // Records whose flywheel power changed beyond tolerance
+        public double maxRotationDiff;
+        public double maxPowerDiff;
+        public double rmsRotationDiff;
+        public double rmsPowerDiff;
+        public double firstChangeSeconds = Double.NaN;  // Time of the first changed output
+
+        public boolean isIdentical() {
+            return zoneChanges == 0 && rotationChanges == 0 && powerChanges == 0;
+        }
+    }
+
+    private final CoordinateTriangle shootingZones;
+    private final AimController aimController;
+    private final FlywheelController flywheelController;
+    private final PosePredictor posePredictor = new PosePredictor();
+
+    /**
+     * @param shootingZones Zone definition to test (may differ from the one recorded)
+     * @param aimController Aim controller to test
+     * @param flywheelController Flywheel controller to test
+     */
+    public ReplayEngine(CoordinateTriangle shootingZones, AimController aimController,
+                        FlywheelController flywheelController) {
+        this.shootingZones = shootingZones;
+        this.aimController = aimController;
+        this.flywheelController = flywheelController;
+    }
+
+    /**
+     * Replays every record of a log through the controllers.
+     *
+     * @param log Flight log recorded by FreeSpinRed or FreeSpinBlue
+     * @param diffOut If not null, receives one CSV line per record whose outputs changed
+     * @return Summary of the differences
+     */
+    public Result run(FlightLog log, PrintWriter diffOut) {
+        Result result = new Result();
+        double rotationSquares = 0;
+        double powerSquares = 0;
+
+        if (diffOut != null) {
+            diffOut.println("time_s,x,y,heading,recorded_zone,replayed_zone,recorded_rotation,replayed_rotation,"
+                    + "recorded_power,replayed_power");
+        }
+
+        for (int i = 0; i < log.getRecordCount(); i++) {
+            double x = log.getX(i);
+            double y = log.getY(i);
+            double heading = log.getHeading(i);
+            // The pose the controllers acted on
+            double controlX = x;
+            double controlY = y;
+            double controlHeading = heading;
+            if (log.hasFlag(i, FlightRecorder.FLAG_PREDICTED_POSE)) {
+                posePredictor.update(log.getTimeNanos(i), x, y, heading, log.getVx(i), log.getVy(i), log.getOmega(i));
+                controlX = posePredictor.getX();
+                controlY = posePredictor.getY();
+                controlHeading = posePredictor.getHeading();
+            }
+
+            boolean sticksIdle = log.hasFlag(i, FlightRecorder.FLAG_STICKS_IDLE);
+            boolean override = log.hasFlag(i, FlightRecorder.FLAG_FLYWHEEL_OVERRIDE);
+
+            // Recorded outputs
+            boolean recordedFront = log.hasFlag(i, FlightRecorder.FLAG_FRONT_ZONE);
+            boolean recordedBack = log.hasFlag(i, FlightRecorder.FLAG_BACK_ZONE);
+            double recordedRotation = log.getRotationCommand(i);
+            double recordedPower = log.getFlywheelPower(i);
+
+            // Driver rotation input as it was before auto-aim replaced it
+            boolean aimWasActive = (recordedFront || recordedBack) && sticksIdle;
+            double driverRotation = aimWasActive ? 0 : recordedRotation;
+
+            // Replayed outputs
+            boolean front = shootingZones.checkIfRobotInFrontShootArea(controlX, controlY);
+            boolean back = shootingZones.checkIfRobotInBackShootArea(controlX, controlY);
+            double rotation = aimController.calculateRotation(driverRotation, front || back, sticksIdle,
+                    controlX, controlY, controlHeading);
+            double power = log.hasFlag(i, FlightRecorder.FLAG_TAG_RANGE)
+                    || log.hasFlag(i, FlightRecorder.FLAG_CURRENT_LIMITED)
+                    ? recordedPower
+                    : flywheelController.calculatePower(controlX, controlY, front, back, override);
+
+            // Compare
+            double rotationDiff = Math.abs(rotation - recordedRotation);
+            double powerDiff = Math.abs(power - recordedPower);
+            boolean zoneChanged = front != recordedFront || back != recordedBack;
+            boolean rotationChanged = rotationDiff > ROTATION_TOLERANCE;
+            boolean powerChanged = powerDiff > POWER_TOLERANCE;
+
+            result.records++;
+            rotationSquares += rotationDiff * rotationDiff;
+            powerSquares += powerDiff * powerDiff;
+            result.maxRotationDiff = Math.max(result.maxRotationDiff, rotationDiff);
+            result.maxPowerDiff = Math.max(result.maxPowerDiff, powerDiff);
+            if (zoneChanged) result.zoneChanges++;
+            if (rotationChanged) result.rotationChanges++;
+            if (powerChanged) result.powerChanges++;
+
+            if (zoneChanged || rotationChanged || powerChanged) {
+                if (Double.isNaN(result.firstChangeSeconds)) {
+                    result.firstChangeSeconds = log.getTimeSeconds(i);
+                }
+                if (diffOut != null) {
+                    diffOut.println(String.format(Locale.US, "%.3f,%.2f,%.2f,%.3f,%s,%s,%.3f,%.3f,%.3f,%.3f",
+                            log.getTimeSeconds(i), x, y, heading,
+                            zoneName(recordedFront, recordedBack), zoneName(front, back),
+                            recordedRotation, rotation, recordedPower, power));
+                }
+            }
+        }
+
+        if (result.records > 0) {
+            result.rmsRotationDiff = Math.sqrt(rotationSquares / result.records);
+            result.rmsPowerDiff = Math.sqrt(powerSquares / result.records);
+        }
+        return result;
+    }
+
+    private static String zoneName(boolean front, boolean back) {
+        return front ? "front" : back ? "back" : "none";
+    }
+}
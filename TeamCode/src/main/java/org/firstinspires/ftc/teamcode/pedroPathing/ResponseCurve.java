@@ -0,0 +1,62 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * ResponseCurve reshapes a joystick axis through a lookup table built once at construction.
+ *
+ * A linear stick spends most of its travel at speeds too fast for fine positioning. A curve keeps
+ * full stick at full output but gives more resolution near the center:
+ * - expo(e): (1 - e) * v + e * v^3; e = 0 is linear, e = 1 is cubic
+ * - power(p): v^p with the sign kept; 2 is the common "squared inputs"
+ * Inputs inside the deadband give 0, and the remaining travel is stretched so the output starts
+ * from 0 at the deadband edge instead of jumping.
+ *
+ * The curve is tabulated at TABLE_SIZE points over 0..1 and read with linear interpolation, so
+ * apply() costs a multiply and an add regardless of the curve's shape. Curves are odd: negative
+ * inputs mirror positive ones.
+ */
+public class ResponseCurve {
+
+    public static final int TABLE_SIZE = 65;  // Points from 0 to 1 inclusive
+
+    public static final ResponseCurve LINEAR = new ResponseCurve(0, 1, 0);
+
+    private final double[] table = new double[TABLE_SIZE];
+
+    private ResponseCurve(double expo, double power, double deadband) {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            double input = (double) i / (TABLE_SIZE - 1);
+            double stretched = input <= deadband ? 0 : (input - deadband) / (1 - deadband);
+            double shaped = Math.pow(stretched, power);
+            table[i] = (1 - expo) * shaped + expo * shaped * shaped * shaped;
+        }
+    }
+
+    /**
+     * @param expo Blend between linear (0) and cubic (1)
+     * @param deadband Inputs below this are 0 (0 to just under 1)
+     */
+    public static ResponseCurve expo(double expo, double deadband) {
+        return new ResponseCurve(expo, 1, deadband);
+    }
+
+    /**
+     * @param power Exponent applied to the stick magnitude (1 = linear, 2 = squared)
+     * @param deadband Inputs below this are 0 (0 to just under 1)
+     */
+    public static ResponseCurve power(double power, double deadband) {
+        return new ResponseCurve(0, power, deadband);
+    }
+
+    /**
+     * @param input Stick value (-1 to 1; larger magnitudes are clamped)
+     * @return Shaped value (-1 to 1)
+     */
+    public double apply(double input) {
+        double magnitude = Math.min(Math.abs(input), 1.0);
+        double position = magnitude * (TABLE_SIZE - 1);
+        int index = Math.min((int) position, TABLE_SIZE - 2);
+        double fraction = position - index;
+        double value = table[index] + (table[index + 1] - table[index]) * fraction;
+        return input < 0 ? -value : value;
+    }
+}
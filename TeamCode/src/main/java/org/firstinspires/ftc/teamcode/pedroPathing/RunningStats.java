@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * RunningStats accumulates the mean, variance, min and max of a stream of samples without storing
+ * them.
+ *
+ * The mean and variance use Welford's online update, which stays accurate over long runs where
+ * summing squares would lose precision. Each add() is O(1) with no allocation, so a tuner can feed
+ * every loop for as long as it needs.
+ */
+public class RunningStats {
+
+    private long count = 0;
+    private double mean = 0;
+    private double m2 = 0;    // Sum of squared deviations from the mean
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if (count == 1) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Mean of the samples, 0 before the first sample
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return Sample variance, 0 with fewer than two samples
+     */
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return Smallest sample, NaN before the first sample
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return Largest sample, NaN before the first sample
+     */
+    public double getMax() {
+        return max;
+    }
+
+    public void reset() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+}
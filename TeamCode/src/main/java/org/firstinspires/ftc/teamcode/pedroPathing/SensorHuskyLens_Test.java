@@ -32,8 +32,6 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package org.firstinspires.ftc.teamcode.pedroPathing;
 
-import android.health.connect.datatypes.units.Power;
-
 import com.qualcomm.hardware.dfrobot.HuskyLens;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
@@ -66,22 +64,21 @@ import java.util.concurrent.TimeUnit;
 
 public class SensorHuskyLens_Test extends LinearOpMode {
 
-    private final int READ_PERIOD = 1;
-    private double power = 1.00;
-    //private void InverseProp(){}
-    private double CurrentWidth = 0.0;
-    private double MaxWidth = 320.0; // Max width in pixels
-    private double Scale = 0.0;
+    private final int READ_PERIOD_MS = 33;             // HuskyLens frame period
+    private static final int GOAL_TAG_ID = 1;          // ID the goal tag was learned as
+    private static final double FULL_POWER_RANGE = 120.0;  // Range (inches) that gets full flywheel power
 
     private HuskyLens huskyLens;
-    private DcMotorEx flywheel;
+    private DcMotorEx flywheel;  // Optional; the range is still shown without it
+    private final TagRangeEstimator rangeEstimator = new TagRangeEstimator();
 
     @Override
     public void runOpMode()
     {
         huskyLens = hardwareMap.get(HuskyLens.class, "huskylens");
+        flywheel = hardwareMap.tryGet(DcMotorEx.class, "output");
 
-        Deadline rateLimit = new Deadline(READ_PERIOD, TimeUnit.SECONDS);
+        Deadline rateLimit = new Deadline(READ_PERIOD_MS, TimeUnit.MILLISECONDS);
 
         rateLimit.expire();
 
@@ -108,17 +105,22 @@ public class SensorHuskyLens_Test extends LinearOpMode {
             for (int i = 0; i < blocks.length; i++) {
                 telemetry.addData("Block", blocks[i].toString());
 
-                if (blocks[i].id == 1) { // If the detected tag has ID 1
-                    CurrentWidth = blocks[i].width ;
-                    Scale = MaxWidth/CurrentWidth;
-                    power = power * Scale;
-                    flywheel.setPower(power);
+                if (blocks[i].id == GOAL_TAG_ID) {
+                    // Width and height are shown so they can be copied into the calibration table
+                    double range = rangeEstimator.addBlock(blocks[i].width, blocks[i].height);
+                    telemetry.addData("Tag Width x Height (px)", "%d x %d", blocks[i].width, blocks[i].height);
+                    telemetry.addData("Raw Range (in)", "%.1f",
+                            TagRangeEstimator.estimate(blocks[i].width, blocks[i].height));
+                    telemetry.addData("Filtered Range (in)", "%.1f", range);
+
+                    // Flywheel power grows with range, computed fresh from each reading
+                    if (flywheel != null) {
+                        flywheel.setPower(Math.max(0.0, Math.min(1.0, range / FULL_POWER_RANGE)));
+                    }
                 }
 
             }
 
-
-
             telemetry.update();
         }
     }
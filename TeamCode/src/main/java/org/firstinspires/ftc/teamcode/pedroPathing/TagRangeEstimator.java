@@ -0,0 +1,138 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * TagRangeEstimator converts the pixel size of a HuskyLens tag block into the distance to the
+ * tag, using a calibration table measured on the robot.
+ *
+ * Apparent size falls off as 1/distance, so a ratio like MaxWidth / CurrentWidth is not
+ * proportional to range. The table holds measured (range, width, height) points. Between points
+ * the estimator interpolates linearly in 1/size, which matches the camera's projection exactly, so
+ * only a handful of points are needed.
+ *
+ * Height and width are estimated separately. Viewed from the side, a tag gets narrower but not
+ * shorter, so when the block is clearly narrower than it is tall only the height is used. A
+ * median over the last few frames removes single-frame glitches (partial detections, motion blur)
+ * without the lag of a long average.
+ *
+ * To calibrate: park the robot square to the goal tag at each range below, read the block width
+ * and height from the "Sensor: HuskyLens" OpMode, and replace the table rows.
+ */
+public class TagRangeEstimator {
+
+    // ===== CALIBRATION TABLE (EDITABLE, rows sorted by range) =====
+    // Defaults are the pinhole model for a 6.5 in tag and a 277 px focal length; replace with measurements
+    public static double[] CAL_RANGE_INCHES = {18, 24, 36, 48, 60, 72, 96, 120};
+    public static double[] CAL_WIDTH_PX = {100.0, 75.0, 50.0, 37.5, 30.0, 25.0, 18.8, 15.0};
+    public static double[] CAL_HEIGHT_PX = {100.0, 75.0, 50.0, 37.5, 30.0, 25.0, 18.8, 15.0};
+
+    // ===== FILTER (EDITABLE) =====
+    public static double OBLIQUE_RATIO = 0.85;   // Width/height below this means the tag is seen at an angle
+    public static final int MEDIAN_WINDOW = 5;   // Frames in the median filter (odd)
+
+    private final double[] window = new double[MEDIAN_WINDOW];
+    private final double[] sorted = new double[MEDIAN_WINDOW];
+    private int windowCount = 0;
+    private int windowNext = 0;
+    private double range = Double.NaN;
+
+    /**
+     * Adds one block and returns the filtered range.
+     *
+     * @param widthPx Block width (pixels)
+     * @param heightPx Block height (pixels), or 0 if unknown
+     * @return Median-filtered range (inches)
+     */
+    public double addBlock(int widthPx, int heightPx) {
+        double raw = estimate(widthPx, heightPx);
+        if (Double.isNaN(raw)) {
+            return range;
+        }
+
+        window[windowNext] = raw;
+        windowNext = (windowNext + 1) % MEDIAN_WINDOW;
+        if (windowCount < MEDIAN_WINDOW) {
+            windowCount++;
+        }
+
+        // Insertion sort of at most MEDIAN_WINDOW values, no allocation
+        for (int i = 0; i < windowCount; i++) {
+            double value = window[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+        range = windowCount % 2 == 1
+                ? sorted[windowCount / 2]
+                : (sorted[windowCount / 2 - 1] + sorted[windowCount / 2]) / 2;
+        return range;
+    }
+
+    /**
+     * Unfiltered range for a single block.
+     *
+     * @param widthPx Block width (pixels)
+     * @param heightPx Block height (pixels), or 0 if unknown
+     * @return Range (inches), or NaN if neither size is usable
+     */
+    public static double estimate(int widthPx, int heightPx) {
+        boolean widthUsable = widthPx > 0;
+        boolean heightUsable = heightPx > 0;
+        if (widthUsable && heightUsable && widthPx < heightPx * OBLIQUE_RATIO) {
+            widthUsable = false;  // Seen from the side, the width understates the tag size
+        }
+
+        if (widthUsable && heightUsable) {
+            return (interpolate(CAL_WIDTH_PX, widthPx) + interpolate(CAL_HEIGHT_PX, heightPx)) / 2;
+        } else if (widthUsable) {
+            return interpolate(CAL_WIDTH_PX, widthPx);
+        } else if (heightUsable) {
+            return interpolate(CAL_HEIGHT_PX, heightPx);
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Interpolates range from a size column of the calibration table, linear in 1/size. Sizes
+     * outside the table extrapolate from the nearest two rows.
+     *
+     * @param sizes CAL_WIDTH_PX or CAL_HEIGHT_PX (decreasing with range)
+     * @param sizePx Measured size (pixels)
+     * @return Range (inches)
+     */
+    static double interpolate(double[] sizes, double sizePx) {
+        int last = Math.min(sizes.length, CAL_RANGE_INCHES.length) - 1;
+        int upper = 1;
+        while (upper < last && sizes[upper] > sizePx) {
+            upper++;
+        }
+        int lower = upper - 1;
+
+        double inverseLower = 1.0 / sizes[lower];
+        double inverseUpper = 1.0 / sizes[upper];
+        double t = (1.0 / sizePx - inverseLower) / (inverseUpper - inverseLower);
+        return CAL_RANGE_INCHES[lower] + t * (CAL_RANGE_INCHES[upper] - CAL_RANGE_INCHES[lower]);
+    }
+
+    /**
+     * @return Latest filtered range (inches), NaN before the first block
+     */
+    public double getRangeInches() {
+        return range;
+    }
+
+    public boolean hasRange() {
+        return !Double.isNaN(range);
+    }
+
+    /**
+     * Clears the filter, for example after the tag has been out of view.
+     */
+    public void reset() {
+        windowCount = 0;
+        windowNext = 0;
+        range = Double.NaN;
+    }
+}
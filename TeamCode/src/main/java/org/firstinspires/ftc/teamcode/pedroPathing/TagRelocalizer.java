@@ -0,0 +1,274 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.pedropathing.follower.Follower;
+import com.pedropathing.geometry.Pose;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.Position;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagGameDatabase;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+
+/**
+ * TagRelocalizer corrects odometry drift with AprilTag robot poses while the robot keeps moving.
+ *
+ * A camera frame is captured some time before its detections reach the OpMode, and the robot has
+ * moved since. Instead of comparing the tag pose with the current odometry pose (which would pull
+ * the robot back toward where it was), the relocalizer:
+ * 1. Keeps a short history of timestamped odometry poses (call recordOdometry() every loop)
+ * 2. Looks up the odometry pose at the detection's frameAcquisitionNanoTime
+ * 3. Computes the rigid correction that moves that old odometry pose onto the tag pose
+ * 4. Applies the correction to the current odometry pose
+ *
+ * Corrections are blended in with CORRECTION_GAIN to smooth tag noise, and implausibly large jumps
+ * are rejected. Follower-based OpModes can call update(Follower); other OpModes read the corrected
+ * pose and write it back to their own odometry.
+ *
+ * This class also holds the shared AprilTag setup (camera mounting, tag library, FTC-to-Pedro
+ * coordinate conversion) used by FusionLocalizer.
+ */
+public class TagRelocalizer {
+
+    // ===== CAMERA CONFIGURATION (EDITABLE) =====
+    public static final String WEBCAM_NAME = "Webcam 1";
+    // Camera position on the robot (inches): x right, y forward, z up from the robot center
+    public static double CAMERA_X = 0.0;
+    public static double CAMERA_Y = 0.0;
+    public static double CAMERA_Z = 0.0;
+    // Camera orientation (degrees). Pitch -90 is a camera facing straight forward
+    public static double CAMERA_YAW = 0.0;
+    public static double CAMERA_PITCH = -90.0;
+    public static double CAMERA_ROLL = 0.0;
+
+    // ===== CORRECTION SETTINGS (EDITABLE) =====
+    public static double CORRECTION_GAIN = 0.5;                       // Fraction of each correction applied (0-1)
+    public static double MAX_CORRECTION_INCHES = 12.0;                // Larger position jumps are rejected
+    public static double MAX_CORRECTION_HEADING = Math.toRadians(15); // Larger heading jumps are rejected
+
+    // DECODE obelisk tags show the motif and are not used for localization
+    private static final int FIRST_OBELISK_TAG = 21;
+    private static final int LAST_OBELISK_TAG = 23;
+
+    private final AprilTagProcessor aprilTag;
+
+    // ===== ODOMETRY HISTORY =====
+    private final PoseRingBuffer history = new PoseRingBuffer();
+
+    // ===== LATEST CORRECTED POSE =====
+    private double correctedX, correctedY, correctedHeading;
+
+    // ===== SCRATCH (reused so updates do not allocate) =====
+    private final double[] tagPose = new double[3];
+    private final double[] odometryThen = new double[3];
+
+    // ===== STATISTICS =====
+    private int appliedCorrections = 0;
+    private int rejectedCorrections = 0;
+    private double lastCorrectionInches = 0;
+
+    /**
+     * @param aprilTag AprilTag processor attached to a running VisionPortal
+     *                 (see createAprilTagProcessor())
+     */
+    public TagRelocalizer(AprilTagProcessor aprilTag) {
+        this.aprilTag = aprilTag;
+    }
+
+    /**
+     * Builds an AprilTag processor with the DECODE tag library, inch/radian output and the camera
+     * mounting above, so that each detection carries a field-relative robotPose.
+     *
+     * @return Processor to add to a VisionPortal
+     */
+    public static AprilTagProcessor createAprilTagProcessor() {
+        return new AprilTagProcessor.Builder()
+                .setTagLibrary(AprilTagGameDatabase.getDecodeTagLibrary())
+                .setOutputUnits(DistanceUnit.INCH, AngleUnit.RADIANS)
+                .setCameraPose(
+                        new Position(DistanceUnit.INCH, CAMERA_X, CAMERA_Y, CAMERA_Z, 0),
+                        new YawPitchRollAngles(AngleUnit.DEGREES, CAMERA_YAW, CAMERA_PITCH, CAMERA_ROLL, 0))
+                .build();
+    }
+
+    /**
+     * Converts a detection's robot pose into Pedro field coordinates.
+     *
+     * FTC field coordinates have their origin at the field center; Pedro coordinates have their
+     * origin in a field corner and are rotated 90 degrees from FTC.
+     *
+     * @param detection AprilTag detection
+     * @param out Receives x (inches), y (inches), heading (radians, -PI to PI)
+     * @return false if the detection cannot be used for localization (unknown tag, no pose, or an
+     * obelisk tag)
+     */
+    public static boolean toFieldPose(AprilTagDetection detection, double[] out) {
+        if (detection.metadata == null || detection.robotPose == null || !isLocalizationTag(detection.id)) {
+            return false;
+        }
+
+        Position position = detection.robotPose.getPosition().toUnit(DistanceUnit.INCH);
+        double yaw = detection.robotPose.getOrientation().getYaw(AngleUnit.RADIANS);
+
+        out[0] = position.y + 72;
+        out[1] = -position.x + 72;
+        out[2] = wrapAngle(yaw - Math.PI / 2);
+        return true;
+    }
+
+    /**
+     * @param id AprilTag ID
+     * @return true if the tag is fixed to the field and can be used for localization
+     */
+    public static boolean isLocalizationTag(int id) {
+        return id < FIRST_OBELISK_TAG || id > LAST_OBELISK_TAG;
+    }
+
+    /**
+     * Stores the odometry pose for this loop. Call once per loop, right after odometry updates.
+     *
+     * @param nanos System.nanoTime() when the pose was read
+     * @param x Odometry X (inches)
+     * @param y Odometry Y (inches)
+     * @param heading Odometry heading (radians)
+     */
+    public void recordOdometry(long nanos, double x, double y, double heading) {
+        history.add(nanos, x, y, heading);
+
+        correctedX = x;
+        correctedY = y;
+        correctedHeading = heading;
+    }
+
+    /**
+     * Processes any new AprilTag detections against the pose history.
+     *
+     * @return true if the current pose was corrected; read it with getCorrectedX/Y/Heading()
+     */
+    public boolean update() {
+        List<AprilTagDetection> detections = aprilTag.getFreshDetections();
+        if (detections == null || history.isEmpty()) {
+            return false;
+        }
+
+        boolean corrected = false;
+        for (int i = 0; i < detections.size(); i++) {
+            AprilTagDetection detection = detections.get(i);
+            if (!toFieldPose(detection, tagPose)) {
+                continue;
+            }
+            if (!history.interpolate(detection.frameAcquisitionNanoTime, odometryThen)) {
+                rejectedCorrections++;  // Older than the history
+                continue;
+            }
+            if (applyCorrection()) {
+                corrected = true;
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * Records the follower's pose, processes new detections, and writes any correction back to the
+     * follower. Call once per loop after follower.update().
+     *
+     * @param follower Follower to relocalize
+     * @return true if the follower's pose was corrected
+     */
+    public boolean update(Follower follower) {
+        Pose pose = follower.getPose();
+        recordOdometry(System.nanoTime(), pose.getX(), pose.getY(), pose.getHeading());
+
+        if (!update()) {
+            return false;
+        }
+        follower.setPose(new Pose(correctedX, correctedY, correctedHeading));
+        return true;
+    }
+
+    public double getCorrectedX() {
+        return correctedX;
+    }
+
+    public double getCorrectedY() {
+        return correctedY;
+    }
+
+    public double getCorrectedHeading() {
+        return correctedHeading;
+    }
+
+    public int getAppliedCorrections() {
+        return appliedCorrections;
+    }
+
+    public int getRejectedCorrections() {
+        return rejectedCorrections;
+    }
+
+    /**
+     * @return Size of the most recent applied position correction (inches)
+     */
+    public double getLastCorrectionInches() {
+        return lastCorrectionInches;
+    }
+
+    /**
+     * Computes the correction that maps the odometry pose at capture time onto the tag pose,
+     * applies a CORRECTION_GAIN fraction of it to the current pose, and shifts the history by the
+     * same amount so later detections see corrected odometry.
+     *
+     * @return false if the correction was rejected as too large
+     */
+    private boolean applyCorrection() {
+        // Rigid transform taking odometryThen onto tagPose
+        double rotation = wrapAngle(tagPose[2] - odometryThen[2]);
+        double cos = Math.cos(rotation);
+        double sin = Math.sin(rotation);
+        double shiftX = tagPose[0] - (cos * odometryThen[0] - sin * odometryThen[1]);
+        double shiftY = tagPose[1] - (sin * odometryThen[0] + cos * odometryThen[1]);
+
+        // Where that transform puts the current pose
+        int newest = history.newest();
+        double currentX = history.getX(newest);
+        double currentY = history.getY(newest);
+        double targetX = cos * currentX - sin * currentY + shiftX;
+        double targetY = sin * currentX + cos * currentY + shiftY;
+
+        double jump = Math.hypot(targetX - currentX, targetY - currentY);
+        if (jump > MAX_CORRECTION_INCHES || Math.abs(rotation) > MAX_CORRECTION_HEADING) {
+            rejectedCorrections++;
+            return false;
+        }
+
+        // Blend part of the way there, then express the blended move as a rigid transform
+        double appliedRotation = rotation * CORRECTION_GAIN;
+        double newX = currentX + (targetX - currentX) * CORRECTION_GAIN;
+        double newY = currentY + (targetY - currentY) * CORRECTION_GAIN;
+        double appliedCos = Math.cos(appliedRotation);
+        double appliedSin = Math.sin(appliedRotation);
+        double appliedShiftX = newX - (appliedCos * currentX - appliedSin * currentY);
+        double appliedShiftY = newY - (appliedSin * currentX + appliedCos * currentY);
+
+        history.transform(appliedRotation, appliedShiftX, appliedShiftY);
+
+        correctedX = history.getX(newest);
+        correctedY = history.getY(newest);
+        correctedHeading = history.getHeading(newest);
+        lastCorrectionInches = Math.hypot(newX - currentX, newY - currentY);
+        appliedCorrections++;
+        return true;
+    }
+
+    /**
+     * Wraps an angle to (-PI, PI].
+     */
+    private static double wrapAngle(double angle) {
+        while (angle > Math.PI) angle -= 2 * Math.PI;
+        while (angle <= -Math.PI) angle += 2 * Math.PI;
+        return angle;
+    }
+}
@@ -0,0 +1,110 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+/**
+ * TrapezoidProfile plans a move of a fixed distance that starts and ends at rest: accelerate at
+ * the acceleration limit, cruise at the velocity limit, decelerate to a stop on the target.
+ *
+ * When the move is too short to reach the velocity limit the cruise phase disappears and the
+ * profile is a triangle with a lower peak. Negative distances mirror the profile.
+ *
+ * The profile is sampled by time since the move started, so a loop that runs late still asks for
+ * the right position instead of falling behind.
+ */
+public class TrapezoidProfile {
+
+    private final double distance;
+    private final double sign;
+    private final double acceleration;
+    private final double peakVelocity;
+    private final double accelerationTime;
+    private final double cruiseTime;
+    private final double totalTime;
+
+    /**
+     * @param distance Signed distance to travel
+     * @param maxVelocity Velocity limit (distance/second, positive)
+     * @param maxAcceleration Acceleration limit (distance/second^2, positive)
+     */
+    public TrapezoidProfile(double distance, double maxVelocity, double maxAcceleration) {
+        if (maxVelocity <= 0 || maxAcceleration <= 0) {
+            throw new IllegalArgumentException("limits must be positive");
+        }
+        this.distance = distance;
+        sign = Math.signum(distance);
+        acceleration = maxAcceleration;
+
+        double length = Math.abs(distance);
+        // Peak speed of a triangle profile over this length; capped by the velocity limit
+        peakVelocity = Math.min(maxVelocity, Math.sqrt(length * maxAcceleration));
+        accelerationTime = peakVelocity / maxAcceleration;
+        double rampLength = peakVelocity * accelerationTime;  // Both ramps together
+        cruiseTime = peakVelocity > 0 ? (length - rampLength) / peakVelocity : 0;
+        totalTime = 2 * accelerationTime + cruiseTime;
+    }
+
+    /**
+     * @param t Seconds since the move started
+     * @return Planned position (0 at the start, distance at the end)
+     */
+    public double getPosition(double t) {
+        if (t <= 0) {
+            return 0;
+        }
+        if (t >= totalTime) {
+            return distance;
+        }
+        double length;
+        if (t < accelerationTime) {
+            length = 0.5 * acceleration * t * t;
+        } else if (t < accelerationTime + cruiseTime) {
+            length = 0.5 * peakVelocity * accelerationTime + peakVelocity * (t - accelerationTime);
+        } else {
+            double remaining = totalTime - t;
+            length = Math.abs(distance) - 0.5 * acceleration * remaining * remaining;
+        }
+        return sign * length;
+    }
+
+    /**
+     * @param t Seconds since the move started
+     * @return Planned velocity (distance/second, signed)
+     */
+    public double getVelocity(double t) {
+        if (t <= 0 || t >= totalTime) {
+            return 0;
+        }
+        if (t < accelerationTime) {
+            return sign * acceleration * t;
+        }
+        if (t < accelerationTime + cruiseTime) {
+            return sign * peakVelocity;
+        }
+        return sign * acceleration * (totalTime - t);
+    }
+
+    /**
+     * @param t Seconds since the move started
+     * @return Planned acceleration (distance/second^2, signed)
+     */
+    public double getAcceleration(double t) {
+        if (t <= 0 || t >= totalTime) {
+            return 0;
+        }
+        if (t < accelerationTime) {
+            return sign * acceleration;
+        }
+        if (t < accelerationTime + cruiseTime) {
+            return 0;
+        }
+        return -sign * acceleration;
+    }
+
+    /** @return Duration of the whole move (seconds) */
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+}
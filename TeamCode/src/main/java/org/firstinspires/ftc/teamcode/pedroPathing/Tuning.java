@@ -24,6 +24,10 @@ import com.pedropathing.telemetry.SelectableOpMode;
 import com.pedropathing.util.*;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -55,12 +59,15 @@ public class Tuning extends SelectableOpMode {
                 l.add("Forward Tuner", ForwardTuner::new);
                 l.add("Lateral Tuner", LateralTuner::new);
                 l.add("Turn Tuner", TurnTuner::new);
+                l.add("OTOS Calibration Tuner", OTOSCalibrationTuner::new);
             });
             s.folder("Automatic", a -> {
                 a.add("Forward Velocity Tuner", ForwardVelocityTuner::new);
                 a.add("Lateral Velocity Tuner", LateralVelocityTuner::new);
                 a.add("Forward Zero Power Acceleration Tuner", ForwardZeroPowerAccelerationTuner::new);
                 a.add("Lateral Zero Power Acceleration Tuner", LateralZeroPowerAccelerationTuner::new);
+                a.add("Flywheel Characterization Tuner", FlywheelCharacterizationTuner::new);
+                a.add("Drive Velocity Control Tuner", DriveVelocityControlTuner::new);
             });
             s.folder("Manual", p -> {
                 p.add("Translational Tuner", TranslationalTuner::new);
@@ -80,10 +87,10 @@ public class Tuning extends SelectableOpMode {
     @Override
     public void onSelect() {
         if (follower == null) {
-            follower = Constants.createFollower(hardwareMap);
+            follower = Constants.createFollower(hardwareMap, false);
             PanelsConfigurables.INSTANCE.refreshClass(this);
         } else {
-            follower = Constants.createFollower(hardwareMap);
+            follower = Constants.createFollower(hardwareMap, false);
         }
 
         follower.setStartingPose(new Pose());
@@ -313,6 +320,350 @@ class TurnTuner extends OpMode {
     }
 }
 
+/**
+ * This is the OTOSCalibrationTuner OpMode. It replaces hand-derived OTOS numbers with a least
+ * squares fit over several known moves. The robot drives each step on its own (forward, back,
+ * left, right, then a full turn each way); after each step you line the robot up on the true mark
+ * with a tape measure or the tile seams and press A, so every step compares what the OTOS reported
+ * with what the robot actually did.
+ * - Linear scalar and mount angle: a scale-and-rotation fit of the reported translations onto the
+ *   true ones
+ * - Angular scalar: a scale fit of the reported turn angles onto the true ones
+ * - Mount offset: while turning in place the robot center should not move; an offset error makes
+ *   it trace a circle whose radius and phase give the correction
+ * Each fit reports its residuals so you can tell a good run from a slipped wheel. The suggested
+ * values are scaled from the ones in Constants.localizerConstants; run the tuner again after
+ * pasting them in to confirm the corrections have shrunk toward 1 and 0.
+ * The fit reads follower.getPose() and getTotalHeading(), which are the raw OTOS here: Tuning
+ * builds its follower with createFollower(hardwareMap, false), so AprilTag corrections from
+ * FusionLocalizer never reach the fit.
+ */
+class OTOSCalibrationTuner extends OpMode {
+    public static double DISTANCE = 48;
+    public static double TURN_ANGLE = 2 * Math.PI;
+    public static double DRIVE_POWER = 0.4;
+    public static double TURN_POWER = 0.3;
+    public static double STEP_TIMEOUT = 6;   // Seconds before a step gives up driving
+
+    private static final int MAX_TURN_SAMPLES = 4096;
+    private static final double OTOS_MIN_SCALAR = 0.872;  // The sensor rejects scalars outside this range
+    private static final double OTOS_MAX_SCALAR = 1.127;
+
+    // Steps in robot frame at the start of the step: forward, lateral (left positive), turn
+    private final double[][] steps = {
+            {DISTANCE, 0, 0},
+            {-DISTANCE, 0, 0},
+            {0, DISTANCE, 0},
+            {0, -DISTANCE, 0},
+            {0, 0, TURN_ANGLE},
+            {0, 0, -TURN_ANGLE},
+    };
+
+    private int step;
+    private boolean driving;
+    private boolean finished;
+    private long stepStartNanos;
+    private double startX, startY, startHeading, startTotalHeading;
+
+    // Per-step results: reported translation (robot frame) or turn angle
+    private final double[] measuredForward = new double[steps.length];
+    private final double[] measuredLateral = new double[steps.length];
+    private final double[] measuredTurn = new double[steps.length];
+
+    // Turn samples for the offset fit, and each turn step's sums
+    private final double[] sampleHeading = new double[MAX_TURN_SAMPLES];
+    private final double[] sampleX = new double[MAX_TURN_SAMPLES];
+    private final double[] sampleY = new double[MAX_TURN_SAMPLES];
+    private final int[] sampleStep = new int[MAX_TURN_SAMPLES];
+    private int sampleCount;
+
+    // Fit results
+    private double linearCorrection = 1, mountAngle, translationRms;
+    private double angularCorrection = 1, turnRms;
+    private double offsetErrorX, offsetErrorY, offsetRms;
+    private boolean offsetValid;
+    private boolean changesAdded;  // The suggestions go into the change list once per run
+
+    @Override
+    public void init() {
+        follower.setStartingPose(new Pose(72, 72));
+    }
+
+    @Override
+    public void init_loop() {
+        telemetryM.debug("The robot will drive " + DISTANCE + " inches forward, back, left and right, then turn "
+                + Math.toDegrees(TURN_ANGLE) + " degrees each way.");
+        telemetryM.debug("Mark the start position. After each step, line the robot up on the true mark and press A.");
+        telemetryM.debug("Make sure you have room on every side. Press B on game pad 1 to stop.");
+        telemetryM.update(telemetry);
+        follower.update();
+        drawOnlyCurrent();
+    }
+
+    @Override
+    public void start() {
+        follower.startTeleopDrive(true);
+        follower.update();
+        beginStep(0);
+    }
+
+    /**
+     * Drives the current step until the OTOS says it is done, then waits for the operator to line
+     * the robot up and press A. After the last step, shows the fitted values.
+     */
+    @Override
+    public void loop() {
+        if (gamepad1.bWasPressed()) {
+            stopRobot();
+            requestOpModeStop();
+        }
+
+        follower.update();
+        draw();
+
+        if (finished) {
+            showResults();
+            if (gamepad1.aWasPressed() && !changesAdded) {
+                changesAdded = true;
+                changes.add("OTOS linearScalar: " + Constants.localizerConstants.linearScalar * linearCorrection);
+                changes.add("OTOS angularScalar: " + Constants.localizerConstants.angularScalar * angularCorrection);
+                if (offsetValid) {
+                    changes.add("OTOS offset: " + suggestedOffsetX() + ", " + suggestedOffsetY() + ", " + suggestedOffsetHeading());
+                }
+            }
+            return;
+        }
+
+        Pose pose = follower.getPose();
+        double[] target = steps[step];
+        boolean turnStep = target[2] != 0;
+
+        if (driving) {
+            double elapsed = (System.nanoTime() - stepStartNanos) / 1e9;
+            double progress = turnStep
+                    ? Math.abs(follower.getTotalHeading() - startTotalHeading)
+                    : Math.hypot(pose.getX() - startX, pose.getY() - startY);
+            double goal = turnStep ? Math.abs(target[2]) : Math.hypot(target[0], target[1]);
+
+            if (progress >= goal || elapsed > STEP_TIMEOUT) {
+                driving = false;
+                stopRobot();
+            } else if (turnStep) {
+                follower.setTeleOpDrive(0, 0, Math.signum(target[2]) * TURN_POWER, true);
+                addTurnSample(pose);
+            } else {
+                follower.setTeleOpDrive(Math.signum(target[0]) * DRIVE_POWER, Math.signum(target[1]) * DRIVE_POWER, 0, true);
+            }
+            telemetryM.debug("Step " + (step + 1) + " of " + steps.length + ": driving");
+        } else {
+            telemetryM.debug("Step " + (step + 1) + " of " + steps.length + ": line the robot up on the true mark, then press A.");
+            if (gamepad1.aWasPressed()) {
+                finishStep(pose);
+            }
+        }
+        telemetryM.debug("pose", follower.getPose());
+        telemetryM.update(telemetry);
+    }
+
+    private void beginStep(int index) {
+        step = index;
+        driving = true;
+        stepStartNanos = System.nanoTime();
+        Pose pose = follower.getPose();
+        startX = pose.getX();
+        startY = pose.getY();
+        startHeading = pose.getHeading();
+        startTotalHeading = follower.getTotalHeading();
+    }
+
+    /** Records what the OTOS reported for the step now that the robot sits on the true mark. */
+    private void finishStep(Pose pose) {
+        double dx = pose.getX() - startX;
+        double dy = pose.getY() - startY;
+        double cos = Math.cos(startHeading);
+        double sin = Math.sin(startHeading);
+        measuredForward[step] = cos * dx + sin * dy;
+        measuredLateral[step] = -sin * dx + cos * dy;
+        measuredTurn[step] = follower.getTotalHeading() - startTotalHeading;
+
+        if (step + 1 < steps.length) {
+            beginStep(step + 1);
+        } else {
+            stopRobot();
+            fit();
+            finished = true;
+        }
+    }
+
+    private void addTurnSample(Pose pose) {
+        if (sampleCount < MAX_TURN_SAMPLES) {
+            sampleHeading[sampleCount] = pose.getHeading();
+            sampleX[sampleCount] = pose.getX();
+            sampleY[sampleCount] = pose.getY();
+            sampleStep[sampleCount] = step;
+            sampleCount++;
+        }
+    }
+
+    // ===== FITS =====
+
+    private void fit() {
+        fitTranslation();
+        fitTurn();
+        fitOffset();
+    }
+
+    /**
+     * Least squares scale and rotation taking the reported translations onto the true ones.
+     * Treating each translation as a complex number m, the best z minimizing sum |t - z m|^2 is
+     * sum(conj(m) t) / sum(|m|^2); |z| scales the linear scalar and arg(z) is the mount angle error.
+     */
+    private void fitTranslation() {
+        double re = 0, im = 0, norm = 0;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i][2] != 0) continue;
+            double mx = measuredForward[i], my = measuredLateral[i];
+            double tx = steps[i][0], ty = steps[i][1];
+            re += mx * tx + my * ty;
+            im += mx * ty - my * tx;
+            norm += mx * mx + my * my;
+        }
+        if (norm == 0) return;
+        double zRe = re / norm, zIm = im / norm;
+        linearCorrection = Math.hypot(zRe, zIm);
+        mountAngle = Math.atan2(zIm, zRe);
+
+        double sumSquares = 0;
+        int count = 0;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i][2] != 0) continue;
+            double mx = measuredForward[i], my = measuredLateral[i];
+            double ex = steps[i][0] - (zRe * mx - zIm * my);
+            double ey = steps[i][1] - (zIm * mx + zRe * my);
+            sumSquares += ex * ex + ey * ey;
+            count++;
+        }
+        translationRms = Math.sqrt(sumSquares / count);
+    }
+
+    /** Least squares scale taking the reported turn angles onto the true ones. */
+    private void fitTurn() {
+        double product = 0, norm = 0;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i][2] == 0) continue;
+            product += measuredTurn[i] * steps[i][2];
+            norm += measuredTurn[i] * measuredTurn[i];
+        }
+        if (norm == 0) return;
+        angularCorrection = product / norm;
+
+        double sumSquares = 0;
+        int count = 0;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i][2] == 0) continue;
+            double error = steps[i][2] - angularCorrection * measuredTurn[i];
+            sumSquares += error * error;
+            count++;
+        }
+        turnRms = Math.sqrt(sumSquares / count);
+    }
+
+    /**
+     * Fits p = c + e^(i heading) d to the turn samples, with a center c per turn step and a shared
+     * offset error d. Solving the normal equations for c and substituting gives
+     * d = sum(Q - conj(U) P / n) / sum(n - |U|^2 / n) over the turn steps, where for each step
+     * n is the sample count, U = sum e^(i heading), P = sum p and Q = sum e^(-i heading) p.
+     */
+    private void fitOffset() {
+        double numRe = 0, numIm = 0, denominator = 0;
+        double[] centerX = new double[steps.length];
+        double[] centerY = new double[steps.length];
+        double[] uRe = new double[steps.length], uIm = new double[steps.length];
+        double[] pX = new double[steps.length], pY = new double[steps.length];
+        int[] n = new int[steps.length];
+
+        for (int i = 0; i < sampleCount; i++) {
+            int s = sampleStep[i];
+            double cos = Math.cos(sampleHeading[i]), sin = Math.sin(sampleHeading[i]);
+            n[s]++;
+            uRe[s] += cos;
+            uIm[s] += sin;
+            pX[s] += sampleX[i];
+            pY[s] += sampleY[i];
+            numRe += cos * sampleX[i] + sin * sampleY[i];
+            numIm += cos * sampleY[i] - sin * sampleX[i];
+        }
+        for (int s = 0; s < steps.length; s++) {
+            if (n[s] == 0) continue;
+            numRe -= (uRe[s] * pX[s] + uIm[s] * pY[s]) / n[s];
+            numIm -= (uRe[s] * pY[s] - uIm[s] * pX[s]) / n[s];
+            denominator += n[s] - (uRe[s] * uRe[s] + uIm[s] * uIm[s]) / n[s];
+        }
+
+        // Needs most of a turn; a short arc cannot separate the center from the offset
+        offsetValid = denominator > 0.5 * sampleCount && sampleCount > 0;
+        if (!offsetValid) return;
+        offsetErrorX = numRe / denominator;
+        offsetErrorY = numIm / denominator;
+
+        double sumSquares = 0;
+        for (int s = 0; s < steps.length; s++) {
+            if (n[s] == 0) continue;
+            centerX[s] = (pX[s] - (uRe[s] * offsetErrorX - uIm[s] * offsetErrorY)) / n[s];
+            centerY[s] = (pY[s] - (uIm[s] * offsetErrorX + uRe[s] * offsetErrorY)) / n[s];
+        }
+        for (int i = 0; i < sampleCount; i++) {
+            int s = sampleStep[i];
+            double cos = Math.cos(sampleHeading[i]), sin = Math.sin(sampleHeading[i]);
+            double ex = sampleX[i] - centerX[s] - (cos * offsetErrorX - sin * offsetErrorY);
+            double ey = sampleY[i] - centerY[s] - (sin * offsetErrorX + cos * offsetErrorY);
+            sumSquares += ex * ex + ey * ey;
+        }
+        offsetRms = Math.sqrt(sumSquares / sampleCount);
+    }
+
+    // The sensor's own travel is scaled by 1 / linearCorrection, so the true offset is the
+    // configured offset plus the fitted error, rescaled
+    private double suggestedOffsetX() {
+        return (Constants.localizerConstants.offset.x + offsetErrorX) * linearCorrection;
+    }
+
+    private double suggestedOffsetY() {
+        return (Constants.localizerConstants.offset.y + offsetErrorY) * linearCorrection;
+    }
+
+    private double suggestedOffsetHeading() {
+        return Constants.localizerConstants.offset.h + Math.toDegrees(mountAngle);
+    }
+
+    private void showResults() {
+        double linearScalar = Constants.localizerConstants.linearScalar * linearCorrection;
+        double angularScalar = Constants.localizerConstants.angularScalar * angularCorrection;
+
+        telemetryM.debug("Linear Scalar: " + linearScalar + " (correction x" + linearCorrection + ")");
+        telemetryM.debug("Translation Residual RMS (in): " + translationRms);
+        telemetryM.debug("Angular Scalar: " + angularScalar + " (correction x" + angularCorrection + ")");
+        telemetryM.debug("Turn Residual RMS (deg): " + Math.toDegrees(turnRms));
+        if (offsetValid) {
+            telemetryM.debug("Offset: " + suggestedOffsetX() + ", " + suggestedOffsetY() + ", " + suggestedOffsetHeading());
+            telemetryM.debug("Offset Residual RMS (in): " + offsetRms);
+        } else {
+            telemetryM.debug("Offset: not enough of a turn recorded to fit");
+        }
+        if (!inSensorRange(linearScalar) || !inSensorRange(angularScalar)) {
+            telemetryM.debug("Warning: the OTOS only accepts scalars from " + OTOS_MIN_SCALAR + " to "
+                    + OTOS_MAX_SCALAR + "; check the units and sign of the current values.");
+        }
+        telemetryM.debug(changesAdded ? "Added to the change list."
+                : "Press A to add these values to the change list.");
+        telemetryM.update(telemetry);
+    }
+
+    private static boolean inSensorRange(double scalar) {
+        return scalar >= OTOS_MIN_SCALAR && scalar <= OTOS_MAX_SCALAR;
+    }
+}
+
 /**
  * This is the ForwardVelocityTuner autonomous follower OpMode. This runs the robot forwards at max
  * power until it reaches some specified distance. It records the most recent velocities, and on
@@ -329,7 +680,7 @@ class TurnTuner extends OpMode {
  * @version 1.0, 3/13/2024
  */
 class ForwardVelocityTuner extends OpMode {
-    private final ArrayList<Double> velocities = new ArrayList<>();
+    private DoubleRingBuffer velocities;
     public static double DISTANCE = 48;
     public static double RECORD_NUMBER = 10;
 
@@ -356,9 +707,7 @@ class ForwardVelocityTuner extends OpMode {
     /** This starts the OpMode by setting the drive motors to run forward at full power. */
     @Override
     public void start() {
-        for (int i = 0; i < RECORD_NUMBER; i++) {
-            velocities.add(0.0);
-        }
+        velocities = new DoubleRingBuffer((int) RECORD_NUMBER);
         follower.startTeleopDrive(true);
         follower.update();
         end = false;
@@ -390,16 +739,12 @@ class ForwardVelocityTuner extends OpMode {
                 //double currentVelocity = Math.abs(follower.getVelocity().getXComponent());
                 double currentVelocity = Math.abs(follower.poseTracker.getLocalizer().getVelocity().getX());
                 velocities.add(currentVelocity);
-                velocities.remove(0);
             }
         } else {
             stopRobot();
-            double average = 0;
-            for (double velocity : velocities) {
-                average += velocity;
-            }
-            average /= velocities.size();
+            double average = velocities.mean();
             telemetryM.debug("Forward Velocity: " + average);
+            telemetryM.debug("Standard Deviation: " + velocities.standardDeviation() + " over " + velocities.size() + " samples");
             telemetryM.debug("\n");
             telemetryM.debug("Press A to set the Forward Velocity temporarily (while robot remains on).");
 
@@ -435,7 +780,7 @@ class ForwardVelocityTuner extends OpMode {
  * @version 1.0, 3/13/2024
  */
 class LateralVelocityTuner extends OpMode {
-    private final ArrayList<Double> velocities = new ArrayList<>();
+    private DoubleRingBuffer velocities;
 
     public static double DISTANCE = 48;
     public static double RECORD_NUMBER = 10;
@@ -465,9 +810,7 @@ class LateralVelocityTuner extends OpMode {
     /** This starts the OpMode by setting the drive motors to run left at full power. */
     @Override
     public void start() {
-        for (int i = 0; i < RECORD_NUMBER; i++) {
-            velocities.add(0.0);
-        }
+        velocities = new DoubleRingBuffer((int) RECORD_NUMBER);
         follower.startTeleopDrive(true);
         follower.update();
     }
@@ -496,17 +839,13 @@ class LateralVelocityTuner extends OpMode {
                 follower.setTeleOpDrive(0,1,0,true);
                 double currentVelocity = Math.abs(follower.getVelocity().dot(new Vector(1, Math.PI / 2)));
                 velocities.add(currentVelocity);
-                velocities.remove(0);
             }
         } else {
             stopRobot();
-            double average = 0;
-            for (double velocity : velocities) {
-                average += velocity;
-            }
-            average /= velocities.size();
+            double average = velocities.mean();
 
             telemetryM.debug("Strafe Velocity: " + average);
+            telemetryM.debug("Standard Deviation: " + velocities.standardDeviation() + " over " + velocities.size() + " samples");
             telemetryM.debug("\n");
             telemetryM.debug("Press A to set the Lateral Velocity temporarily (while robot remains on).");
             telemetryM.update(telemetry);
@@ -536,11 +875,13 @@ class LateralVelocityTuner extends OpMode {
  * @version 1.0, 3/13/2024
  */
 class ForwardZeroPowerAccelerationTuner extends OpMode {
-    private final ArrayList<Double> accelerations = new ArrayList<>();
+    private final RunningStats accelerations = new RunningStats();
+    private final LinearRegression velocityFit = new LinearRegression();  // Velocity against time while coasting
     public static double VELOCITY = 30;
 
     private double previousVelocity;
     private long previousTimeNano;
+    private long stoppingStartNano;
 
     private boolean stopping;
     private boolean end;
@@ -593,26 +934,28 @@ class ForwardZeroPowerAccelerationTuner extends OpMode {
                 if (follower.getVelocity().dot(heading) > VELOCITY) {
                     previousVelocity = follower.getVelocity().dot(heading);
                     previousTimeNano = System.nanoTime();
+                    stoppingStartNano = previousTimeNano;
+                    velocityFit.add(0, previousVelocity);
                     stopping = true;
                     follower.setTeleOpDrive(0,0,0,true);
                 }
             } else {
                 double currentVelocity = follower.getVelocity().dot(heading);
-                accelerations.add((currentVelocity - previousVelocity) / ((System.nanoTime() - previousTimeNano) / Math.pow(10.0, 9)));
+                long now = System.nanoTime();
+                accelerations.add((currentVelocity - previousVelocity) / ((now - previousTimeNano) / Math.pow(10.0, 9)));
+                velocityFit.add((now - stoppingStartNano) / Math.pow(10.0, 9), currentVelocity);
                 previousVelocity = currentVelocity;
-                previousTimeNano = System.nanoTime();
+                previousTimeNano = now;
                 if (currentVelocity < follower.getConstraints().getVelocityConstraint()) {
                     end = true;
                 }
             }
         } else {
-            double average = 0;
-            for (double acceleration : accelerations) {
-                average += acceleration;
-            }
-            average /= accelerations.size();
+            double average = accelerations.getMean();
 
             telemetryM.debug("Forward Zero Power Acceleration (Deceleration): " + average);
+            telemetryM.debug("Samples: " + accelerations.getCount() + ", Standard Deviation: " + accelerations.getStandardDeviation());
+            telemetryM.debug("Line Fit of Velocity (slope, R^2): " + velocityFit.getSlope() + ", " + velocityFit.getRSquared());
             telemetryM.debug("\n");
             telemetryM.debug("Press A to set the Forward Zero Power Acceleration temporarily (while robot remains on).");
             telemetryM.update(telemetry);
@@ -642,10 +985,12 @@ class ForwardZeroPowerAccelerationTuner extends OpMode {
  * @version 1.0, 3/13/2024
  */
 class LateralZeroPowerAccelerationTuner extends OpMode {
-    private final ArrayList<Double> accelerations = new ArrayList<>();
+    private final RunningStats accelerations = new RunningStats();
+    private final LinearRegression velocityFit = new LinearRegression();  // Velocity against time while coasting
     public static double VELOCITY = 30;
     private double previousVelocity;
     private long previousTimeNano;
+    private long stoppingStartNano;
     private boolean stopping;
     private boolean end;
 
@@ -697,26 +1042,28 @@ class LateralZeroPowerAccelerationTuner extends OpMode {
                 if (Math.abs(follower.getVelocity().dot(heading)) > VELOCITY) {
                     previousVelocity = Math.abs(follower.getVelocity().dot(heading));
                     previousTimeNano = System.nanoTime();
+                    stoppingStartNano = previousTimeNano;
+                    velocityFit.add(0, previousVelocity);
                     stopping = true;
                     follower.setTeleOpDrive(0,0,0,true);
                 }
             } else {
                 double currentVelocity = Math.abs(follower.getVelocity().dot(heading));
-                accelerations.add((currentVelocity - previousVelocity) / ((System.nanoTime() - previousTimeNano) / Math.pow(10.0, 9)));
+                long now = System.nanoTime();
+                accelerations.add((currentVelocity - previousVelocity) / ((now - previousTimeNano) / Math.pow(10.0, 9)));
+                velocityFit.add((now - stoppingStartNano) / Math.pow(10.0, 9), currentVelocity);
                 previousVelocity = currentVelocity;
-                previousTimeNano = System.nanoTime();
+                previousTimeNano = now;
                 if (currentVelocity < follower.getConstraints().getVelocityConstraint()) {
                     end = true;
                 }
             }
         } else {
-            double average = 0;
-            for (double acceleration : accelerations) {
-                average += acceleration;
-            }
-            average /= accelerations.size();
+            double average = accelerations.getMean();
 
             telemetryM.debug("Lateral Zero Power Acceleration (Deceleration): " + average);
+            telemetryM.debug("Samples: " + accelerations.getCount() + ", Standard Deviation: " + accelerations.getStandardDeviation());
+            telemetryM.debug("Line Fit of Velocity (slope, R^2): " + velocityFit.getSlope() + ", " + velocityFit.getRSquared());
             telemetryM.debug("\n");
             telemetryM.debug("Press A to set the Lateral Zero Power Acceleration temporarily (while robot remains on).");
             telemetryM.update(telemetry);
@@ -730,6 +1077,432 @@ class LateralZeroPowerAccelerationTuner extends OpMode {
     }
 }
 
+/**
+ * This is the FlywheelCharacterizationTuner OpMode. It measures the shooter flywheel's motor model
+ * V = kS * sign(v) + kV * v + kA * a. The results go in the change list, which is their record:
+ * the shooter is open loop and has no feedforward to put them in yet.
+ * 1. Quasistatic: the voltage ramps slowly, so acceleration is negligible and a line fit of
+ *    voltage against speed gives kS (intercept) and kV (slope)
+ * 2. Dynamic: a voltage step; what kS and kV do not explain, fit against acceleration, gives kA
+ * 3. Ball test (optional): the flywheel holds BALL_TEST_RPM on the fitted feedforward while you
+ *    feed balls with the right trigger; each shot's speed dip gives the speed and the fraction of
+ *    stored energy one ball takes
+ * The motor runs without its velocity PID so power is a true fraction of battery voltage. Make
+ * sure the flywheel is clear and no balls are loaded before pressing start.
+ */
+class FlywheelCharacterizationTuner extends OpMode {
+    public static double RAMP_RATE = 0.5;        // Quasistatic ramp (volts per second)
+    public static double MAX_VOLTAGE = 10;       // Quasistatic ramp stops here
+    public static double STEP_VOLTAGE = 7;       // Dynamic step
+    public static double STEP_DURATION = 2;      // Seconds of dynamic data
+    public static double BALL_TEST_RPM = 3000;
+    public static double DROP_DETECT_RPM = 150;  // A dip this far below the held speed is a shot
+
+    private static final double ENCODER_TICKS_PER_REV = 28;  // REV HD Hex Motor encoder ticks
+    private static final double MIN_RPM = 50;                // Below this the wheel may still be stuck
+    private static final double STOPPED_RPM = 20;
+    private static final double ACCELERATION_WINDOW = 0.02;  // Seconds between velocity differences
+    private static final double BALL_SETTLE_TIME = 1.5;      // Seconds at speed before shots are detected
+    private static final double GATE_CLOSED_POSITION = 0.5;
+    private static final double GATE_OPEN_POSITION = 140.0 / 180.0;
+
+    private enum Phase { QUASISTATIC, COAST_AFTER_RAMP, DYNAMIC, COAST_AFTER_STEP, RESULTS, BALL_TEST }
+
+    private DcMotorEx flywheel;
+    private DcMotor intake;   // Optional, feeds balls during the ball test
+    private Servo gate;       // Optional
+    private VoltageSensor battery;
+
+    private Phase phase = Phase.QUASISTATIC;
+    private long phaseStartNanos;
+    private double volts;
+
+    private final LinearRegression quasistaticFit = new LinearRegression();  // Volts against RPM
+    private final LinearRegression dynamicFit = new LinearRegression();      // Leftover volts against RPM/s
+    private double kS, kV, kA;
+    private boolean changesAdded;  // The results go into the change list once per run
+
+    private long lastAccelerationNanos;
+    private double lastAccelerationRpm;
+
+    // Ball test
+    private final RunningStats heldRpm = new RunningStats();
+    private final RunningStats ballRpmDrop = new RunningStats();
+    private final RunningStats ballEnergyLoss = new RunningStats();
+    private final RunningStats ballRecoveryTime = new RunningStats();
+    private boolean inDip;
+    private double dipStartRpm, dipMinRpm;
+    private long dipStartNanos;
+
+    @Override
+    public void init() {
+        flywheel = hardwareMap.get(DcMotorEx.class, "output");
+        flywheel.setDirection(DcMotorEx.Direction.REVERSE);
+        flywheel.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        flywheel.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        flywheel.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
+        intake = hardwareMap.tryGet(DcMotor.class, "intake");
+        gate = hardwareMap.tryGet(Servo.class, "gate");
+        battery = hardwareMap.voltageSensor.iterator().next();
+    }
+
+    @Override
+    public void init_loop() {
+        telemetryM.debug("The flywheel will ramp to " + MAX_VOLTAGE + " V at " + RAMP_RATE + " V/s, coast down, then step to "
+                + STEP_VOLTAGE + " V for " + STEP_DURATION + " s.");
+        telemetryM.debug("Keep the flywheel clear and unloaded. Press B on game pad 1 to stop.");
+        telemetryM.update(telemetry);
+    }
+
+    @Override
+    public void start() {
+        beginPhase(Phase.QUASISTATIC);
+    }
+
+    /**
+     * Runs the current phase, sets the motor voltage and shows progress. Pressing B stops the
+     * flywheel and the OpMode at any point.
+     */
+    @Override
+    public void loop() {
+        if (gamepad1.bWasPressed()) {
+            flywheel.setPower(0);
+            requestOpModeStop();
+            return;
+        }
+
+        long now = System.nanoTime();
+        double elapsed = (now - phaseStartNanos) / 1e9;
+        double batteryVoltage = battery.getVoltage();
+        double rpm = flywheel.getVelocity() * 60.0 / ENCODER_TICKS_PER_REV;
+
+        switch (phase) {
+            case QUASISTATIC:
+                volts = RAMP_RATE * elapsed;
+                if (rpm > MIN_RPM) {
+                    quasistaticFit.add(rpm, volts);
+                }
+                if (volts >= MAX_VOLTAGE) {
+                    volts = 0;
+                    beginPhase(Phase.COAST_AFTER_RAMP);
+                }
+                break;
+
+            case COAST_AFTER_RAMP:
+                volts = 0;
+                if (Math.abs(rpm) < STOPPED_RPM) {
+                    kV = quasistaticFit.getSlope();
+                    kS = quasistaticFit.getIntercept();
+                    beginPhase(Phase.DYNAMIC);
+                    lastAccelerationNanos = now;
+                    lastAccelerationRpm = rpm;
+                }
+                break;
+
+            case DYNAMIC:
+                volts = STEP_VOLTAGE;
+                double dt = (now - lastAccelerationNanos) / 1e9;
+                if (dt >= ACCELERATION_WINDOW) {
+                    double acceleration = (rpm - lastAccelerationRpm) / dt;
+                    if (rpm > MIN_RPM) {
+                        // Voltage applied at the middle of the window, against the acceleration over it
+                        double midRpm = (rpm + lastAccelerationRpm) / 2;
+                        dynamicFit.add(acceleration, volts - kS * Math.signum(midRpm) - kV * midRpm);
+                    }
+                    lastAccelerationNanos = now;
+                    lastAccelerationRpm = rpm;
+                }
+                if (elapsed >= STEP_DURATION) {
+                    volts = 0;
+                    beginPhase(Phase.COAST_AFTER_STEP);
+                }
+                break;
+
+            case COAST_AFTER_STEP:
+                volts = 0;
+                if (Math.abs(rpm) < STOPPED_RPM) {
+                    kA = dynamicFit.getSlope();
+                    beginPhase(Phase.RESULTS);
+                }
+                break;
+
+            case RESULTS:
+                volts = 0;
+                if (gamepad1.aWasPressed() && !changesAdded) {
+                    changesAdded = true;
+                    changes.add("Flywheel KS: " + kS);
+                    changes.add("Flywheel KV: " + kV);
+                    changes.add("Flywheel KA: " + kA);
+                }
+                if (gamepad1.xWasPressed()) {
+                    heldRpm.reset();
+                    inDip = false;
+                    beginPhase(Phase.BALL_TEST);
+                }
+                break;
+
+            case BALL_TEST:
+                volts = kS + kV * BALL_TEST_RPM;
+                boolean feeding = gamepad1.right_trigger > 0.1;
+                if (intake != null) intake.setPower(feeding ? 1.0 : 0.0);
+                if (gate != null) gate.setPosition(feeding ? GATE_OPEN_POSITION : GATE_CLOSED_POSITION);
+                if (elapsed >= BALL_SETTLE_TIME) {
+                    detectShot(rpm, now);
+                }
+                if (gamepad1.yWasPressed()) {
+                    if (intake != null) intake.setPower(0);
+                    if (gate != null) gate.setPosition(GATE_CLOSED_POSITION);
+                    beginPhase(Phase.RESULTS);
+                }
+                break;
+        }
+
+        flywheel.setPower(batteryVoltage > 0 ? Math.max(-1.0, Math.min(1.0, volts / batteryVoltage)) : 0);
+        showTelemetry(rpm, batteryVoltage);
+    }
+
+    private void beginPhase(Phase next) {
+        phase = next;
+        phaseStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Tracks the held speed between shots and, for each dip below it, the lowest speed reached and
+     * how long the wheel took to get back. Kinetic energy goes with speed squared, so one shot
+     * takes 1 - (lowest / held)^2 of the stored energy.
+     */
+    private void detectShot(double rpm, long now) {
+        if (!inDip) {
+            if (heldRpm.getCount() > 0 && rpm < heldRpm.getMean() - DROP_DETECT_RPM) {
+                inDip = true;
+                dipStartRpm = heldRpm.getMean();
+                dipMinRpm = rpm;
+                dipStartNanos = now;
+            } else {
+                heldRpm.add(rpm);
+            }
+        } else {
+            dipMinRpm = Math.min(dipMinRpm, rpm);
+            if (rpm > dipStartRpm - DROP_DETECT_RPM / 2) {
+                inDip = false;
+                ballRpmDrop.add(dipStartRpm - dipMinRpm);
+                ballEnergyLoss.add(1 - (dipMinRpm / dipStartRpm) * (dipMinRpm / dipStartRpm));
+                ballRecoveryTime.add((now - dipStartNanos) / 1e9);
+            }
+        }
+    }
+
+    private void showTelemetry(double rpm, double batteryVoltage) {
+        telemetryM.debug("Phase: " + phase);
+        telemetryM.debug("Flywheel RPM: " + rpm);
+        telemetryM.debug("Voltage: " + volts + " of " + batteryVoltage);
+
+        if (phase == Phase.RESULTS || phase == Phase.BALL_TEST) {
+            telemetryM.debug("kS (V): " + kS);
+            telemetryM.debug("kV (V per RPM): " + kV + ", R^2 " + quasistaticFit.getRSquared());
+            telemetryM.debug("kA (V per RPM/s): " + kA + ", R^2 " + dynamicFit.getRSquared());
+            if (ballRpmDrop.getCount() > 0) {
+                telemetryM.debug("Balls: " + ballRpmDrop.getCount());
+                telemetryM.debug("RPM Drop per Ball: " + ballRpmDrop.getMean() + " +/- " + ballRpmDrop.getStandardDeviation());
+                telemetryM.debug("Energy Lost per Ball: " + ballEnergyLoss.getMean() * 100 + "%");
+                telemetryM.debug("Recovery Time (s): " + ballRecoveryTime.getMean());
+            }
+        }
+        if (phase == Phase.RESULTS) {
+            telemetryM.debug(changesAdded ? "Added to the change list."
+                    : "Press A to add these values to the change list.");
+            telemetryM.debug("Press X to run the ball test at " + BALL_TEST_RPM + " RPM.");
+        } else if (phase == Phase.BALL_TEST) {
+            telemetryM.debug("Hold the right trigger to feed balls. Press Y to finish.");
+        }
+        telemetryM.update(telemetry);
+    }
+
+    @Override
+    public void stop() {
+        flywheel.setPower(0);
+    }
+}
+
+/**
+ * This is the DriveVelocityControlTuner OpMode. It measures the numbers MecanumDrive's velocity
+ * mode needs, which stays off (MecanumDrive.USE_VELOCITY_CONTROL) until they are measured.
+ * 1. Push: the motors float; push the robot straight forward DISTANCE inches along a tape measure
+ *    and press A. The wheel encoders' average count over the distance gives DRIVE_TICKS_PER_INCH.
+ *    A wheel that does not count is flagged, since velocity mode cannot run without all four.
+ * 2. Ramp: all four wheels ramp forward at RAMP_RATE volts per second until the robot has gone
+ *    RAMP_DISTANCE inches. The acceleration is small, so a line fit of voltage against wheel speed
+ *    gives DRIVE_KS (intercept) and DRIVE_KV (slope).
+ * DRIVE_KA and DRIVE_KP are tuned by hand afterwards: start with KA at 0 and raise KP until the
+ * wheel speed holds under load without oscillating. Then set USE_VELOCITY_CONTROL to true.
+ * Leave about RAMP_DISTANCE plus two feet of room in front of the robot.
+ */
+class DriveVelocityControlTuner extends OpMode {
+    public static double DISTANCE = 48;        // Push distance (inches)
+    public static double RAMP_RATE = 1.0;      // Volts per second
+    public static double RAMP_DISTANCE = 72;   // The ramp stops after this far (inches)
+    public static double MAX_VOLTAGE = 10;     // Or at this voltage
+
+    private static final double MIN_SPEED = 2;          // Inches per second; below this the wheels may still be stuck
+    private static final double MIN_WHEEL_FRACTION = 0.5;  // A wheel counting less than this share of the average is flagged
+
+    private enum Phase { PUSH, RAMP, RESULTS }
+
+    private MecanumDrive drive;
+    private DcMotorEx[] wheels;
+    private final String[] wheelNames = {"leftFront", "leftRear", "rightFront", "rightRear"};
+    private VoltageSensor battery;
+
+    private Phase phase = Phase.PUSH;
+    private long phaseStartNanos;
+    private double volts;
+    private final int[] startTicks = new int[4];
+
+    private double ticksPerInch;
+    private final LinearRegression rampFit = new LinearRegression();  // Volts against inches per second
+    private double kS, kV;
+    private boolean changesAdded;  // The results go into the change list once per run
+
+    @Override
+    public void init() {
+        drive = new MecanumDrive(hardwareMap);
+        wheels = new DcMotorEx[]{drive.frontLeft, drive.backLeft, drive.frontRight, drive.backRight};
+        for (DcMotorEx wheel : wheels) {
+            wheel.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);  // So the robot can be pushed
+        }
+        battery = hardwareMap.voltageSensor.iterator().next();
+    }
+
+    @Override
+    public void init_loop() {
+        telemetryM.debug("Step 1: push the robot straight forward " + DISTANCE + " inches, then press A.");
+        telemetryM.debug("Step 2: the robot ramps forward on its own for " + RAMP_DISTANCE + " inches. Leave room in front of it.");
+        telemetryM.debug("Press B on game pad 1 to stop.");
+        telemetryM.update(telemetry);
+    }
+
+    @Override
+    public void start() {
+        markStart();
+        beginPhase(Phase.PUSH);
+    }
+
+    /**
+     * Runs the current phase, sets the wheel voltage and shows progress. Pressing B stops the
+     * wheels and the OpMode at any point.
+     */
+    @Override
+    public void loop() {
+        if (gamepad1.bWasPressed()) {
+            drive.stop();
+            requestOpModeStop();
+            return;
+        }
+
+        double batteryVoltage = battery.getVoltage();
+        double elapsed = (System.nanoTime() - phaseStartNanos) / 1e9;
+
+        switch (phase) {
+            case PUSH:
+                volts = 0;
+                if (gamepad1.aWasPressed() && averageTicks() > 0) {
+                    ticksPerInch = averageTicks() / DISTANCE;
+                    markStart();
+                    beginPhase(Phase.RAMP);
+                }
+                break;
+
+            case RAMP:
+                volts = RAMP_RATE * elapsed;
+                double speed = averageVelocity() / ticksPerInch;
+                if (speed > MIN_SPEED) {
+                    rampFit.add(speed, volts);
+                }
+                if (averageTicks() / ticksPerInch >= RAMP_DISTANCE || volts >= MAX_VOLTAGE) {
+                    volts = 0;
+                    kV = rampFit.getSlope();
+                    kS = rampFit.getIntercept();
+                    beginPhase(Phase.RESULTS);
+                }
+                break;
+
+            case RESULTS:
+                volts = 0;
+                if (gamepad1.aWasPressed() && !changesAdded) {
+                    changesAdded = true;
+                    changes.add("MecanumDrive DRIVE_TICKS_PER_INCH: " + ticksPerInch);
+                    changes.add("MecanumDrive DRIVE_KS: " + kS);
+                    changes.add("MecanumDrive DRIVE_KV: " + kV);
+                }
+                break;
+        }
+
+        double power = batteryVoltage > 0 ? Math.max(-1.0, Math.min(1.0, volts / batteryVoltage)) : 0;
+        for (DcMotorEx wheel : wheels) {
+            wheel.setPower(power);
+        }
+        showTelemetry(batteryVoltage);
+    }
+
+    private void beginPhase(Phase next) {
+        phase = next;
+        phaseStartNanos = System.nanoTime();
+    }
+
+    private void markStart() {
+        for (int i = 0; i < wheels.length; i++) {
+            startTicks[i] = wheels[i].getCurrentPosition();
+        }
+    }
+
+    private double averageTicks() {
+        double sum = 0;
+        for (int i = 0; i < wheels.length; i++) {
+            sum += wheels[i].getCurrentPosition() - startTicks[i];
+        }
+        return sum / wheels.length;
+    }
+
+    private double averageVelocity() {
+        double sum = 0;
+        for (DcMotorEx wheel : wheels) {
+            sum += wheel.getVelocity();
+        }
+        return sum / wheels.length;
+    }
+
+    private void showTelemetry(double batteryVoltage) {
+        telemetryM.debug("Phase: " + phase);
+        telemetryM.debug("Voltage: " + volts + " of " + batteryVoltage);
+
+        double average = averageTicks();
+        for (int i = 0; i < wheels.length; i++) {
+            int ticks = wheels[i].getCurrentPosition() - startTicks[i];
+            boolean counting = Math.abs(average) < 1 || ticks / average >= MIN_WHEEL_FRACTION;
+            telemetryM.debug(wheelNames[i] + " ticks: " + ticks + (counting ? "" : "  <- not counting, check the encoder cable"));
+        }
+
+        if (phase == Phase.PUSH) {
+            telemetryM.debug("Ticks per inch so far: " + average / DISTANCE);
+            telemetryM.debug("At the " + DISTANCE + " inch mark, press A to start the ramp.");
+        } else {
+            telemetryM.debug("DRIVE_TICKS_PER_INCH: " + ticksPerInch);
+        }
+        if (phase == Phase.RESULTS) {
+            telemetryM.debug("DRIVE_KS (V): " + kS);
+            telemetryM.debug("DRIVE_KV (V per in/s): " + kV + ", R^2 " + rampFit.getRSquared());
+            telemetryM.debug(changesAdded ? "Added to the change list."
+                    : "Press A to add these values to the change list.");
+        }
+        telemetryM.update(telemetry);
+    }
+
+    @Override
+    public void stop() {
+        drive.stop();
+    }
+}
+
 /**
  * This is the Translational PIDF Tuner OpMode. It will keep the robot in place.
  * The user should push the robot laterally to test the PIDF and adjust the PIDF values accordingly.
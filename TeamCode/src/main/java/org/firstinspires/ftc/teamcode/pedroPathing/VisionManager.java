@@ -0,0 +1,228 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.VisionProcessor;
+
+/**
+ * VisionManager owns the webcam's VisionPortal and only runs the vision work the robot needs
+ * right now. The camera costs CPU and USB bandwidth for every frame it streams, whether or not
+ * anything reads the result.
+ *
+ * Processors are switched by robot state:
+ * - AprilTag processor: inside a shooting zone (aiming and relocalization) or during auto init
+ *   (reading the obelisk motif)
+ * - Artifact processor: while the intake is running
+ * - Neither needed: the stream is stopped entirely; the camera stays open so it can resume
+ *
+ * Each processor stays on for HOLD_MS after it was last needed, so driving along a zone edge or
+ * tapping the intake does not restart the stream every loop.
+ *
+ * The manager starts idle: the camera opens but does not stream and both processors are disabled.
+ * Nothing runs until an OpMode opts in by calling update(), so OpModes that never do (tuners, paths
+ * on the OTOS alone) pay nothing for the camera.
+ *
+ * Call update() once per loop. It also measures the loop time and process CPU time separately
+ * for loops with the stream running and stopped, which addTelemetry() reports as the savings.
+ */
+public class VisionManager {
+
+    // ===== SWITCHING (EDITABLE) =====
+    public static long HOLD_MS = 750;  // Keep a processor running this long after it was last needed
+
+    private final VisionPortal visionPortal;
+    private final VisionProcessor aprilTagProcessor;
+    private final VisionProcessor artifactProcessor;  // May be null
+
+    // ===== SWITCHING STATE =====
+    private long lastTagNeedNanos = 0;
+    private long lastArtifactNeedNanos = 0;
+    private boolean tagsEnabled = false;      // The portal starts idle; see the constructor
+    private boolean artifactsEnabled = false;
+    private boolean streamWanted = false;
+
+    // ===== SAVINGS MEASUREMENT =====
+    private long lastUpdateNanos = 0;
+    private long lastCpuMs = 0;
+    private final double[] loopMsTotal = new double[2];   // [stopped, streaming]
+    private final long[] loopCount = new long[2];
+    private final double[] cpuMsTotal = new double[2];
+    private final double[] wallMsTotal = new double[2];
+
+    /**
+     * @param webcam Webcam to stream from
+     * @param aprilTagProcessor Processor for goal and obelisk AprilTags
+     * @param artifactProcessor Processor that finds artifacts for the intake, or null if none
+     */
+    public VisionManager(WebcamName webcam, VisionProcessor aprilTagProcessor, VisionProcessor artifactProcessor) {
+        this.aprilTagProcessor = aprilTagProcessor;
+        this.artifactProcessor = artifactProcessor;
+
+        VisionPortal.Builder builder = new VisionPortal.Builder()
+                .setCamera(webcam)
+                .setAutoStartStreamOnBuild(false);
+        // Artifacts first: they need the frame exactly as the camera delivered it
+        if (artifactProcessor != null) {
+            builder.addProcessor(artifactProcessor);
+        }
+        builder.addProcessor(aprilTagProcessor);
+        visionPortal = builder.build();
+
+        // Idle until the first update() asks for something
+        visionPortal.setProcessorEnabled(aprilTagProcessor, false);
+        if (artifactProcessor != null) {
+            visionPortal.setProcessorEnabled(artifactProcessor, false);
+        }
+    }
+
+    /**
+     * Enables the processors the robot needs this loop and starts or stops the stream.
+     *
+     * @param intakeActive True if the intake is pulling artifacts in
+     * @param inShootingZone True if the robot is inside a shooting zone
+     * @param motifSearch True while the obelisk motif still has to be read (auto init)
+     */
+    public void update(boolean intakeActive, boolean inShootingZone, boolean motifSearch) {
+        long now = System.nanoTime();
+        measure(now);
+
+        if (inShootingZone || motifSearch) {
+            lastTagNeedNanos = now;
+        }
+        if (intakeActive) {
+            lastArtifactNeedNanos = now;
+        }
+
+        boolean wantTags = isHeld(lastTagNeedNanos, now);
+        boolean wantArtifacts = artifactProcessor != null && isHeld(lastArtifactNeedNanos, now);
+
+        if (wantTags != tagsEnabled) {
+            visionPortal.setProcessorEnabled(aprilTagProcessor, wantTags);
+            tagsEnabled = wantTags;
+        }
+        if (artifactProcessor != null && wantArtifacts != artifactsEnabled) {
+            visionPortal.setProcessorEnabled(artifactProcessor, wantArtifacts);
+            artifactsEnabled = wantArtifacts;
+        }
+
+        streamWanted = wantTags || wantArtifacts;
+        applyStreamState();
+    }
+
+    /**
+     * Enables the processors from the robot's shooting zone state. For driver-controlled OpModes.
+     *
+     * @param shootingZones Zones already checked this loop
+     * @param intakeActive True if the intake is pulling artifacts in
+     */
+    public void update(CoordinateTriangle shootingZones, boolean intakeActive) {
+        update(intakeActive, shootingZones.isInFrontShootArea() || shootingZones.isInBackShootArea(), false);
+    }
+
+    /**
+     * Stops the camera and releases it. The manager cannot be used afterwards.
+     */
+    public void close() {
+        visionPortal.close();
+    }
+
+    public VisionPortal getVisionPortal() {
+        return visionPortal;
+    }
+
+    public boolean isStreaming() {
+        return visionPortal.getCameraState() == VisionPortal.CameraState.STREAMING;
+    }
+
+    public boolean isAprilTagEnabled() {
+        return tagsEnabled;
+    }
+
+    public boolean isArtifactEnabled() {
+        return artifactsEnabled && artifactProcessor != null;
+    }
+
+    /**
+     * @return Average loop time with the stream running minus with it stopped (milliseconds), or
+     * NaN until both have been seen
+     */
+    public double getLoopMsSaved() {
+        if (loopCount[0] == 0 || loopCount[1] == 0) {
+            return Double.NaN;
+        }
+        return loopMsTotal[1] / loopCount[1] - loopMsTotal[0] / loopCount[0];
+    }
+
+    /**
+     * @return Process CPU load with the stream running minus with it stopped (fraction of one
+     * core), or NaN until both have been seen
+     */
+    public double getCpuLoadSaved() {
+        if (wallMsTotal[0] == 0 || wallMsTotal[1] == 0) {
+            return Double.NaN;
+        }
+        return cpuMsTotal[1] / wallMsTotal[1] - cpuMsTotal[0] / wallMsTotal[0];
+    }
+
+    /**
+     * @return Fraction of measured time the stream was stopped
+     */
+    public double getStoppedFraction() {
+        double total = wallMsTotal[0] + wallMsTotal[1];
+        return total == 0 ? 0 : wallMsTotal[0] / total;
+    }
+
+    /**
+     * Adds the stream state and the measured savings to telemetry.
+     */
+    public void addTelemetry(Telemetry telemetry) {
+        telemetry.addData("Vision", "%s (tags %s, artifacts %s)",
+                visionPortal.getCameraState(), tagsEnabled ? "on" : "off",
+                artifactProcessor == null ? "n/a" : artifactsEnabled ? "on" : "off");
+        telemetry.addData("Vision Stopped", "%.0f%% of the time", getStoppedFraction() * 100);
+
+        double loopSaved = getLoopMsSaved();
+        double cpuSaved = getCpuLoadSaved();
+        if (!Double.isNaN(loopSaved) && !Double.isNaN(cpuSaved)) {
+            telemetry.addData("Vision Savings", "%.1f ms/loop, %.0f%% CPU while stopped", loopSaved, cpuSaved * 100);
+        }
+    }
+
+    // ===== HELPERS =====
+
+    private boolean isHeld(long lastNeedNanos, long now) {
+        return lastNeedNanos != 0 && (now - lastNeedNanos) < HOLD_MS * 1_000_000L;
+    }
+
+    /**
+     * Starts or stops the stream to match streamWanted. Stream changes are only legal in the
+     * settled camera states, so requests made while the camera is opening or switching are
+     * retried on a later loop.
+     */
+    private void applyStreamState() {
+        VisionPortal.CameraState state = visionPortal.getCameraState();
+        if (streamWanted && state == VisionPortal.CameraState.CAMERA_DEVICE_READY) {
+            visionPortal.resumeStreaming();
+        } else if (!streamWanted && state == VisionPortal.CameraState.STREAMING) {
+            visionPortal.stopStreaming();
+        }
+    }
+
+    /**
+     * Charges the time and CPU since the previous update to the stream state that was in effect.
+     */
+    private void measure(long now) {
+        long cpuMs = android.os.Process.getElapsedCpuTime();
+        if (lastUpdateNanos != 0) {
+            int streaming = isStreaming() ? 1 : 0;
+            double loopMs = (now - lastUpdateNanos) / 1e6;
+            loopMsTotal[streaming] += loopMs;
+            loopCount[streaming]++;
+            wallMsTotal[streaming] += loopMs;
+            cpuMsTotal[streaming] += cpuMs - lastCpuMs;
+        }
+        lastUpdateNanos = now;
+        lastCpuMs = cpuMs;
+    }
+}
@@ -0,0 +1,179 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.qualcomm.hardware.dfrobot.HuskyLens;
+
+/**
+ * VisualServoController strafes the robot sideways until the goal tag seen by the HuskyLens sits
+ * in the aligned image column.
+ *
+ * Each HuskyLens block gives the tag's image column and pixel size:
+ * - Range: TagRangeEstimator's calibration table, median filtered
+ * - Lateral error: pixel offset from ALIGNED_COLUMN converted to inches at that range, so the
+ *   gains behave the same near and far
+ *
+ * The lateral error goes through an alpha-beta filter that tracks both the error and its rate.
+ * The HuskyLens only delivers a new frame every few loops, so between frames the controller
+ * predicts the error forward from the last measurement's timestamp instead of reacting to a
+ * stale value. A PD loop on the predicted error gives the strafe command; the derivative term
+ * uses the filtered rate, so it damps the approach without amplifying pixel noise.
+ *
+ * The controller has no hardware dependencies; the OpMode reads the HuskyLens and passes the
+ * blocks in with their read time.
+ */
+public class VisualServoController {
+
+    // ===== CAMERA MODEL (EDITABLE) =====
+    public static double ALIGNED_COLUMN = 210;        // Image column of the tag when aligned (the old 205-215 window)
+    public static double FOCAL_LENGTH_PX = 277;       // HuskyLens 320 px image, about 60 degree horizontal FOV
+
+    // ===== FILTER (EDITABLE) =====
+    public static double FILTER_ALPHA = 0.6;          // Weight of a new measurement on the error
+    public static double FILTER_BETA = 0.2;           // Weight of a new measurement on the error rate
+
+    // ===== PD GAINS (EDITABLE) =====
+    public static double KP = 0.08;                   // Strafe power per inch of lateral error
+    public static double KD = 0.01;                   // Strafe power per inch/second of error rate
+    public static double MAX_STRAFE_POWER = 0.6;
+    public static double TOLERANCE_INCHES = 0.5;      // Treated as aligned inside this error
+    public static double STRAFE_SIGN = -1;            // Tag right of ALIGNED_COLUMN strafes with x = -1, as before
+
+    // ===== TARGET LOSS (EDITABLE) =====
+    public static long MAX_PREDICTION_MS = 150;       // Stop predicting after this long without a frame
+    public static long TARGET_LOST_MS = 500;          // Forget the filter state after this long
+    public static long READ_PERIOD_MS = 33;           // HuskyLens frame period; read no faster than this
+
+    private final int tagId;
+    private final TagRangeEstimator rangeEstimator = new TagRangeEstimator();
+
+    // ===== FILTER STATE =====
+    private boolean hasTarget = false;
+    private long lastMeasurementNanos = 0;
+    private double lateralError = 0;   // Inches, positive when the tag is right of the aligned column
+    private double lateralRate = 0;    // Inches per second
+
+    /**
+     * @param tagId HuskyLens ID the goal tag was learned as
+     */
+    public VisualServoController(int tagId) {
+        this.tagId = tagId;
+    }
+
+    /**
+     * Feeds the blocks from one HuskyLens read.
+     *
+     * @param blocks Result of HuskyLens.blocks()
+     * @param nanos System.nanoTime() when the blocks were read
+     */
+    public void update(HuskyLens.Block[] blocks, long nanos) {
+        for (HuskyLens.Block block : blocks) {
+            if (block.id == tagId && block.width > 0) {
+                addMeasurement(block.x, block.width, block.height, nanos);
+                return;
+            }
+        }
+        if (hasTarget && (nanos - lastMeasurementNanos) > TARGET_LOST_MS * 1_000_000L) {
+            reset();
+        }
+    }
+
+    /**
+     * Adds one tag sighting to the filter. Read the HuskyLens no faster than its frame rate, or
+     * the same frame is counted more than once.
+     *
+     * @param column Tag center column (pixels)
+     * @param width Tag width (pixels)
+     * @param height Tag height (pixels)
+     * @param nanos Read time
+     */
+    public void addMeasurement(int column, int width, int height, long nanos) {
+        double range = rangeEstimator.addBlock(width, height);
+        if (Double.isNaN(range)) {
+            return;
+        }
+        double measuredError = (column - ALIGNED_COLUMN) / FOCAL_LENGTH_PX * range;
+
+        if (!hasTarget) {
+            lateralError = measuredError;
+            lateralRate = 0;
+            hasTarget = true;
+        } else {
+            double dt = Math.max(1e-3, (nanos - lastMeasurementNanos) / 1e9);
+            double predicted = lateralError + lateralRate * dt;
+            double residual = measuredError - predicted;
+            lateralError = predicted + FILTER_ALPHA * residual;
+            lateralRate += FILTER_BETA * residual / dt;
+        }
+        lastMeasurementNanos = nanos;
+    }
+
+    /**
+     * Strafe command for this loop, from the error predicted to the given time.
+     *
+     * @param nanos System.nanoTime() now
+     * @return Strafe power for MecanumDrive.drive() x (-MAX_STRAFE_POWER to MAX_STRAFE_POWER), 0
+     * without a target
+     */
+    public double calculateStrafe(long nanos) {
+        if (!hasTarget) {
+            return 0;
+        }
+        double error = getPredictedError(nanos);
+        if (Double.isNaN(error)) {
+            return 0;  // Too long since the last frame to trust the prediction
+        }
+        if (Math.abs(error) < TOLERANCE_INCHES) {
+            return 0;
+        }
+        double power = KP * error + KD * lateralRate;
+        power = Math.max(-MAX_STRAFE_POWER, Math.min(MAX_STRAFE_POWER, power));
+        return STRAFE_SIGN * power;
+    }
+
+    /**
+     * @param nanos System.nanoTime() now
+     * @return Lateral error extrapolated to now (inches), or NaN if the last frame is too old
+     */
+    public double getPredictedError(long nanos) {
+        if (!hasTarget) {
+            return Double.NaN;
+        }
+        double age = (nanos - lastMeasurementNanos) / 1e9;
+        if (age * 1000 > MAX_PREDICTION_MS) {
+            return Double.NaN;
+        }
+        return lateralError + lateralRate * age;
+    }
+
+    /**
+     * @return True once the predicted error is inside TOLERANCE_INCHES
+     */
+    public boolean isAligned(long nanos) {
+        double error = getPredictedError(nanos);
+        return !Double.isNaN(error) && Math.abs(error) < TOLERANCE_INCHES;
+    }
+
+    public boolean hasTarget() {
+        return hasTarget;
+    }
+
+    /**
+     * @return Camera-to-tag range, median of the last few frames (inches), NaN without a target
+     */
+    public double getRangeInches() {
+        return rangeEstimator.getRangeInches();
+    }
+
+    public double getLateralRate() {
+        return lateralRate;
+    }
+
+    /**
+     * Clears the filter, for example when the driver releases the align button.
+     */
+    public void reset() {
+        hasTarget = false;
+        lateralError = 0;
+        lateralRate = 0;
+        rangeEstimator.reset();
+    }
+}
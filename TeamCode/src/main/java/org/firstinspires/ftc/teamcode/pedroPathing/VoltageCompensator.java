@@ -0,0 +1,104 @@
+package org.firstinspires.ftc.teamcode.pedroPathing;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+/**
+ * VoltageCompensator scales open-loop commands so they do the same thing on a fresh 13.5 V
+ * battery as on a tired 11.5 V one.
+ *
+ * Motor power is a fraction of battery voltage, so a fixed power spins the flywheel and drives
+ * the wheels slower as the battery drains. The compensator rescales commands to NOMINAL_VOLTAGE:
+ * - compensate(power): power * NOMINAL_VOLTAGE / battery, for the flywheel and other open-loop
+ *   motors. Power cannot exceed 1, so a command of 1 only gets trimmed on batteries above nominal;
+ *   leave headroom below 1 where the output must stay constant.
+ * - compensateDuration(ms): ms * NOMINAL_VOLTAGE / battery, for timed drives at full power, where
+ *   the speed falls with voltage and the time has to stretch instead
+ *
+ * Reading the hub voltage is a bus transaction, so the value is cached and only re-read every
+ * SAMPLE_PERIOD_MS. Readings are smoothed because the voltage dips for a moment whenever a
+ * motor starts; compensating for each dip would make the commands jitter.
+ */
+public class VoltageCompensator {
+
+    // ===== VOLTAGE COMPENSATION CONSTANTS (EDITABLE) =====
+    public static double NOMINAL_VOLTAGE = 12.0;    // Voltage the open-loop commands were tuned at
+    public static double MIN_VOLTAGE = 9.0;         // Readings below this are clamped (brownout, bad sensor)
+    public static long SAMPLE_PERIOD_MS = 250;      // Minimum time between hub voltage reads
+    public static double VOLTAGE_SMOOTHING = 0.3;   // Weight of the newest reading
+
+    private final VoltageSensor[] sensors;
+    private double voltage = NOMINAL_VOLTAGE;
+    private long lastSampleNanos = 0;
+    private boolean sampled = false;
+
+    /**
+     * @param hardwareMap Hardware map; every hub's voltage sensor is read and the lowest used
+     */
+    public VoltageCompensator(HardwareMap hardwareMap) {
+        int count = 0;
+        for (VoltageSensor ignored : hardwareMap.voltageSensor) {
+            count++;
+        }
+        sensors = new VoltageSensor[count];
+        int i = 0;
+        for (VoltageSensor sensor : hardwareMap.voltageSensor) {
+            sensors[i++] = sensor;
+        }
+    }
+
+    /**
+     * @return Battery voltage, re-read at most every SAMPLE_PERIOD_MS; NOMINAL_VOLTAGE without a sensor
+     */
+    public double getVoltage() {
+        long now = System.nanoTime();
+        if (sampled && (now - lastSampleNanos) < SAMPLE_PERIOD_MS * 1_000_000L) {
+            return voltage;
+        }
+        lastSampleNanos = now;
+
+        double reading = Double.POSITIVE_INFINITY;
+        for (VoltageSensor sensor : sensors) {
+            double sensorVoltage = sensor.getVoltage();
+            if (sensorVoltage > 0) {
+                reading = Math.min(reading, sensorVoltage);
+            }
+        }
+        if (Double.isInfinite(reading)) {
+            return voltage;
+        }
+        reading = Math.max(reading, MIN_VOLTAGE);
+
+        voltage = sampled ? voltage + VOLTAGE_SMOOTHING * (reading - voltage) : reading;
+        sampled = true;
+        return voltage;
+    }
+
+    /**
+     * @return Ratio of nominal to battery voltage (above 1 on a low battery)
+     */
+    public double getScale() {
+        return NOMINAL_VOLTAGE / getVoltage();
+    }
+
+    /**
+     * Open-loop power that gives the same motor voltage as the nominal power at NOMINAL_VOLTAGE.
+     *
+     * @param power Power tuned at NOMINAL_VOLTAGE (-1.0 to 1.0)
+     * @return Compensated power (-1.0 to 1.0)
+     */
+    public double compensate(double power) {
+        return Math.max(-1.0, Math.min(1.0, power * getScale()));
+    }
+
+    /**
+     * Duration of a timed move at full power that covers the same distance as the calibrated
+     * duration did at NOMINAL_VOLTAGE.
+     *
+     * @param milliseconds Duration calibrated at NOMINAL_VOLTAGE
+     * @return Compensated duration (milliseconds)
+     */
+    public long compensateDuration(long milliseconds) {
+        return Math.round(milliseconds * getScale());
+    }
+}